@@ -0,0 +1,97 @@
+package com.anner.embed.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 基准测试使用的确定性测试数据
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/26
+ */
+public class BenchmarkData {
+    private static final String[] WORDS = { "向量", "检索", "embedding", "segment", "文档", "chunk", "token",
+            "索引", "model", "知识库", "query", "相似度", "cache", "批次", "pipeline" };
+
+    /**
+     * 生成指定长度的 markdown 文本，包含标题和段落，便于触发递归分段
+     */
+    public static String markdown(int chars, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(chars + 64);
+        int paragraph = 0;
+        while (builder.length() < chars) {
+            builder.append("## 第").append(++paragraph).append("节\n\n");
+            int words = 20 + random.nextInt(60);
+            for (int i = 0; i < words && builder.length() < chars; i++) {
+                builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            builder.append("\n\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 生成 count 个文本段，每段约 chars 个字符
+     */
+    public static List<TextSegment> segments(int count, int chars, long seed) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from(markdown(chars, seed + i)));
+        }
+        return segments;
+    }
+
+    /**
+     * 由文本内容确定性地生成单位向量，相同文本总是得到相同向量
+     */
+    public static Embedding embedding(String text, int dimension) {
+        Random random = new Random(text.hashCode());
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return Embedding.from(vector);
+    }
+
+    /**
+     * 生成聚类分布的单位向量：先随机生成 clusters 个中心，每个向量为随机中心加高斯噪声。
+     * 真实文本向量同样成簇分布，比各向同性的随机向量更能反映近似检索的召回率
+     */
+    public static List<Embedding> clusteredEmbeddings(int count, int dimension, int clusters, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[clusters][dimension];
+        for (float[] center : centers) {
+            for (int d = 0; d < dimension; d++) {
+                center[d] = (float) random.nextGaussian();
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] center = centers[random.nextInt(clusters)];
+            float[] vector = new float[dimension];
+            double norm = 0;
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = center[d] + (float) (random.nextGaussian() * 0.6);
+                norm += vector[d] * vector[d];
+            }
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int d = 0; d < dimension; d++) {
+                vector[d] *= scale;
+            }
+            embeddings.add(Embedding.from(vector));
+        }
+        return embeddings;
+    }
+}
@@ -0,0 +1,140 @@
+package com.anner.embed.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.model.Task;
+import com.anner.embed.pipeline.AdaptiveRateLimiter;
+import com.anner.embed.pipeline.BatchEmbedder;
+import com.anner.embed.pipeline.ChunkingStage;
+import com.anner.embed.pipeline.EmbeddingPipeline;
+import com.anner.embed.pipeline.PipelineMetrics;
+import com.anner.embed.pipeline.ResilientBatchEmbedder;
+import com.anner.embed.pipeline.SourceDocument;
+import com.anner.embed.util.EmbeddingBatcher;
+import com.anner.embed.util.FileProcessor;
+import com.anner.embed.vector.BinaryVectorWriter;
+import com.anner.embed.vector.VectorOutput;
+
+import dev.langchain4j.data.segment.TextSegment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 端到端吞吐：与 EmbeddingServiceImpl 相同的组装方式（并行分段 → 批次切分 → 限流重试 → 并发向量化 → 顺序写出），
+ * 向量化使用本地确定性模型并模拟服务端延迟，用于发现流水线调度与写出环节的性能回退
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class EmbeddingPipelineBenchmark {
+    private static final int DOCUMENTS = 200;
+    private static final int DOCUMENT_CHARS = 4000;
+
+    @Param({ "0", "5000" })
+    private long latencyMicros;
+
+    @Param({ "1", "8" })
+    private int concurrency;
+
+    @Param({ "1024" })
+    private int dimension;
+
+    private final List<String> contents = new ArrayList<>();
+    private StubEmbeddingModel model;
+    private ForkJoinPool chunkExecutor;
+    private ExecutorService batchExecutor;
+    private PipelineMetrics metrics;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        for (int i = 0; i < DOCUMENTS; i++) {
+            contents.add(BenchmarkData.markdown(DOCUMENT_CHARS, i));
+        }
+        model = new StubEmbeddingModel(dimension, latencyMicros, latencyMicros / 5);
+        chunkExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        batchExecutor = Executors.newFixedThreadPool(concurrency);
+        metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        directory = Files.createTempDirectory("fast-embed-bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        chunkExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+        Files.deleteIfExists(directory.resolve("vectors.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long generateEmbeddings() {
+        Task task = new Task("bench", "bench.zip", "stub");
+        BatchEmbedder embedder = new ResilientBatchEmbedder(model,
+                new AdaptiveRateLimiter(concurrency, concurrency, 0), new EmbedProperties.Retry(), task,
+                () -> false, metrics.forModel("stub"));
+        VectorOutput output = new BinaryVectorWriter(directory.resolve("vectors.bin"));
+        AtomicLong written = new AtomicLong();
+        EmbeddingPipeline pipeline = new EmbeddingPipeline(task.getId(), embedder, batchExecutor, concurrency,
+                () -> false, (embeddings, batch) -> {
+                    output.append(embeddings, batch);
+                    written.addAndGet(batch.size());
+                });
+
+        List<SourceDocument> documents = new ArrayList<>(contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            String content = contents.get(i);
+            documents.add(new SourceDocument("doc-" + i + ".md", () -> content));
+        }
+        EmbeddingBatcher batcher = new EmbeddingBatcher(32, 8000, FileProcessor.defaultTokenizer());
+        try (ChunkingStage chunking = new ChunkingStage(documents.iterator(), 512, 20, chunkExecutor, 64,
+                metrics)) {
+            ChunkingStage.ChunkResult result;
+            while ((result = chunking.next()) != null) {
+                for (TextSegment segment : result.segments()) {
+                    List<TextSegment> batch = batcher.add(segment);
+                    if (batch != null) {
+                        pipeline.submit(batch);
+                    }
+                }
+            }
+            List<TextSegment> last = batcher.flush();
+            if (last != null) {
+                pipeline.submit(last);
+            }
+            pipeline.await();
+        } catch (RuntimeException e) {
+            pipeline.abort();
+            output.abort();
+            throw e;
+        }
+        output.commit();
+        return written.get();
+    }
+}
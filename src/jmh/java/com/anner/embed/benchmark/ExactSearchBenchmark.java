@@ -0,0 +1,127 @@
+package com.anner.embed.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.anner.embed.search.DotProduct;
+import com.anner.embed.search.MappedVectorIndex;
+import com.anner.embed.vector.BinaryVectorWriter;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * 精确 topK 检索的单次查询延迟：langchain4j 的 InMemoryEmbeddingStore 与内存映射矩阵上的
+ * 标量点积、SIMD 点积以及 SIMD 加 ForkJoin 并行扫描对比。SIMD 需以 --add-modules jdk.incubator.vector 运行，
+ * 构建脚本已为 jmh 任务添加该参数。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/11
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExactSearchBenchmark {
+    private static final int QUERIES = 64;
+    private static final int TOP_K = 10;
+    private static final int BATCH_SIZE = 256;
+
+    @Param({ "IN_MEMORY_STORE", "SCALAR", "SIMD", "SIMD_PARALLEL" })
+    private String engine;
+
+    @Param({ "10000", "50000" })
+    private int count;
+
+    @Param({ "1024" })
+    private int dimension;
+
+    private Path directory;
+    private InMemoryEmbeddingStore<TextSegment> store;
+    private MappedVectorIndex index;
+    private ForkJoinPool pool;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Embedding> embeddings = BenchmarkData.clusteredEmbeddings(count + QUERIES, dimension, 100, 13);
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = embeddings.get(count + i).vector();
+        }
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from("segment " + i));
+        }
+        if ("IN_MEMORY_STORE".equals(engine)) {
+            store = new InMemoryEmbeddingStore<>();
+            store.addAll(embeddings.subList(0, count), segments);
+            return;
+        }
+
+        directory = Files.createTempDirectory("fast-embed-search-bench");
+        Path vectorPath = directory.resolve("vectors.bin");
+        BinaryVectorWriter writer = new BinaryVectorWriter(vectorPath);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            int end = Math.min(count, start + BATCH_SIZE);
+            writer.append(embeddings.subList(start, end), segments.subList(start, end));
+        }
+        writer.commit();
+        DotProduct dotProduct = "SCALAR".equals(engine) ? DotProduct.scalar() : DotProduct.preferred();
+        if (!"SCALAR".equals(engine) && "scalar".equals(dotProduct.name())) {
+            System.out.println("\n未加载 jdk.incubator.vector，SIMD 结果实际为标量实现");
+        }
+        pool = "SIMD_PARALLEL".equals(engine) ? new ForkJoinPool() : null;
+        index = MappedVectorIndex.open(vectorPath, dotProduct, pool);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Object search() {
+        float[] query = queries[next];
+        next = (next + 1) % QUERIES;
+        if (store != null) {
+            return store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(query))
+                    .maxResults(TOP_K)
+                    .build()).matches();
+        }
+        return index.search(query, TOP_K);
+    }
+}
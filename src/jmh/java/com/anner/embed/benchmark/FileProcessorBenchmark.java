@@ -0,0 +1,87 @@
+package com.anner.embed.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.anner.embed.util.FileProcessor;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModelName;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+
+/**
+ * 单个文件的分段开销：对比每个文件新建分词器和分段器与复用缓存分段器，
+ * 以及 processFile 在不同文件大小和分段参数下的耗时
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileProcessorBenchmark {
+
+    @Param({ "200", "2000", "20000" })
+    private int fileChars;
+
+    @Param({ "256", "1000" })
+    private int maxTokensPerChunk;
+
+    @Param({ "10", "50" })
+    private int overlapTokens;
+
+    private byte[] content;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        content = BenchmarkData.markdown(fileChars, 42).getBytes(StandardCharsets.UTF_8);
+        file = Files.createTempFile("fast-embed-bench", ".md");
+        Files.write(file, content);
+        // 预热缓存，使 cached 基准只衡量稳态开销
+        FileProcessor.splitter(maxTokensPerChunk, overlapTokens, FileProcessor.defaultTokenizer());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<TextSegment> freshSplitterPerFile() {
+        // 优化前的行为：每个文件都重新加载 BPE 编码并创建分段器
+        DocumentSplitter splitter = DocumentSplitters.recursive(maxTokensPerChunk, overlapTokens,
+                new OpenAiTokenizer(OpenAiEmbeddingModelName.TEXT_EMBEDDING_ADA_002));
+        return splitter.split(Document.from(new String(content, StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public List<TextSegment> cachedSplitter() throws IOException {
+        return FileProcessor.processStream(new ByteArrayInputStream(content), maxTokensPerChunk, overlapTokens);
+    }
+
+    @Benchmark
+    public List<TextSegment> processFile() throws IOException {
+        return FileProcessor.processFile(new File(file.toString()), maxTokensPerChunk, overlapTokens);
+    }
+}
@@ -0,0 +1,143 @@
+package com.anner.embed.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.search.HnswIndexBuilder;
+import com.anner.embed.search.HnswVectorIndex;
+import com.anner.embed.search.MappedVectorIndex;
+import com.anner.embed.vector.BinaryVectorWriter;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * HNSW 近似检索与精确检索在同一份数据上的查询延迟对比。召回率（HNSW 的 topK 中属于精确 topK 的比例）
+ * 在准备阶段计算并打印到基准输出中，构建耗时同样打印。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HnswSearchBenchmark {
+    private static final int QUERIES = 200;
+    private static final int TOP_K = 10;
+    private static final int BATCH_SIZE = 256;
+
+    @Param({ "10000", "50000" })
+    private int count;
+
+    @Param({ "256" })
+    private int dimension;
+
+    @Param({ "16" })
+    private int m;
+
+    @Param({ "200" })
+    private int efConstruction;
+
+    @Param({ "32", "128" })
+    private int efSearch;
+
+    private Path directory;
+    private MappedVectorIndex exact;
+    private HnswVectorIndex hnsw;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fast-embed-hnsw-bench");
+        List<Embedding> embeddings = BenchmarkData.clusteredEmbeddings(count + QUERIES, dimension, 100, 11);
+        Path vectorPath = directory.resolve("vectors.bin");
+        BinaryVectorWriter writer = new BinaryVectorWriter(vectorPath);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            int end = Math.min(count, start + BATCH_SIZE);
+            List<TextSegment> segments = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                segments.add(TextSegment.from("segment " + i));
+            }
+            writer.append(embeddings.subList(start, end), segments);
+        }
+        writer.commit();
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = embeddings.get(count + i).vector();
+        }
+
+        Path indexPath = directory.resolve("vectors.hnsw");
+        long start = System.currentTimeMillis();
+        new HnswIndexBuilder(m, efConstruction).build(vectorPath, indexPath);
+        System.out.printf("%nHNSW 构建耗时 %dms，索引文件 %d KB%n", System.currentTimeMillis() - start,
+                Files.size(indexPath) / 1024);
+
+        exact = MappedVectorIndex.open(vectorPath);
+        hnsw = HnswVectorIndex.open(vectorPath, indexPath, efSearch);
+        System.out.printf("recall@%d = %.4f（efSearch=%d）%n", TOP_K, recall(), efSearch);
+    }
+
+    private double recall() {
+        long hits = 0;
+        for (float[] query : queries) {
+            Set<String> expected = new HashSet<>();
+            for (SearchMatch match : exact.search(query, TOP_K)) {
+                expected.add(match.getId());
+            }
+            for (SearchMatch match : hnsw.search(query, TOP_K)) {
+                if (expected.contains(match.getId())) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / ((long) QUERIES * TOP_K);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        exact.close();
+        hnsw.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private float[] nextQuery() {
+        float[] query = queries[next];
+        next = (next + 1) % QUERIES;
+        return query;
+    }
+
+    @Benchmark
+    public List<SearchMatch> exactSearch() {
+        return exact.search(nextQuery(), TOP_K);
+    }
+
+    @Benchmark
+    public List<SearchMatch> hnswSearch() {
+        return hnsw.search(nextQuery(), TOP_K);
+    }
+}
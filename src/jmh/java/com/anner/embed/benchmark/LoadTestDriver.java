@@ -0,0 +1,240 @@
+package com.anner.embed.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 压测驱动：并发提交 /api/embedding/process 任务并等待结束，统计任务吞吐、任务耗时分位数，
+ * 以及模拟接口返回的向量条数。需要服务以 mock profile 启动，例如：
+ *
+ * <pre>
+ * ./gradlew bootRun --args='--spring.profiles.active=mock'
+ * ./gradlew loadTest -PloadTestArgs="--tasks=50 --concurrency=8"
+ * </pre>
+ *
+ * 参数均为 --name=value 形式：target、baseUrl、modelType、apiKey、tasks、concurrency、files、chars、
+ * maxTokensPerChunk、overlapTokens、embeddingConcurrency、outputFormat。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/5
+ */
+public class LoadTestDriver {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String MOCK_INPUTS_METRIC = "/actuator/metrics/fast_embed.mock.inputs";
+
+    private final Map<String, String> options;
+    private final String target;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private record TaskResult(String taskId, String status, long elapsedMillis, String error) {
+    }
+
+    private LoadTestDriver(Map<String, String> options) {
+        this.options = options;
+        this.target = option("target", "http://localhost:18080");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int index = arg.indexOf('=');
+                options.put(arg.substring(2, index), arg.substring(index + 1));
+            }
+        }
+        new LoadTestDriver(options).run();
+    }
+
+    private void run() throws Exception {
+        int tasks = intOption("tasks", 20);
+        int concurrency = intOption("concurrency", 4);
+        int files = intOption("files", 50);
+        int chars = intOption("chars", 4000);
+
+        // 每次运行、每个任务使用不同的种子，避免命中服务端的持久化向量缓存
+        long runSeed = System.nanoTime();
+        List<byte[]> archives = new ArrayList<>(tasks);
+        long uploadBytes = 0;
+        for (int i = 0; i < tasks; i++) {
+            byte[] archive = archive(files, chars, runSeed + (long) i * files);
+            archives.add(archive);
+            uploadBytes += archive.length;
+        }
+
+        System.out.printf("目标：%s，任务数：%d，并发：%d，每个压缩包 %d 个文件、每个文件约 %d 字符%n",
+                target, tasks, concurrency, files, chars);
+        double inputsBefore = mockInputs();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<TaskResult>> futures = new ArrayList<>(tasks);
+        for (byte[] archive : archives) {
+            futures.add(executor.submit(() -> runTask(archive)));
+        }
+        List<TaskResult> results = new ArrayList<>(tasks);
+        for (Future<TaskResult> future : futures) {
+            results.add(future.get());
+        }
+        executor.shutdown();
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        double inputs = mockInputs() - inputsBefore;
+        report(results, elapsedMillis, uploadBytes, inputs);
+    }
+
+    private TaskResult runTask(byte[] archive) {
+        long start = System.nanoTime();
+        try {
+            String taskId = submit(archive);
+            while (true) {
+                JsonNode task = getJson("/api/tasks/" + taskId).path("data");
+                String status = task.path("status").asText();
+                if ("COMPLETED".equals(status) || "FAILED".equals(status) || "CANCELLED".equals(status)) {
+                    return new TaskResult(taskId, status,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                            task.path("errorMessage").asText(null));
+                }
+                Thread.sleep(200);
+            }
+        } catch (Exception e) {
+            return new TaskResult(null, "ERROR", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    e.getMessage());
+        }
+    }
+
+    private String submit(byte[] archive) throws IOException, InterruptedException {
+        String boundary = "----fast-embed-" + UUID.randomUUID();
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("modelType", option("modelType", "mock-embedding"));
+        fields.put("baseUrl", option("baseUrl", target + "/mock/v1"));
+        fields.put("apiKey", option("apiKey", "mock"));
+        fields.put("maxTokensPerChunk", option("maxTokensPerChunk", "512"));
+        fields.put("overlapTokens", option("overlapTokens", "20"));
+        fields.put("outputFormat", option("outputFormat", "binary"));
+        if (options.containsKey("embeddingConcurrency")) {
+            fields.put("embeddingConcurrency", options.get("embeddingConcurrency"));
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(archive.length + 2048);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field.getKey()
+                    + "\"\r\n\r\n" + field.getValue() + "\r\n");
+        }
+        write(body, "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"load-test.zip\""
+                + "\r\nContent-Type: application/zip\r\n\r\n");
+        body.write(archive);
+        write(body, "\r\n--" + boundary + "--\r\n");
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/embedding/process"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        JsonNode response = MAPPER.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        if (!response.path("success").asBoolean()) {
+            throw new IOException("提交任务失败：" + response);
+        }
+        return response.path("data").path("taskId").asText();
+    }
+
+    private JsonNode getJson(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + path)).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("请求 " + path + " 失败，状态码：" + response.statusCode());
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    /**
+     * 读取模拟接口已返回的向量条数，服务未暴露该指标时返回 0
+     */
+    private double mockInputs() {
+        try {
+            for (JsonNode measurement : getJson(MOCK_INPUTS_METRIC).path("measurements")) {
+                if ("COUNT".equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+        } catch (Exception e) {
+            // 指标只在第一次请求后注册，忽略
+        }
+        return 0;
+    }
+
+    private static void report(List<TaskResult> results, long elapsedMillis, long uploadBytes, double inputs) {
+        List<Long> latencies = new ArrayList<>();
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        for (TaskResult result : results) {
+            statuses.merge(result.status(), 1, Integer::sum);
+            if ("COMPLETED".equals(result.status())) {
+                latencies.add(result.elapsedMillis());
+            } else {
+                System.out.printf("任务 %s 状态 %s：%s%n", result.taskId(), result.status(), result.error());
+            }
+        }
+        Collections.sort(latencies);
+        double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+
+        System.out.printf("总耗时：%.2fs，任务状态：%s%n", seconds, statuses);
+        System.out.printf("任务吞吐：%.2f 个/s，上传：%.2f MB/s%n", latencies.size() / seconds,
+                uploadBytes / 1024.0 / 1024.0 / seconds);
+        System.out.printf("向量吞吐：%.0f 条/s（共 %.0f 条）%n", inputs / seconds, inputs);
+        if (!latencies.isEmpty()) {
+            System.out.printf("任务耗时 p50：%dms，p95：%dms，max：%dms%n", percentile(latencies, 0.5),
+                    percentile(latencies, 0.95), latencies.get(latencies.size() - 1));
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private static byte[] archive(int files, int chars, long seed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < files; i++) {
+                zip.putNextEntry(new ZipEntry("doc-" + i + ".md"));
+                zip.write(BenchmarkData.markdown(chars, seed + i).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+}
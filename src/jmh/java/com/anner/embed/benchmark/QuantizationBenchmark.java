@@ -0,0 +1,117 @@
+package com.anner.embed.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.anner.embed.model.QuantizationReport;
+import com.anner.embed.model.QuantizationType;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.search.MappedVectorIndex;
+import com.anner.embed.search.QuantizedIndexBuilder;
+import com.anner.embed.search.QuantizedVectorIndex;
+import com.anner.embed.search.VectorIndex;
+import com.anner.embed.vector.BinaryVectorWriter;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 量化向量与原始向量上暴力检索的单次查询延迟对比。训练耗时、压缩比和召回率在准备阶段打印，
+ * 召回率以原始向量上的精确 top10 为基准。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuantizationBenchmark {
+    private static final int QUERIES = 64;
+    private static final int TOP_K = 10;
+    private static final int BATCH_SIZE = 256;
+
+    @Param({ "NONE", "SQ8", "PQ" })
+    private String quantization;
+
+    @Param({ "50000" })
+    private int count;
+
+    @Param({ "256" })
+    private int dimension;
+
+    @Param({ "8" })
+    private int subvectorDimension;
+
+    private Path directory;
+    private VectorIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fast-embed-quantization-bench");
+        List<Embedding> embeddings = BenchmarkData.clusteredEmbeddings(count + QUERIES, dimension, 100, 17);
+        Path vectorPath = directory.resolve("vectors.bin");
+        BinaryVectorWriter writer = new BinaryVectorWriter(vectorPath);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            int end = Math.min(count, start + BATCH_SIZE);
+            List<TextSegment> segments = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                segments.add(TextSegment.from("segment " + i));
+            }
+            writer.append(embeddings.subList(start, end), segments);
+        }
+        writer.commit();
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = embeddings.get(count + i).vector();
+        }
+
+        if ("NONE".equals(quantization)) {
+            index = MappedVectorIndex.open(vectorPath);
+            return;
+        }
+        QuantizationType type = QuantizationType.fromValue(quantization);
+        Path quantizedPath = directory.resolve("vectors." + type.suffix());
+        QuantizationReport report = new QuantizedIndexBuilder(10000, subvectorDimension, 8, 200)
+                .build(type, vectorPath, quantizedPath);
+        System.out.printf("%n%s 训练编码耗时 %dms，每条 %d 字节，压缩比 %.1f，recall@10 = %.4f%n", type,
+                report.getTrainingMillis(), report.getBytesPerVector(), report.getCompressionRatio(),
+                report.getRecallAt10());
+        index = QuantizedVectorIndex.open(vectorPath, quantizedPath, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<SearchMatch> search() {
+        float[] query = queries[next];
+        next = (next + 1) % QUERIES;
+        return index.search(query, TOP_K);
+    }
+}
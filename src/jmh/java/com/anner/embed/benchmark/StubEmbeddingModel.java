@@ -0,0 +1,56 @@
+package com.anner.embed.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * 本地确定性向量模型：按文本生成固定向量，并模拟服务端延迟（固定部分 + 均匀抖动）
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/4
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+    private final int dimension;
+    private final long latencyMicros;
+    private final long jitterMicros;
+
+    public StubEmbeddingModel(int dimension, long latencyMicros, long jitterMicros) {
+        this.dimension = dimension;
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        long delay = latencyMicros + (jitterMicros > 0 ? ThreadLocalRandom.current().nextLong(jitterMicros) : 0);
+        if (delay > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("stub model interrupted", e);
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>(textSegments.size());
+        int tokens = 0;
+        for (TextSegment segment : textSegments) {
+            embeddings.add(BenchmarkData.embedding(segment.text(), dimension));
+            tokens += segment.text().length() / 4;
+        }
+        return Response.from(embeddings, new TokenUsage(tokens));
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+}
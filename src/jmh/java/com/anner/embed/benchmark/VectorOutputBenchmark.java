@@ -0,0 +1,89 @@
+package com.anner.embed.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.anner.embed.vector.BinaryVectorWriter;
+import com.anner.embed.vector.StreamingJsonVectorWriter;
+import com.anner.embed.vector.VectorOutput;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 向量文件写出开销：按批次追加并提交完整文件，对比 JSON 与二进制格式
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VectorOutputBenchmark {
+    private static final int BATCH_SIZE = 32;
+
+    @Param({ "JSON", "BINARY" })
+    private String format;
+
+    @Param({ "2000", "20000" })
+    private int count;
+
+    @Param({ "1024" })
+    private int dimension;
+
+    private final List<List<TextSegment>> segmentBatches = new ArrayList<>();
+    private final List<List<Embedding>> embeddingBatches = new ArrayList<>();
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fast-embed-bench");
+        List<TextSegment> segments = BenchmarkData.segments(count, 400, 7);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            List<TextSegment> batch = segments.subList(start, Math.min(count, start + BATCH_SIZE));
+            List<Embedding> embeddings = new ArrayList<>(batch.size());
+            for (TextSegment segment : batch) {
+                embeddings.add(BenchmarkData.embedding(segment.text(), dimension));
+            }
+            segmentBatches.add(batch);
+            embeddingBatches.add(embeddings);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long writeAndCommit() throws IOException {
+        VectorOutput output = "BINARY".equals(format)
+                ? new BinaryVectorWriter(directory.resolve("vectors.bin"))
+                : new StreamingJsonVectorWriter(directory.resolve("vectors.json"));
+        for (int i = 0; i < segmentBatches.size(); i++) {
+            output.append(embeddingBatches.get(i), segmentBatches.get(i));
+        }
+        return Files.size(Path.of(output.commit()));
+    }
+}
@@ -1,5 +1,9 @@
 package com.anner.embed;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 
@@ -22,6 +26,30 @@ public class LLM {
                 .modelName(modelName)
                 .baseUrl(baseUrl)
                 .apiKey(apiKey)
+                // 重试由 ResilientBatchEmbedder 统一处理，避免与内置重试叠加放大请求量
+                .maxRetries(1)
+                .build();
+    }
+
+    /**
+     * Embedding模型，使用指定超时与 HTTP 版本的独立连接池。返回的模型线程安全，应在同一服务端配置的任务间共享
+     *
+     * @return Embedding模型
+     */
+    public static EmbeddingModel doubaoLLMEmbedding(String modelName, String baseUrl, String apiKey,
+            Duration connectTimeout, Duration readTimeout, boolean http2) {
+        HttpClient.Builder httpClient = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        return OpenAiEmbeddingModel.builder()
+                .modelName(modelName)
+                .baseUrl(baseUrl)
+                .apiKey(apiKey)
+                .httpClientBuilder(JdkHttpClient.builder()
+                        .httpClientBuilder(httpClient)
+                        .connectTimeout(connectTimeout)
+                        .readTimeout(readTimeout))
+                .timeout(readTimeout)
+                .maxRetries(1)
                 .build();
     }
 }
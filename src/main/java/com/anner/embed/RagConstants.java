@@ -25,4 +25,15 @@ public class RagConstants {
         // 重叠的token，防止语义割裂
         public final static int OVER_LAP_TOKENS = 10;
     }
+
+    public final static class EMBED_PARAMS {
+        // 单次 embedAll 请求最多携带的文本段数量
+        public final static int BATCH_SIZE = 32;
+
+        // 单次 embedAll 请求最多携带的 token 数，避免超过服务端单请求上限
+        public final static int MAX_TOKENS_PER_BATCH = 8000;
+
+        // 单个任务同时在途的 embedAll 请求数
+        public final static int CONCURRENCY = 8;
+    }
 }
@@ -0,0 +1,270 @@
+package com.anner.embed.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.anner.embed.model.QuantizationType;
+
+import lombok.Data;
+
+/**
+ * fast-embed 自定义配置项，对应 application.yml 中的 fast-embed 节点
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/24
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "fast-embed")
+public class EmbedProperties {
+
+    private Executor executor = new Executor();
+    private Scheduler scheduler = new Scheduler();
+    private Retry retry = new Retry();
+    private RateLimit rateLimit = new RateLimit();
+    private Extraction extraction = new Extraction();
+    private Upload upload = new Upload();
+    private Chunking chunking = new Chunking();
+    private Cache cache = new Cache();
+    private Dedup dedup = new Dedup();
+    private Checkpoint checkpoint = new Checkpoint();
+    private Tasks tasks = new Tasks();
+    private Events events = new Events();
+    private Client client = new Client();
+    private Search search = new Search();
+    private Mock mock = new Mock();
+
+    @Data
+    public static class Executor {
+        // 同时运行的任务线程数
+        private int taskPoolSize = 4;
+
+        // 所有任务共享的向量化批次线程数，即全局最大在途请求数
+        private int batchPoolSize = 32;
+
+        // 文本分段线程数，0 表示使用 CPU 核数
+        private int chunkPoolSize = 0;
+    }
+
+    @Data
+    public static class Scheduler {
+        // 同一服务端（baseUrl）同时运行的任务数上限，全局上限为 executor.task-pool-size，超出的任务排队等待
+        private int maxTasksPerProvider = 2;
+
+        // 不超过该大小的上传走快速通道立即运行，不参与排队；快速通道同时运行的任务数上限
+        private DataSize fastPathMaxSize = DataSize.ofMegabytes(1);
+        private int fastPathSlots = 2;
+    }
+
+    @Data
+    public static class Retry {
+        // 单个批次的最大尝试次数（含首次调用）
+        private int maxAttempts = 6;
+
+        // 指数退避的初始间隔、倍数和最大间隔，实际间隔会叠加随机抖动
+        private long initialIntervalMillis = 500;
+        private double multiplier = 2.0;
+        private long maxIntervalMillis = 30000;
+    }
+
+    @Data
+    public static class RateLimit {
+        // 同一 (baseUrl, apiKey) 的初始与最大在途请求数
+        private int initialConcurrency = 8;
+        private int maxConcurrency = 16;
+
+        // 遇到限流后暂停派发的时长，同一冷却期内上限只减半一次
+        private long cooldownMillis = 2000;
+    }
+
+    @Data
+    public static class Extraction {
+        // 请求未指定时的默认模式：true 表示直接从压缩包流式分段，不解压到磁盘
+        private boolean streaming = false;
+    }
+
+    @Data
+    public static class Upload {
+        // 单个压缩包的大小上限，同时用于 spring.servlet.multipart 的限制
+        private DataSize maxFileSize = DataSize.ofGigabytes(2);
+    }
+
+    @Data
+    public static class Chunking {
+        // 同时处于分段中或等待向量化的文档数上限，决定分段阶段的内存占用
+        private int queueCapacity = 64;
+    }
+
+    @Data
+    public static class Cache {
+        // 是否启用基于文本摘要的持久化向量缓存
+        private boolean enabled = true;
+
+        // 缓存文件目录，每个 (modelType, baseUrl) 一个只追加写入的文件
+        private String directory = "vectors/cache";
+
+        // 每个缓存空间的文件总大小上限（字节），新旧两代文件各占一半，写满后轮转并丢弃旧一代
+        private long maxBytes = 4L << 30;
+
+        // 每个缓存空间在内存索引中保留的最大条目数，与文件大小上限任一达到即轮转
+        private int maxEntries = 1_000_000;
+    }
+
+    @Data
+    public static class Dedup {
+        // 是否在任务内对相同文本去重
+        private boolean enabled = true;
+
+        // 用于去重的最近文本数量上限（只记录文本摘要，向量仅为待填充的重复段保留），超出后较早的文本再次出现时会重新向量化
+        private int maxEntries = 200000;
+    }
+
+    @Data
+    public static class Checkpoint {
+        // 是否在向量化过程中定期保存检查点，失败的任务可从检查点恢复
+        private boolean enabled = true;
+
+        // 两次检查点之间的最短间隔
+        private long intervalMillis = 10000;
+    }
+
+    @Data
+    public static class Tasks {
+        // 内存中缓存的已结束任务数量，运行中的任务始终在内存中
+        private int cacheSize = 200;
+
+        // 已结束任务在内存缓存中的最长保留时间，超时后只保留在存储中，再次访问时重新加载
+        private long cacheTtlMillis = 1800000;
+
+        // 检查内存缓存中超时任务的间隔
+        private long evictIntervalMillis = 60000;
+
+        // 已结束任务在存储中的保留天数，超期后删除任务记录及其向量文件、索引文件和上传文件；0 表示永久保留
+        private int retentionDays = 0;
+
+        // 运行中任务进度写回存储的间隔
+        private long flushIntervalMillis = 5000;
+
+        // 清理过期任务的间隔，仅在 retention-days 大于 0 时生效
+        private long purgeIntervalMillis = 3600000;
+    }
+
+    @Data
+    public static class Events {
+        // 任务事件的最小推送间隔，同一任务在一个间隔内的多次变化合并为一次推送
+        private long minIntervalMillis = 500;
+
+        // 心跳间隔，用于及时发现已断开的订阅
+        private long heartbeatIntervalMillis = 15000;
+
+        // 单个订阅连接的超时时间，超时后客户端会自动重连
+        private long emitterTimeoutMillis = 1800000;
+    }
+
+    @Data
+    public static class Client {
+        // 向量化服务的连接超时与单次请求的读取超时
+        private long connectTimeoutMillis = 10000;
+        private long readTimeoutMillis = 60000;
+
+        // 是否优先使用 HTTP/2，服务端支持时多个在途请求复用同一连接
+        private boolean http2 = true;
+
+        // 缓存的客户端数量上限，以及客户端和限流器空闲多久后移除
+        private int maxClients = 32;
+        private long idleTimeoutMillis = 600000;
+        private long evictIntervalMillis = 60000;
+    }
+
+    @Data
+    public static class Search {
+        // 已加载检索索引的内存预算（含内存映射的向量文件），超出后移除最久未使用的索引
+        private DataSize memoryBudget = DataSize.ofGigabytes(2);
+
+        // 未指定 topK 时的返回条数，以及允许的最大 topK
+        private int defaultTopK = 10;
+        private int maxTopK = 100;
+
+        // 精确检索并行扫描的线程数，0 表示使用 CPU 核数
+        private int parallelism = 0;
+
+        private Hnsw hnsw = new Hnsw();
+        private Ivf ivf = new Ivf();
+        private Quantization quantization = new Quantization();
+    }
+
+    @Data
+    public static class Hnsw {
+        // 任务完成后是否为二进制向量文件构建 HNSW 索引，构建后检索使用近似最近邻，否则逐行精确计算
+        private boolean enabled = false;
+
+        // 向量数少于该值时不构建索引，精确检索已足够快
+        private int minVectors = 10000;
+
+        // 上层每个节点的最大邻居数（第 0 层为 2m），越大召回率越高，索引越大、构建越慢
+        private int m = 16;
+
+        // 构建时每次插入搜索的候选数
+        private int efConstruction = 200;
+
+        // 查询时保留的候选数，不小于 topK；越大召回率越高、延迟越高
+        private int efSearch = 64;
+    }
+
+    @Data
+    public static class Ivf {
+        // 任务完成后是否为二进制向量文件构建 IVF 倒排索引，堆内只保存聚类中心，适合超出内存的大任务
+        private boolean enabled = false;
+
+        // 向量数少于该值时不构建索引
+        private int minVectors = 100000;
+
+        // 聚类中心（倒排表）数，0 表示取向量数的平方根
+        private int lists = 0;
+
+        // 训练聚类中心使用的样本数和 k-means 最大迭代次数
+        private int sampleSize = 20000;
+        private int trainIterations = 10;
+
+        // 每次查询扫描的倒排表数，越大召回率越高、延迟越高
+        private int nprobe = 16;
+    }
+
+    @Data
+    public static class Quantization {
+        // 任务请求了量化输出时，从二进制向量文件中抽取的训练样本数
+        private int sampleSize = 10000;
+
+        // 乘积量化每个子空间的维数，每个子空间编码为 1 字节；越小召回率越高、编码越长
+        private int subvectorDimension = 8;
+
+        // 乘积量化 k-means 的最大迭代次数
+        private int trainIterations = 8;
+
+        // 测量召回率使用的查询数，0 表示不测量
+        private int evaluationQueries = 100;
+
+        // 检索时优先使用的量化向量（sq8 或 pq），任务没有该输出时仍使用原始向量；为空时总是使用原始向量
+        private QuantizationType searchType;
+    }
+
+    @Data
+    public static class Mock {
+        // 以下配置仅在启用 mock profile 时生效，用于压测的本地 /mock/v1/embeddings 接口
+        // 请求未指定 dimensions 时返回的向量维度
+        private int dimension = 1024;
+
+        // 响应延迟 = 固定延迟 + 按输入条数累加的延迟 + 均值为 tailLatencyMillis 的指数分布长尾，上限为 maxLatencyMillis
+        private long latencyMillis = 50;
+        private long latencyPerInputMicros = 200;
+        private long tailLatencyMillis = 30;
+        private long maxLatencyMillis = 5000;
+
+        // 返回 500 与 429 的概率，429 响应携带 Retry-After
+        private double errorRate = 0.0;
+        private double throttleRate = 0.0;
+        private int retryAfterSeconds = 1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.anner.embed.config;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 向量化任务使用的线程池，避免占用公共 ForkJoinPool
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/24
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String TASK_EXECUTOR = "embeddingTaskExecutor";
+    public static final String BATCH_EXECUTOR = "embeddingBatchExecutor";
+    public static final String CHUNK_EXECUTOR = "embeddingChunkExecutor";
+    public static final String SEARCH_EXECUTOR = "vectorSearchExecutor";
+    public static final String EVENT_EXECUTOR = "taskEventExecutor";
+
+    @Bean(name = TASK_EXECUTOR)
+    public ThreadPoolTaskExecutor embeddingTaskExecutor(EmbedProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("embed-task-");
+        // 排队由 EmbeddingTaskScheduler 控制，线程数额外包含快速通道的名额，小任务不会在线程池中等待
+        int poolSize = properties.getExecutor().getTaskPoolSize() + properties.getScheduler().getFastPathSlots();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = BATCH_EXECUTOR)
+    public ThreadPoolTaskExecutor embeddingBatchExecutor(EmbedProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("embed-batch-");
+        executor.setCorePoolSize(properties.getExecutor().getBatchPoolSize());
+        executor.setMaxPoolSize(properties.getExecutor().getBatchPoolSize());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = EVENT_EXECUTOR)
+    public ThreadPoolTaskExecutor taskEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("task-event-");
+        // 单线程推送，同一连接上的事件保持顺序，慢连接不会占用定时任务线程
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = CHUNK_EXECUTOR, destroyMethod = "shutdownNow")
+    public ForkJoinPool embeddingChunkExecutor(EmbedProperties properties) {
+        int parallelism = properties.getExecutor().getChunkPoolSize() > 0
+                ? properties.getExecutor().getChunkPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("embed-chunk-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @Bean(name = SEARCH_EXECUTOR, destroyMethod = "shutdownNow")
+    public ForkJoinPool vectorSearchExecutor(EmbedProperties properties) {
+        int parallelism = properties.getSearch().getParallelism() > 0
+                ? properties.getSearch().getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("vector-search-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -1,12 +1,18 @@
 package com.anner.embed.controller;
 
-import com.anner.embed.LLM;
+import com.anner.embed.RagConstants;
+import com.anner.embed.config.EmbedProperties;
 import com.anner.embed.exception.RagErrorCode;
 import com.anner.embed.exception.RagException;
 import com.anner.embed.model.ApiResponse;
 import com.anner.embed.model.EmbeddingConfig;
+import com.anner.embed.model.QuantizationReport;
+import com.anner.embed.model.QuantizationType;
 import com.anner.embed.model.Task;
 import com.anner.embed.model.Task.TaskStatus;
+import com.anner.embed.model.TaskPriority;
+import com.anner.embed.model.VectorFileFormat;
+import com.anner.embed.pipeline.EmbeddingModelRegistry;
 import com.anner.embed.service.EmbeddingService;
 import com.anner.embed.service.TaskService;
 import dev.langchain4j.model.embedding.EmbeddingModel;
@@ -38,6 +44,8 @@ import java.util.zip.ZipInputStream;
 public class EmbeddingController {
     private final EmbeddingService embeddingService;
     private final TaskService taskService;
+    private final EmbeddingModelRegistry embeddingModelRegistry;
+    private final EmbedProperties properties;
 
     @PostMapping("/process")
     public ApiResponse<Map<String, String>> processEmbedding(
@@ -46,7 +54,14 @@ public class EmbeddingController {
             @RequestParam("baseUrl") String baseUrl,
             @RequestParam("apiKey") String apiKey,
             @RequestParam("maxTokensPerChunk") Integer maxTokensPerChunk,
-            @RequestParam("overlapTokens") Integer overlapTokens) {
+            @RequestParam("overlapTokens") Integer overlapTokens,
+            @RequestParam(value = "embeddingBatchSize", required = false) Integer embeddingBatchSize,
+            @RequestParam(value = "maxTokensPerBatch", required = false) Integer maxTokensPerBatch,
+            @RequestParam(value = "embeddingConcurrency", required = false) Integer embeddingConcurrency,
+            @RequestParam(value = "streamingExtraction", required = false) Boolean streamingExtraction,
+            @RequestParam(value = "outputFormat", required = false) String outputFormat,
+            @RequestParam(value = "priority", required = false) String priority,
+            @RequestParam(value = "quantization", required = false) String quantization) {
         try {
             if (maxTokensPerChunk == null || maxTokensPerChunk <= 0) {
                 return ApiResponse.error(RagErrorCode.INVALID_PARAMETER.getCode(),
@@ -58,6 +73,27 @@ public class EmbeddingController {
                         RagErrorCode.INVALID_PARAMETER.getMessage(),
                         "overlapTokens不能小于0，当前值：" + overlapTokens);
             }
+            if (embeddingBatchSize == null) {
+                embeddingBatchSize = RagConstants.EMBED_PARAMS.BATCH_SIZE;
+            } else if (embeddingBatchSize <= 0) {
+                return ApiResponse.error(RagErrorCode.INVALID_PARAMETER.getCode(),
+                        RagErrorCode.INVALID_PARAMETER.getMessage(),
+                        "embeddingBatchSize必须大于0，当前值：" + embeddingBatchSize);
+            }
+            if (maxTokensPerBatch == null) {
+                maxTokensPerBatch = RagConstants.EMBED_PARAMS.MAX_TOKENS_PER_BATCH;
+            } else if (maxTokensPerBatch <= 0) {
+                return ApiResponse.error(RagErrorCode.INVALID_PARAMETER.getCode(),
+                        RagErrorCode.INVALID_PARAMETER.getMessage(),
+                        "maxTokensPerBatch必须大于0，当前值：" + maxTokensPerBatch);
+            }
+            if (embeddingConcurrency == null) {
+                embeddingConcurrency = RagConstants.EMBED_PARAMS.CONCURRENCY;
+            } else if (embeddingConcurrency <= 0) {
+                return ApiResponse.error(RagErrorCode.INVALID_PARAMETER.getCode(),
+                        RagErrorCode.INVALID_PARAMETER.getMessage(),
+                        "embeddingConcurrency必须大于0，当前值：" + embeddingConcurrency);
+            }
 
             // 检查文件类型
             String originalFilename = file.getOriginalFilename();
@@ -70,11 +106,13 @@ public class EmbeddingController {
             }
 
             // 检查文件大小
-            if (file.getSize() > 100 * 1024 * 1024) { // 100MB
+            long maxFileSize = properties.getUpload().getMaxFileSize().toBytes();
+            if (file.getSize() > maxFileSize) {
                 return ApiResponse.error(
                         "1003", // FILE_TOO_LARGE
                         "文件大小超过限制",
-                        String.format("文件大小不能超过100MB，当前大小：%dMB。\n请压缩文件后重试。", file.getSize() / 1024 / 1024));
+                        String.format("文件大小不能超过%dMB，当前大小：%dMB。\n请压缩文件后重试。",
+                                maxFileSize / 1024 / 1024, file.getSize() / 1024 / 1024));
             }
 
             // 检查API配置
@@ -99,6 +137,14 @@ public class EmbeddingController {
             config.setApiKey(apiKey);
             config.setMaxTokensPerChunk(maxTokensPerChunk);
             config.setOverlapTokens(overlapTokens);
+            config.setEmbeddingBatchSize(embeddingBatchSize);
+            config.setMaxTokensPerBatch(maxTokensPerBatch);
+            config.setEmbeddingConcurrency(embeddingConcurrency);
+            config.setStreamingExtraction(streamingExtraction != null ? streamingExtraction
+                    : properties.getExtraction().isStreaming());
+            config.setOutputFormat(VectorFileFormat.fromValue(outputFormat));
+            config.setPriority(TaskPriority.fromValue(priority));
+            config.setQuantization(QuantizationType.parse(quantization));
 
             // 创建任务并获取任务ID
             Task task = taskService.createTask(file.getOriginalFilename(), modelType);
@@ -169,9 +215,10 @@ public class EmbeddingController {
     }
 
     @GetMapping("/download/{taskId}")
-    public ResponseEntity<Resource> downloadVectorFile(@PathVariable String taskId) {
+    public ResponseEntity<Resource> downloadVectorFile(@PathVariable String taskId,
+            @RequestParam(value = "format", required = false) String format) {
         try {
-            log.debug("开始处理向量文件下载请求，taskId: {}", taskId);
+            log.debug("开始处理向量文件下载请求，taskId: {}，格式：{}", taskId, format);
             Task task = taskService.getTask(taskId);
 
             if (task == null) {
@@ -184,7 +231,20 @@ public class EmbeddingController {
                                 task.getStatus(), taskId));
             }
 
-            File vectorFile = new File(task.getVectorFilePath());
+            // format 为 sq8/pq 时下载量化向量文件，行号与二进制向量文件一致
+            QuantizationReport quantized = findQuantizedOutput(task, format);
+            // 未指定格式时优先下载 JSON 文件，任务只生成了二进制文件时下载二进制文件
+            boolean binary = quantized != null || (format != null && !format.isBlank()
+                    ? VectorFileFormat.fromValue(format) == VectorFileFormat.BINARY
+                    : task.getVectorFilePath() == null);
+            String vectorFilePath = quantized != null ? quantized.getFilePath()
+                    : binary ? task.getBinaryVectorFilePath() : task.getVectorFilePath();
+            if (vectorFilePath == null) {
+                throw new RagException(RagErrorCode.FILE_NOT_FOUND,
+                        String.format("任务未生成%s格式的向量文件，taskId: %s", binary ? "二进制" : "JSON", taskId));
+            }
+
+            File vectorFile = new File(vectorFilePath);
             if (!vectorFile.exists() || !vectorFile.canRead()) {
                 throw new RagException(RagErrorCode.FILE_NOT_FOUND,
                         String.format("向量化文件不存在或不可读。文件路径：%s，taskId: %s",
@@ -192,13 +252,16 @@ public class EmbeddingController {
             }
 
             Resource resource = new FileSystemResource(vectorFile);
-            String filename = task.getFileName().replaceAll("[^a-zA-Z0-9.-]", "_") + "_vectors.json";
+            String filename = task.getFileName().replaceAll("[^a-zA-Z0-9.-]", "_")
+                    + (quantized != null ? "_vectors." + quantized.getType().suffix()
+                            : binary ? "_vectors.bin" : "_vectors.json");
 
             log.debug("准备下载文件：{}，大小：{} bytes", filename, vectorFile.length());
 
             return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_JSON)
+                    .contentType(binary ? MediaType.APPLICATION_OCTET_STREAM : MediaType.APPLICATION_JSON)
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                    .contentLength(vectorFile.length())
                     .body(resource);
         } catch (RagException e) {
             log.error("下载文件失败: {}", e.getMessage(), e);
@@ -210,6 +273,28 @@ public class EmbeddingController {
         }
     }
 
+    /**
+     * format 为量化类型时返回任务对应的量化输出，不是量化类型时返回 null
+     */
+    private QuantizationReport findQuantizedOutput(Task task, String format) {
+        QuantizationType type = null;
+        for (QuantizationType candidate : QuantizationType.values()) {
+            if (candidate.suffix().equalsIgnoreCase(format != null ? format.trim() : null)) {
+                type = candidate;
+            }
+        }
+        if (type == null) {
+            return null;
+        }
+        for (QuantizationReport report : task.getQuantizationReports()) {
+            if (report.getType() == type) {
+                return report;
+            }
+        }
+        throw new RagException(RagErrorCode.FILE_NOT_FOUND,
+                String.format("任务未生成%s量化向量文件，taskId: %s", type, task.getId()));
+    }
+
     @PostMapping("/test")
     public ApiResponse<Map<String, Object>> testConfig(
             @RequestParam("file") MultipartFile file,
@@ -218,7 +303,7 @@ public class EmbeddingController {
             @RequestParam("apiKey") String apiKey) {
         try {
             // 1. 测试 API 连接
-            EmbeddingModel model = LLM.doubaoLLMEmbedding(modelType, baseUrl, apiKey);
+            EmbeddingModel model = embeddingModelRegistry.modelFor(modelType, baseUrl, apiKey);
             String testText = "测试文本";
             model.embed(testText);
 
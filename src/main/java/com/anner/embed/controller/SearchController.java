@@ -0,0 +1,28 @@
+package com.anner.embed.controller;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.anner.embed.model.ApiResponse;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.model.SearchRequest;
+import com.anner.embed.service.SearchService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+    private final SearchService searchService;
+
+    @PostMapping("/{taskId}")
+    public ApiResponse<List<SearchMatch>> search(@PathVariable String taskId, @RequestBody SearchRequest request) {
+        return ApiResponse.success(searchService.search(taskId, request));
+    }
+}
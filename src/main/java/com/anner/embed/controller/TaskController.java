@@ -1,15 +1,22 @@
 package com.anner.embed.controller;
 
-import java.util.List;
-
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
 import com.anner.embed.model.ApiResponse;
+import com.anner.embed.model.PageResult;
 import com.anner.embed.model.Task;
+import com.anner.embed.model.Task.TaskStatus;
+import com.anner.embed.service.EmbeddingService;
+import com.anner.embed.service.TaskEventService;
 import com.anner.embed.service.TaskService;
 
 import lombok.RequiredArgsConstructor;
@@ -19,10 +26,24 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class TaskController {
     private final TaskService taskService;
+    private final EmbeddingService embeddingService;
+    private final TaskEventService taskEventService;
+
+    private static final int MAX_PAGE_SIZE = 100;
 
     @GetMapping
-    public ApiResponse<List<Task>> getAllTasks() {
-        return ApiResponse.success(taskService.getAllTasks());
+    public ApiResponse<PageResult<Task>> listTasks(
+            @RequestParam(value = "status", required = false) TaskStatus status,
+            @RequestParam(value = "page", defaultValue = "1") int page,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        if (page < 1) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "page必须大于0，当前值：" + page);
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new RagException(RagErrorCode.PARAMETER_OUT_OF_RANGE,
+                    "size必须在1到" + MAX_PAGE_SIZE + "之间，当前值：" + size);
+        }
+        return ApiResponse.success(taskService.listTasks(status, page, size));
     }
 
     @GetMapping("/{taskId}")
@@ -30,9 +51,29 @@ public class TaskController {
         return ApiResponse.success(taskService.getTask(taskId));
     }
 
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeAll() {
+        return taskEventService.subscribeAll();
+    }
+
+    @GetMapping(value = "/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable String taskId) {
+        Task task = taskService.getTask(taskId);
+        if (task == null) {
+            throw new RagException(RagErrorCode.TASK_NOT_FOUND, "任务不存在，taskId: " + taskId);
+        }
+        return taskEventService.subscribe(task);
+    }
+
     @PostMapping("/{taskId}/cancel")
     public ApiResponse<Void> cancelTask(@PathVariable String taskId) {
         taskService.cancelTask(taskId);
         return ApiResponse.success();
     }
+
+    @PostMapping("/{taskId}/resume")
+    public ApiResponse<Void> resumeTask(@PathVariable String taskId, @RequestParam("apiKey") String apiKey) {
+        embeddingService.resumeEmbedding(taskId, apiKey);
+        return ApiResponse.success();
+    }
 }
\ No newline at end of file
@@ -46,7 +46,14 @@ public enum RagErrorCode {
     TASK_NOT_FOUND("7001", "任务不存在"),
     TASK_CANCELLED("7002", "任务已取消"),
     TASK_ALREADY_COMPLETED("7003", "任务已完成"),
-    TASK_ALREADY_CANCELLED("7004", "任务已被取消");
+    TASK_ALREADY_CANCELLED("7004", "任务已被取消"),
+    TASK_NOT_RESUMABLE("7005", "任务无法恢复"),
+
+    // 检索相关错误 (8000-8999)
+    INDEX_NOT_AVAILABLE("8001", "向量索引不可用"),
+    INDEX_LOAD_FAILED("8002", "向量索引加载失败"),
+    DIMENSION_MISMATCH("8003", "查询向量维度不匹配"),
+    INDEX_BUILD_FAILED("8004", "向量索引构建失败");
 
     private final String code;
     private final String message;
@@ -0,0 +1,183 @@
+package com.anner.embed.mock;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.util.HashUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 本地模拟的 OpenAI 兼容向量化接口，仅在 mock profile 下注册，用于在不调用真实服务的情况下压测完整的 HTTP 链路。
+ * 以 http://localhost:18080/mock/v1 作为 baseUrl 即可；相同文本总是返回相同的单位向量，
+ * 延迟、500 错误率与 429 限流概率由 fast-embed.mock 配置。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/5
+ */
+@Slf4j
+@Profile("mock")
+@RestController
+@RequestMapping("/mock/v1")
+public class MockEmbeddingController {
+    private static final String PREFIX = "fast_embed.mock.";
+
+    private final EmbedProperties.Mock properties;
+    private final Counter succeeded;
+    private final Counter throttled;
+    private final Counter failed;
+    private final Counter inputs;
+
+    public MockEmbeddingController(EmbedProperties properties, MeterRegistry registry) {
+        this.properties = properties.getMock();
+        this.succeeded = requestCounter(registry, "success");
+        this.throttled = requestCounter(registry, "throttled");
+        this.failed = requestCounter(registry, "error");
+        this.inputs = Counter.builder(PREFIX + "inputs")
+                .description("模拟接口已返回向量的文本条数")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void init() {
+        log.warn("已启用模拟向量化接口 /mock/v1/embeddings，维度：{}，固定延迟：{}ms，错误率：{}，限流率：{}",
+                properties.getDimension(), properties.getLatencyMillis(), properties.getErrorRate(),
+                properties.getThrottleRate());
+    }
+
+    @PostMapping("/embeddings")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> embeddings(
+            @RequestBody MockEmbeddingRequest request) {
+        List<String> texts = texts(request.input());
+        if (texts.isEmpty()) {
+            return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST, "invalid_request_error",
+                    "input 不能为空"));
+        }
+
+        // 延迟通过定时调度实现，不占用请求线程，高并发压测时不会耗尽 Tomcat 线程池
+        return CompletableFuture.supplyAsync(() -> respond(request, texts),
+                CompletableFuture.delayedExecutor(latencyMicros(texts.size()), TimeUnit.MICROSECONDS));
+    }
+
+    private ResponseEntity<Map<String, Object>> respond(MockEmbeddingRequest request, List<String> texts) {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < properties.getThrottleRate()) {
+            throttled.increment();
+            ResponseEntity<Map<String, Object>> response = error(HttpStatus.TOO_MANY_REQUESTS, "rate_limit_error",
+                    "Rate limit exceeded, please retry later");
+            return ResponseEntity.status(response.getStatusCode())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfterSeconds()))
+                    .body(response.getBody());
+        }
+        if (roll < properties.getThrottleRate() + properties.getErrorRate()) {
+            failed.increment();
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "server_error", "Injected mock failure");
+        }
+
+        int dimension = request.dimensions() != null && request.dimensions() > 0
+                ? request.dimensions()
+                : properties.getDimension();
+        List<Map<String, Object>> data = new ArrayList<>(texts.size());
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("object", "embedding");
+            item.put("index", i);
+            item.put("embedding", vector(text, dimension));
+            data.add(item);
+            // 粗略估算 token 数，避免分词开销影响压测结果
+            tokens += Math.max(1, text.length() / 2);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("object", "list");
+        body.put("data", data);
+        body.put("model", request.model());
+        body.put("usage", Map.of("prompt_tokens", tokens, "total_tokens", tokens));
+        succeeded.increment();
+        inputs.increment(texts.size());
+        return ResponseEntity.ok(body);
+    }
+
+    private long latencyMicros(int inputCount) {
+        long micros = TimeUnit.MILLISECONDS.toMicros(properties.getLatencyMillis())
+                + properties.getLatencyPerInputMicros() * inputCount;
+        if (properties.getTailLatencyMillis() > 0) {
+            // 指数分布模拟真实服务的长尾延迟
+            double tail = -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * properties.getTailLatencyMillis();
+            micros += (long) (tail * 1000);
+        }
+        return Math.min(micros, TimeUnit.MILLISECONDS.toMicros(properties.getMaxLatencyMillis()));
+    }
+
+    private static List<String> texts(JsonNode input) {
+        List<String> texts = new ArrayList<>();
+        if (input == null || input.isNull()) {
+            return texts;
+        }
+        if (input.isTextual()) {
+            texts.add(input.asText());
+            return texts;
+        }
+        if (input.isArray()) {
+            for (JsonNode element : input) {
+                // token 数组按其文本形式生成向量，同样保证确定性
+                texts.add(element.isTextual() ? element.asText() : element.toString());
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * 以文本摘要作为随机种子生成单位向量，相同文本在任意进程中都得到相同结果
+     */
+    private static float[] vector(String text, int dimension) {
+        SplittableRandom random = new SplittableRandom(ByteBuffer.wrap(HashUtils.sha256(text)).getLong());
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus status, String type, String message) {
+        return ResponseEntity.status(status)
+                .body(Map.of("error", Map.of("message", message, "type", type)));
+    }
+
+    private static Counter requestCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder(PREFIX + "requests")
+                .description("模拟接口收到的请求数")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
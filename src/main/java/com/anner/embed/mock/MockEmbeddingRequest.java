@@ -0,0 +1,13 @@
+package com.anner.embed.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * OpenAI 兼容的向量化请求，input 可以是单个字符串、字符串数组或 token 数组
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/5
+ */
+public record MockEmbeddingRequest(String model, JsonNode input, Integer dimensions) {
+}
@@ -1,5 +1,7 @@
 package com.anner.embed.model;
 
+import java.util.Set;
+
 import org.springframework.web.multipart.MultipartFile;
 
 import lombok.Data;
@@ -12,4 +14,11 @@ public class EmbeddingConfig {
     private String apiKey;
     private Integer maxTokensPerChunk;
     private Integer overlapTokens;
+    private Integer embeddingBatchSize; // 每批次最多的文本段数量
+    private Integer maxTokensPerBatch; // 每批次最多的 token 数量
+    private Integer embeddingConcurrency; // 同时在途的批次数量
+    private boolean streamingExtraction; // 是否直接从压缩包流式读取，不解压到磁盘
+    private VectorFileFormat outputFormat; // 向量文件输出格式
+    private TaskPriority priority; // 任务优先级
+    private Set<QuantizationType> quantization; // 额外输出的量化向量类型
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.anner.embed.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分页查询结果，page 从 1 开始
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/1
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResult<T> {
+    private List<T> items;
+    private long total;
+    private int page;
+    private int size;
+}
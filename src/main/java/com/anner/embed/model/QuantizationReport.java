@@ -0,0 +1,23 @@
+package com.anner.embed.model;
+
+import lombok.Data;
+
+/**
+ * 一种量化向量输出的训练结果，召回率以原始向量上的精确检索结果为基准测得
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+@Data
+public class QuantizationReport {
+    private QuantizationType type;
+    private String filePath; // 量化向量文件路径
+    private int bytesPerVector; // 每条向量的编码字节数
+    private double compressionRatio; // 原始 float 向量与编码的字节数之比
+    private int trainingSamples; // 参与训练的向量数
+    private int evaluatedQueries; // 测量召回率使用的查询数
+    private double recallAt10; // 量化检索 top10 与精确检索 top10 的重合比例
+    private double recallLoss; // 1 - recallAt10
+    private long trainingMillis; // 训练和编码耗时
+}
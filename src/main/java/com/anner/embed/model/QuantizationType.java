@@ -0,0 +1,60 @@
+package com.anner.embed.model;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+/**
+ * 二进制向量文件之外可选的量化向量输出，在任务结束时从向量样本训练，检索时按非对称距离计算。
+ * 量化向量文件按声明顺序记录类型编号，新增类型只能追加在末尾
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+public enum QuantizationType {
+    // 每维 1 字节的标量量化，按维度记录最小值和步长
+    SQ8("sq8"),
+    // 乘积量化，每个子空间 1 字节的码本编号
+    PQ("pq");
+
+    private final String suffix;
+
+    QuantizationType(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * 量化向量文件的扩展名
+     */
+    public String suffix() {
+        return suffix;
+    }
+
+    public static QuantizationType fromValue(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "不支持的量化类型：" + value);
+        }
+    }
+
+    /**
+     * 解析逗号分隔的量化类型，为空或 none 时不输出量化向量
+     */
+    public static Set<QuantizationType> parse(String value) {
+        Set<QuantizationType> types = EnumSet.noneOf(QuantizationType.class);
+        if (value == null || value.isBlank() || "none".equalsIgnoreCase(value.trim())) {
+            return types;
+        }
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                types.add(fromValue(part));
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,24 @@
+package com.anner.embed.model;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单条检索结果，score 为查询向量与文本段向量的余弦相似度
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchMatch {
+    private String id; // 二进制向量文件中为行号，JSON 向量文件中为条目 ID
+    private double score;
+    private String text;
+    private Map<String, Object> metadata;
+}
@@ -0,0 +1,19 @@
+package com.anner.embed.model;
+
+import lombok.Data;
+
+/**
+ * 向量检索请求。查询文本使用任务的向量化模型转换为向量，API 密钥不随任务保存，需要每次提供
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+@Data
+public class SearchRequest {
+    private String query;
+    private Integer topK; // 返回的最大结果数，未指定时使用 fast-embed.search.default-top-k
+    private Double minScore; // 最低余弦相似度，低于该值的结果不返回
+    private String apiKey;
+    private String baseUrl; // 未指定时使用任务创建时的服务地址
+}
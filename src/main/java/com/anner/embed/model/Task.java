@@ -1,6 +1,10 @@
 package com.anner.embed.model;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,13 +15,28 @@ public class Task {
     private String id;
     private String fileName;
     private String modelType;
+    private String baseUrl; // 向量化服务地址，检索时用同一模型向量化查询
     private TaskStatus status;
     private double progress;
     private double segmentProgress; // 文本分段进度
     private double embeddingProgress; // 向量化进度
     private String currentStage; // 当前处理阶段
+    private int totalSegments; // 文本段总数，分段完成后确定
+    private int uniqueSegments; // 不重复的文本数
+    private int lateDuplicateSegments; // 超出去重窗口、重新经过向量缓存或服务端向量化的重复文本段数
     private String errorMessage;
-    private String vectorFilePath;
+    private VectorFileFormat outputFormat; // 向量文件输出格式
+    private TaskPriority priority = TaskPriority.NORMAL; // 任务优先级
+    private String vectorFilePath; // JSON 格式向量文件路径
+    private String binaryVectorFilePath; // 二进制格式向量文件路径
+    private String hnswIndexFilePath; // 二进制向量文件的 HNSW 索引路径，未构建时为空
+    private String ivfIndexFilePath; // 二进制向量文件的 IVF 倒排索引路径，未构建时为空
+    private Set<QuantizationType> quantization = EnumSet.noneOf(QuantizationType.class); // 额外输出的量化向量类型
+    private List<QuantizationReport> quantizationReports = new ArrayList<>(); // 已生成的量化向量及其召回率
+    private volatile int retryCount; // 批次重试次数
+    private volatile int throttleCount; // 触发服务端限流或超时的次数
+    private volatile long cacheHits; // 向量缓存命中的文本段数
+    private volatile long cacheMisses; // 向量缓存未命中、实际请求服务端的文本段数
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
@@ -34,10 +53,33 @@ public class Task {
         this.updateTime = this.createTime;
     }
 
+    public synchronized void incrementRetryCount() {
+        retryCount++;
+    }
+
+    public synchronized void incrementThrottleCount() {
+        throttleCount++;
+    }
+
+    public synchronized void addCacheStats(int hits, int misses) {
+        cacheHits += hits;
+        cacheMisses += misses;
+    }
+
+    public double getCacheHitRatio() {
+        long total = cacheHits + cacheMisses;
+        return total > 0 ? (double) cacheHits / total : 0;
+    }
+
     public enum TaskStatus {
+        QUEUED, // 等待调度器分配运行名额
         RUNNING,
         COMPLETED,
         FAILED,
-        CANCELLED
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.anner.embed.model;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.anner.embed.vector.OutputCheckpoint;
+
+import lombok.Data;
+
+/**
+ * 任务检查点，保存在任务工作目录下。记录恢复任务所需的处理参数（不含 API 密钥）、
+ * 已按顺序写出的文本段数、最后一个已写出文本段所在的文件，以及各向量输出临时文件的写入位置。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/31
+ */
+@Data
+public class TaskCheckpoint {
+    private String taskId;
+    private String fileName;
+    private String modelType;
+    private String baseUrl;
+    private Integer maxTokensPerChunk;
+    private Integer overlapTokens;
+    private Integer embeddingBatchSize;
+    private Integer maxTokensPerBatch;
+    private Integer embeddingConcurrency;
+    private boolean streamingExtraction;
+    private VectorFileFormat outputFormat;
+    private TaskPriority priority;
+    private Set<QuantizationType> quantization;
+    private String archivePath; // 流式模式下保留的压缩包路径
+    private long committedSegments; // 已写出的文本段数，恢复时跳过
+    private String lastCommittedFile; // 最后一个已写出的文本段所在的文件，恢复时校验跳过的位置
+    private int lastCommittedFileSegments; // 该文件中已写出的文本段数
+    private Map<VectorFileFormat, OutputCheckpoint> outputs = new EnumMap<>(VectorFileFormat.class);
+    private long updatedAt;
+
+    public static TaskCheckpoint of(String taskId, String fileName, EmbeddingConfig config) {
+        TaskCheckpoint checkpoint = new TaskCheckpoint();
+        checkpoint.setTaskId(taskId);
+        checkpoint.setFileName(fileName);
+        checkpoint.setModelType(config.getModelType());
+        checkpoint.setBaseUrl(config.getBaseUrl());
+        checkpoint.setMaxTokensPerChunk(config.getMaxTokensPerChunk());
+        checkpoint.setOverlapTokens(config.getOverlapTokens());
+        checkpoint.setEmbeddingBatchSize(config.getEmbeddingBatchSize());
+        checkpoint.setMaxTokensPerBatch(config.getMaxTokensPerBatch());
+        checkpoint.setEmbeddingConcurrency(config.getEmbeddingConcurrency());
+        checkpoint.setStreamingExtraction(config.isStreamingExtraction());
+        checkpoint.setOutputFormat(config.getOutputFormat());
+        checkpoint.setPriority(config.getPriority());
+        checkpoint.setQuantization(config.getQuantization());
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        return checkpoint;
+    }
+
+    /**
+     * 根据检查点还原处理参数，API 密钥不落盘，需要恢复请求重新提供
+     */
+    public EmbeddingConfig toConfig(String apiKey) {
+        EmbeddingConfig config = new EmbeddingConfig();
+        config.setModelType(modelType);
+        config.setBaseUrl(baseUrl);
+        config.setApiKey(apiKey);
+        config.setMaxTokensPerChunk(maxTokensPerChunk);
+        config.setOverlapTokens(overlapTokens);
+        config.setEmbeddingBatchSize(embeddingBatchSize);
+        config.setMaxTokensPerBatch(maxTokensPerBatch);
+        config.setEmbeddingConcurrency(embeddingConcurrency);
+        config.setStreamingExtraction(streamingExtraction);
+        config.setOutputFormat(outputFormat);
+        config.setPriority(priority != null ? priority : TaskPriority.NORMAL);
+        config.setQuantization(quantization != null ? quantization : EnumSet.noneOf(QuantizationType.class));
+        return config;
+    }
+}
@@ -0,0 +1,32 @@
+package com.anner.embed.model;
+
+import java.util.Locale;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+/**
+ * 任务优先级，决定排队任务的启动顺序和向量化批次的派发顺序
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/8
+ */
+public enum TaskPriority {
+    // 交互式的小任务，优先启动，批次优先派发
+    HIGH,
+    NORMAL,
+    // 批量重建索引等后台任务，只使用空闲的处理能力
+    LOW;
+
+    public static TaskPriority fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return NORMAL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "不支持的任务优先级：" + value);
+        }
+    }
+}
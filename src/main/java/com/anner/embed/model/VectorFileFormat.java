@@ -0,0 +1,41 @@
+package com.anner.embed.model;
+
+import java.util.Locale;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+/**
+ * 向量文件输出格式
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/29
+ */
+public enum VectorFileFormat {
+    // InMemoryEmbeddingStore 兼容的 JSON 文件
+    JSON,
+    // 紧凑二进制文件，可直接内存映射读取
+    BINARY,
+    // 同时输出两种格式
+    BOTH;
+
+    public boolean includesJson() {
+        return this == JSON || this == BOTH;
+    }
+
+    public boolean includesBinary() {
+        return this == BINARY || this == BOTH;
+    }
+
+    public static VectorFileFormat fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return JSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "不支持的输出格式：" + value);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.anner.embed.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应限流器：限制同一服务端的在途请求数，遇到限流或超时时将上限减半并暂停一段时间，
+ * 请求成功时缓慢增加上限（AIMD）。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/25
+ */
+public class AdaptiveRateLimiter {
+    private final int maxLimit;
+    private final long cooldownNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long resumeAt;
+    private long lastDecreaseAt;
+    // 最后一次获取或释放许可的时间（毫秒），用于判断限流器是否空闲
+    private long lastUsedAt = System.currentTimeMillis();
+
+    public AdaptiveRateLimiter(int initialLimit, int maxLimit, long cooldownMillis) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+        this.resumeAt = System.nanoTime();
+        this.lastDecreaseAt = this.resumeAt - this.cooldownNanos;
+    }
+
+    /**
+     * 获取一个请求许可，上限已满或处于限流冷却期时阻塞
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long waitNanos = resumeAt - System.nanoTime();
+                if (waitNanos > 0) {
+                    available.awaitNanos(waitNanos);
+                } else if (inFlight >= (int) limit) {
+                    available.await();
+                } else {
+                    inFlight++;
+                    lastUsedAt = System.currentTimeMillis();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求成功，释放许可并逐步提升上限
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            release();
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求被限流或超时，释放许可、上限减半并暂停派发。同一冷却期内只减半一次，
+     * 避免并发请求同时失败时把上限压到最低。
+     */
+    public void onThrottled() {
+        lock.lock();
+        try {
+            release();
+            long now = System.nanoTime();
+            if (now - lastDecreaseAt >= cooldownNanos) {
+                limit = Math.max(1, limit / 2);
+                lastDecreaseAt = now;
+                resumeAt = now + cooldownNanos;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 请求因其他原因失败，仅释放许可
+     */
+    public void onFailure() {
+        lock.lock();
+        try {
+            release();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 没有在途请求和等待中的请求，且自 expireBefore（毫秒）起未被使用
+     */
+    public boolean isIdleSince(long expireBefore) {
+        lock.lock();
+        try {
+            return inFlight == 0 && !lock.hasWaiters(available) && lastUsedAt < expireBefore;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调用方持有 lock
+     */
+    private void release() {
+        inFlight--;
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    public int currentLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
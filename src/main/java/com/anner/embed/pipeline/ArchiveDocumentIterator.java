@@ -0,0 +1,68 @@
+package com.anner.embed.pipeline;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.util.FileProcessor;
+
+/**
+ * 顺序读取压缩包中可处理的条目。压缩流只能顺序访问，因此条目内容在迭代时读出，
+ * 分段则交给 {@link ChunkingStage} 并行处理。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/26
+ */
+public class ArchiveDocumentIterator implements Iterator<SourceDocument> {
+    private final ArchiveInputStream<? extends ArchiveEntry> archiveInputStream;
+    private SourceDocument next;
+    private boolean finished;
+
+    public ArchiveDocumentIterator(ArchiveInputStream<? extends ArchiveEntry> archiveInputStream) {
+        this.archiveInputStream = archiveInputStream;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = readNext();
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public SourceDocument next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SourceDocument document = next;
+        next = null;
+        return document;
+    }
+
+    private SourceDocument readNext() {
+        try {
+            ArchiveEntry entry;
+            while ((entry = archiveInputStream.getNextEntry()) != null) {
+                if (entry.isDirectory() || !FileProcessor.isSupportedFile(entry.getName())
+                        || !archiveInputStream.canReadEntryData(entry)) {
+                    continue;
+                }
+                String content = IOUtils.toString(archiveInputStream, StandardCharsets.UTF_8);
+                return new SourceDocument(entry.getName(), () -> content);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_EXTRACT_ERROR, e);
+        }
+    }
+}
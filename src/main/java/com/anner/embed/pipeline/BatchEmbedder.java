@@ -0,0 +1,18 @@
+package com.anner.embed.pipeline;
+
+import java.util.List;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 对一个批次的文本段生成向量，返回的向量与文本段一一对应
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/25
+ */
+@FunctionalInterface
+public interface BatchEmbedder {
+    List<Embedding> embedAll(List<TextSegment> batch);
+}
@@ -0,0 +1,59 @@
+package com.anner.embed.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.anner.embed.model.Task;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 先查询持久化缓存，只把未命中的文本段交给下游向量化，并回写新生成的向量
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/27
+ */
+public class CachingBatchEmbedder implements BatchEmbedder {
+    private final BatchEmbedder delegate;
+    private final EmbeddingCache.Namespace cache;
+    private final Task task;
+
+    public CachingBatchEmbedder(BatchEmbedder delegate, EmbeddingCache.Namespace cache, Task task) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.task = task;
+    }
+
+    @Override
+    public List<Embedding> embedAll(List<TextSegment> batch) {
+        Embedding[] results = new Embedding[batch.size()];
+        List<Integer> missIndexes = new ArrayList<>();
+        List<EmbeddingCache.Key> missKeys = new ArrayList<>();
+        List<TextSegment> misses = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            EmbeddingCache.Key key = EmbeddingCache.Key.of(batch.get(i).text());
+            Embedding cached = cache.get(key);
+            if (cached != null) {
+                results[i] = cached;
+            } else {
+                missIndexes.add(i);
+                missKeys.add(key);
+                misses.add(batch.get(i));
+            }
+        }
+        task.addCacheStats(batch.size() - misses.size(), misses.size());
+
+        if (!misses.isEmpty()) {
+            List<Embedding> embedded = delegate.embedAll(misses);
+            cache.putAll(missKeys, embedded);
+            for (int i = 0; i < missIndexes.size(); i++) {
+                results[missIndexes.get(i)] = embedded.get(i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+}
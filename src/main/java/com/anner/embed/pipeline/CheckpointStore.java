@@ -0,0 +1,70 @@
+package com.anner.embed.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.TaskCheckpoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 读写任务工作目录下的检查点文件，写入时先写临时文件再原子替换，避免进程中途退出留下半个文件
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/31
+ */
+@Slf4j
+@Component
+public class CheckpointStore {
+    private static final String FILE_NAME = "checkpoint.json";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public void save(File workDir, TaskCheckpoint checkpoint) {
+        Path file = workDir.toPath().resolve(FILE_NAME);
+        Path temp = workDir.toPath().resolve(FILE_NAME + ".tmp");
+        try {
+            checkpoint.setUpdatedAt(System.currentTimeMillis());
+            OBJECT_MAPPER.writeValue(temp.toFile(), checkpoint);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    /**
+     * 读取检查点，不存在时返回 null
+     */
+    public TaskCheckpoint load(File workDir) {
+        File file = new File(workDir, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(file, TaskCheckpoint.class);
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_READ_ERROR, e);
+        }
+    }
+
+    public void delete(File workDir) {
+        try {
+            Files.deleteIfExists(workDir.toPath().resolve(FILE_NAME));
+        } catch (IOException e) {
+            log.warn("删除检查点失败: {}", workDir.getAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.anner.embed.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.util.FileProcessor;
+
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 并行分段阶段：最多同时有 capacity 个文档在分段或等待被消费，
+ * 消费方按文档原始顺序依次取出结果，因此分段可以跨核并行，而输出顺序保持确定，
+ * 内存占用也只与队列容量有关，与语料总量无关。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/26
+ */
+@Slf4j
+public class ChunkingStage implements AutoCloseable {
+    private final Iterator<SourceDocument> documents;
+    private final int maxTokensPerChunk;
+    private final int overlapTokens;
+    private final Executor executor;
+    private final int capacity;
+    private final PipelineMetrics metrics;
+    private final Deque<CompletableFuture<ChunkResult>> queue = new ArrayDeque<>();
+
+    /**
+     * 单个文档的分段结果，分段失败时 error 不为空
+     */
+    public record ChunkResult(String name, List<TextSegment> segments, Exception error) {
+    }
+
+    public ChunkingStage(Iterator<SourceDocument> documents, int maxTokensPerChunk, int overlapTokens,
+            Executor executor, int capacity, PipelineMetrics metrics) {
+        this.documents = documents;
+        this.maxTokensPerChunk = maxTokensPerChunk;
+        this.overlapTokens = overlapTokens;
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.metrics = metrics;
+    }
+
+    /**
+     * 按原始顺序取出下一个文档的分段结果，全部取完后返回 null
+     */
+    public ChunkResult next() {
+        fill();
+        CompletableFuture<ChunkResult> head = queue.poll();
+        if (head == null) {
+            return null;
+        }
+        // 取走队首后立即补充，保持分段线程忙碌
+        fill();
+        try {
+            return head.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RagException(RagErrorCode.TASK_CANCELLED, "任务线程被中断");
+        } catch (ExecutionException e) {
+            throw new RagException(RagErrorCode.TEXT_PROCESS_ERROR, e.getCause());
+        }
+    }
+
+    private void fill() {
+        while (queue.size() < capacity && documents.hasNext()) {
+            SourceDocument document = documents.next();
+            queue.add(CompletableFuture.supplyAsync(() -> chunk(document), executor));
+        }
+    }
+
+    private ChunkResult chunk(SourceDocument document) {
+        long start = System.nanoTime();
+        try {
+            String content = document.content().call();
+            List<TextSegment> segments = FileProcessor.processContent(content, maxTokensPerChunk, overlapTokens);
+            metrics.recordChunking(System.nanoTime() - start, segments.size());
+            return new ChunkResult(document.name(), segments, null);
+        } catch (Exception e) {
+            return new ChunkResult(document.name(), Collections.emptyList(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (CompletableFuture<ChunkResult> future : queue) {
+            future.cancel(true);
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,316 @@
+package com.anner.embed.pipeline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.util.HashUtils;
+
+import dev.langchain4j.data.embedding.Embedding;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于文本内容摘要的持久化向量缓存。每个 (modelType, baseUrl) 对应一个只追加写入的缓存文件，
+ * 记录格式为：32 字节文本 SHA-256 | 4 字节维度 | 维度 × float32（小端）。
+ * 内存中只保存摘要到文件偏移的索引，向量按需从文件读取。
+ * <p>
+ * 为限制磁盘占用和索引内存，每个缓存空间分新旧两代文件：新一代写满（大小或条目数达到总上限的一半）后
+ * 整体降为旧一代，原来的旧一代连同其索引一起丢弃。旧一代中被命中的向量会重新写入新一代，常用文本不会因轮转失效。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/27
+ */
+@Slf4j
+@Component
+public class EmbeddingCache {
+    private static final int HASH_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = HASH_BYTES + Integer.BYTES;
+
+    private final EmbedProperties properties;
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+    public EmbeddingCache(EmbedProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.getCache().isEnabled();
+    }
+
+    /**
+     * 获取某个模型与服务端组合的缓存空间，不同模型生成的向量不能混用
+     */
+    public Namespace namespace(String modelType, String baseUrl) {
+        String name = HashUtils.sha256Hex(modelType + "|" + baseUrl).substring(0, 16);
+        return namespaces.computeIfAbsent(name, n -> {
+            EmbedProperties.Cache config = properties.getCache();
+            Path directory = Paths.get(config.getDirectory()).toAbsolutePath();
+            try {
+                return new Namespace(directory.resolve(n + ".bin"), directory.resolve(n + ".old.bin"),
+                        Math.max(1, config.getMaxBytes() / 2), Math.max(1, config.getMaxEntries() / 2));
+            } catch (IOException e) {
+                throw new RagException(RagErrorCode.FILE_READ_ERROR, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Namespace namespace : namespaces.values()) {
+            namespace.close();
+        }
+        namespaces.clear();
+    }
+
+    /**
+     * 文本摘要，作为缓存键
+     */
+    public record Key(long h0, long h1, long h2, long h3) {
+        public static Key of(String text) {
+            ByteBuffer buffer = ByteBuffer.wrap(HashUtils.sha256(text));
+            return new Key(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            buffer.putLong(h0).putLong(h1).putLong(h2).putLong(h3);
+        }
+    }
+
+    public static class Namespace {
+        private final Path file;
+        private final Path previousFile;
+        private final long maxGenerationBytes;
+        private final int maxGenerationEntries;
+        private final Object appendLock = new Object();
+        // 新一代只在持有 appendLock 时替换，读取方拿到的总是完整可用的一代
+        private volatile Generation current;
+        private volatile Generation previous;
+
+        Namespace(Path file, Path previousFile, long maxGenerationBytes, int maxGenerationEntries)
+                throws IOException {
+            this.file = file;
+            this.previousFile = previousFile;
+            this.maxGenerationBytes = maxGenerationBytes;
+            this.maxGenerationEntries = maxGenerationEntries;
+            Files.createDirectories(file.getParent());
+            if (Files.exists(previousFile)) {
+                previous = Generation.open(previousFile, maxGenerationBytes, maxGenerationEntries);
+            }
+            current = Generation.open(file, maxGenerationBytes, maxGenerationEntries);
+            if (current.isFull(maxGenerationBytes, maxGenerationEntries)) {
+                rotate();
+            }
+        }
+
+        public Embedding get(Key key) {
+            Embedding embedding = current.read(key);
+            if (embedding != null) {
+                return embedding;
+            }
+            Generation old = previous;
+            embedding = old != null ? old.read(key) : null;
+            if (embedding != null) {
+                // 旧一代会在下次轮转时丢弃，命中的向量写回新一代
+                putAll(List.of(key), List.of(embedding));
+            }
+            return embedding;
+        }
+
+        public void putAll(List<Key> keys, List<Embedding> embeddings) {
+            int total = 0;
+            for (Embedding embedding : embeddings) {
+                total += RECORD_HEADER_BYTES + embedding.dimension() * Float.BYTES;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+            long[] relativeOffsets = new long[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                relativeOffsets[i] = buffer.position();
+                float[] vector = embeddings.get(i).vector();
+                keys.get(i).writeTo(buffer.order(ByteOrder.BIG_ENDIAN));
+                buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(vector.length);
+                for (float value : vector) {
+                    buffer.putFloat(value);
+                }
+            }
+            buffer.flip();
+
+            synchronized (appendLock) {
+                try {
+                    if (current.isFull(maxGenerationBytes, maxGenerationEntries)) {
+                        rotate();
+                    }
+                    current.append(buffer, keys, relativeOffsets);
+                } catch (IOException e) {
+                    // 缓存写入失败不影响任务本身
+                    log.warn("写入向量缓存失败：{}，{}", file, e.getMessage());
+                }
+            }
+        }
+
+        public int size() {
+            Generation old = previous;
+            return current.index.size() + (old != null ? old.index.size() : 0);
+        }
+
+        /**
+         * 新一代降为旧一代，原旧一代的文件和索引一并丢弃，再创建空的新一代
+         */
+        private void rotate() throws IOException {
+            Generation retired = previous;
+            Files.move(file, previousFile, StandardCopyOption.REPLACE_EXISTING);
+            previous = current.movedTo(previousFile);
+            current = Generation.open(file, maxGenerationBytes, maxGenerationEntries);
+            if (retired != null) {
+                retired.close();
+            }
+            log.info("向量缓存已轮转：{}，丢弃旧一代 {} 条，保留 {} 条", file,
+                    retired != null ? retired.index.size() : 0, previous.index.size());
+        }
+
+        void close() {
+            current.close();
+            Generation old = previous;
+            if (old != null) {
+                old.close();
+            }
+        }
+    }
+
+    /**
+     * 单个缓存文件及其摘要到文件偏移的索引
+     */
+    private static final class Generation {
+        private final Path file;
+        private final FileChannel channel;
+        private final Map<Key, Long> index;
+        private long size;
+
+        private Generation(Path file, FileChannel channel, Map<Key, Long> index, long size) {
+            this.file = file;
+            this.channel = channel;
+            this.index = index;
+            this.size = size;
+        }
+
+        static Generation open(Path file, long maxBytes, int maxEntries) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            Generation generation = new Generation(file, channel, new ConcurrentHashMap<>(), 0);
+            try {
+                generation.load(maxBytes, maxEntries);
+            } catch (IOException e) {
+                generation.close();
+                throw e;
+            }
+            return generation;
+        }
+
+        /**
+         * 文件改名后沿用已打开的通道和索引
+         */
+        Generation movedTo(Path target) {
+            return new Generation(target, channel, index, size);
+        }
+
+        boolean isFull(long maxBytes, int maxEntries) {
+            return size >= maxBytes || index.size() >= maxEntries;
+        }
+
+        Embedding read(Key key) {
+            Long offset = index.get(key);
+            if (offset == null) {
+                return null;
+            }
+            try {
+                ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(header, offset + HASH_BYTES);
+                int dimension = header.flip().getInt();
+                ByteBuffer body = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(body, offset + RECORD_HEADER_BYTES);
+                body.flip();
+                float[] vector = new float[dimension];
+                body.asFloatBuffer().get(vector);
+                return Embedding.from(vector);
+            } catch (IOException e) {
+                // 读取期间这一代恰好被轮转丢弃时通道已关闭，按未命中处理
+                log.warn("读取向量缓存失败：{}，{}", file, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * 调用方持有 appendLock
+         */
+        void append(ByteBuffer buffer, List<Key> keys, long[] relativeOffsets) throws IOException {
+            long base = size;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, base + buffer.position());
+            }
+            size = base + buffer.limit();
+            for (int i = 0; i < keys.size(); i++) {
+                index.putIfAbsent(keys.get(i), base + relativeOffsets[i]);
+            }
+        }
+
+        private void load(long maxBytes, int maxEntries) throws IOException {
+            long fileSize = channel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            while (offset + RECORD_HEADER_BYTES <= fileSize && !isFull(maxBytes, maxEntries)) {
+                header.clear();
+                readFully(header, offset);
+                header.flip();
+                Key key = new Key(header.getLong(), header.getLong(), header.getLong(), header.getLong());
+                int dimension = header.order(ByteOrder.LITTLE_ENDIAN).getInt();
+                header.order(ByteOrder.BIG_ENDIAN);
+                long next = offset + RECORD_HEADER_BYTES + (long) dimension * Float.BYTES;
+                if (dimension <= 0 || next > fileSize) {
+                    break;
+                }
+                index.putIfAbsent(key, offset);
+                offset = next;
+                size = offset;
+            }
+            if (offset < fileSize) {
+                // 上次写入中断留下的不完整记录，或调小上限后超出的部分，截断后继续追加
+                log.warn("向量缓存文件尾部存在不完整或超出上限的记录，已截断：{}", file);
+                channel.truncate(offset);
+            }
+            size = offset;
+            log.info("已加载向量缓存：{}，共 {} 条", file, index.size());
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new IOException("unexpected end of cache file");
+                }
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("关闭向量缓存文件失败：{}", file, e);
+            }
+        }
+    }
+}
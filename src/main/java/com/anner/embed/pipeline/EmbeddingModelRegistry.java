@@ -0,0 +1,139 @@
+package com.anner.embed.pipeline;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.LLM;
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.util.HashUtils;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按 (modelType, baseUrl, apiKey) 缓存向量化模型客户端。同一服务端配置的并发任务和配置测试共用一个客户端，
+ * 复用其中已建立的连接，避免每个任务重复握手；长时间未使用且没有任务持有的客户端会被移除。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/6
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmbeddingModelRegistry {
+    private final EmbedProperties properties;
+
+    // 按访问顺序排列，超出数量上限时移除最久未使用的客户端
+    private final Map<String, CachedModel> models = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class CachedModel {
+        private final EmbeddingModel model;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        // 正在使用该客户端的任务数，由 models 的锁保护，大于 0 时不会被移除
+        private int leases;
+
+        private CachedModel(EmbeddingModel model) {
+            this.model = model;
+        }
+    }
+
+    /**
+     * 获取模型客户端用于单次调用，例如检索时的查询向量化和配置测试
+     */
+    public EmbeddingModel modelFor(String modelType, String baseUrl, String apiKey) {
+        synchronized (models) {
+            CachedModel cached = lookup(modelType, baseUrl, apiKey);
+            cached.lastUsedAt = System.currentTimeMillis();
+            return cached.model;
+        }
+    }
+
+    /**
+     * 获取模型客户端供整个任务使用，关闭返回的租约前客户端不会因空闲超时或数量上限被移除
+     */
+    public Lease acquire(String modelType, String baseUrl, String apiKey) {
+        synchronized (models) {
+            CachedModel cached = lookup(modelType, baseUrl, apiKey);
+            cached.leases++;
+            cached.lastUsedAt = System.currentTimeMillis();
+            return new Lease(cached);
+        }
+    }
+
+    private CachedModel lookup(String modelType, String baseUrl, String apiKey) {
+        // 不直接使用 apiKey 作为键，避免密钥常驻在内存结构中
+        String key = modelType + "#" + baseUrl + "#" + HashUtils.sha256Hex(apiKey);
+        CachedModel cached = models.get(key);
+        if (cached == null) {
+            EmbedProperties.Client config = properties.getClient();
+            cached = new CachedModel(LLM.doubaoLLMEmbedding(modelType, baseUrl, apiKey,
+                    Duration.ofMillis(config.getConnectTimeoutMillis()),
+                    Duration.ofMillis(config.getReadTimeoutMillis()), config.isHttp2()));
+            makeRoom(config.getMaxClients());
+            models.put(key, cached);
+            log.info("创建向量化模型客户端：{}，{}，当前客户端数：{}", modelType, baseUrl, models.size());
+        }
+        return cached;
+    }
+
+    /**
+     * 移除空闲超时且没有任务持有的客户端，空闲时间从最后一次获取或最后一个租约关闭时算起
+     */
+    @Scheduled(fixedDelayString = "${fast-embed.client.evict-interval-millis:60000}")
+    public void evictIdle() {
+        long expireBefore = System.currentTimeMillis() - properties.getClient().getIdleTimeoutMillis();
+        synchronized (models) {
+            int before = models.size();
+            models.values().removeIf(cached -> cached.leases == 0 && cached.lastUsedAt < expireBefore);
+            if (models.size() < before) {
+                log.info("移除空闲的向量化模型客户端 {} 个，剩余：{}", before - models.size(), models.size());
+            }
+        }
+    }
+
+    /**
+     * 为新客户端腾出位置：按最久未使用的顺序移除客户端，被任务持有的客户端跳过，此时允许暂时超出上限
+     */
+    private void makeRoom(int maxClients) {
+        Iterator<CachedModel> iterator = models.values().iterator();
+        while (models.size() >= Math.max(1, maxClients) && iterator.hasNext()) {
+            if (iterator.next().leases == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 任务对模型客户端的租约，任务结束时关闭，关闭后客户端从此刻开始计算空闲时间
+     */
+    public final class Lease implements AutoCloseable {
+        private final CachedModel cached;
+        private boolean closed;
+
+        private Lease(CachedModel cached) {
+            this.cached = cached;
+        }
+
+        public EmbeddingModel model() {
+            return cached.model;
+        }
+
+        @Override
+        public void close() {
+            synchronized (models) {
+                if (!closed) {
+                    closed = true;
+                    cached.leases--;
+                    cached.lastUsedAt = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+}
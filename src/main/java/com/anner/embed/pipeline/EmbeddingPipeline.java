@@ -0,0 +1,193 @@
+package com.anner.embed.pipeline;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 并发向量化流水线：按提交顺序为批次编号，最多同时有 concurrency 个批次在途，
+ * 批次完成后按编号顺序依次交给 {@link BatchSink}，保证输出顺序与输入一致。
+ * 已完成但尚未写出的批次数同样有上限，某个批次较慢时不会无限堆积后续结果。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/24
+ */
+@Slf4j
+public class EmbeddingPipeline {
+    private static final long POLL_INTERVAL_MILLIS = 200;
+
+    private final String taskId;
+    private final BatchEmbedder embedder;
+    private final Executor executor;
+    private final Semaphore inFlightPermits;
+    private final Semaphore outstandingPermits;
+    private final int maxOutstanding;
+    private final BooleanSupplier cancelled;
+    private final BatchSink sink;
+
+    private final Object commitLock = new Object();
+    private final Map<Long, List<Embedding>> completed = new TreeMap<>();
+    private final Map<Long, List<TextSegment>> pending = new ConcurrentHashMap<>();
+    private final Set<Thread> workers = new HashSet<>();
+    private long nextSequence = 0;
+    private long nextToCommit = 0;
+    private volatile RuntimeException failure;
+    private volatile boolean aborted;
+
+    /**
+     * 接收按顺序提交的向量化结果
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        void accept(List<Embedding> embeddings, List<TextSegment> segments);
+    }
+
+    public EmbeddingPipeline(String taskId, BatchEmbedder embedder, Executor executor, int concurrency,
+            BooleanSupplier cancelled, BatchSink sink) {
+        this.taskId = taskId;
+        this.embedder = embedder;
+        this.executor = executor;
+        this.inFlightPermits = new Semaphore(concurrency);
+        // 允许已完成未写出的批次数为在途上限的两倍，兼顾吞吐与内存
+        this.maxOutstanding = concurrency * 2;
+        this.outstandingPermits = new Semaphore(maxOutstanding);
+        this.cancelled = cancelled;
+        this.sink = sink;
+    }
+
+    /**
+     * 提交一个批次，在途或待写出批次达到上限时阻塞，直到有批次完成、任务取消或出现失败
+     */
+    public void submit(List<TextSegment> batch) {
+        acquire(outstandingPermits, 1);
+        try {
+            acquire(inFlightPermits, 1);
+        } catch (RuntimeException e) {
+            outstandingPermits.release();
+            throw e;
+        }
+
+        long sequence = nextSequence++;
+        pending.put(sequence, batch);
+        try {
+            executor.execute(() -> runBatch(sequence, batch));
+        } catch (RejectedExecutionException e) {
+            pending.remove(sequence);
+            inFlightPermits.release();
+            outstandingPermits.release();
+            throw new RagException(RagErrorCode.SYSTEM_ERROR, "向量化线程池已拒绝任务");
+        }
+    }
+
+    /**
+     * 等待所有已提交批次完成并写出，任务取消或任一批次失败时立即中断其余在途批次并抛出异常
+     */
+    public void await() {
+        acquire(outstandingPermits, maxOutstanding);
+        outstandingPermits.release(maxOutstanding);
+        checkState();
+    }
+
+    /**
+     * 主动终止流水线（如上游分段失败），中断所有在途批次
+     */
+    public void abort() {
+        aborted = true;
+        synchronized (workers) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    private void acquire(Semaphore semaphore, int permits) {
+        try {
+            while (!semaphore.tryAcquire(permits, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkState();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new RagException(RagErrorCode.TASK_CANCELLED, "任务线程被中断");
+        }
+        try {
+            checkState();
+        } catch (RuntimeException e) {
+            semaphore.release(permits);
+            throw e;
+        }
+    }
+
+    private void runBatch(long sequence, List<TextSegment> batch) {
+        Thread current = Thread.currentThread();
+        synchronized (workers) {
+            workers.add(current);
+        }
+        try {
+            if (aborted || cancelled.getAsBoolean()) {
+                return;
+            }
+            List<Embedding> embeddings = embedder.embedAll(batch);
+            commit(sequence, embeddings);
+        } catch (Exception e) {
+            if (!aborted) {
+                log.error("任务 {} 的第 {} 个批次向量化失败：{}", taskId, sequence, e.getMessage());
+                failure = e instanceof RagException ? (RagException) e
+                        : new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
+            }
+        } finally {
+            synchronized (workers) {
+                workers.remove(current);
+                // 清除中断标记，避免影响线程池中的下一个任务
+                Thread.interrupted();
+            }
+            inFlightPermits.release();
+        }
+    }
+
+    private void commit(long sequence, List<Embedding> embeddings) {
+        synchronized (commitLock) {
+            if (aborted) {
+                return;
+            }
+            completed.put(sequence, embeddings);
+            while (completed.containsKey(nextToCommit)) {
+                List<Embedding> ready = completed.remove(nextToCommit);
+                List<TextSegment> segments = pending.remove(nextToCommit);
+                sink.accept(ready, segments);
+                nextToCommit++;
+                outstandingPermits.release();
+            }
+        }
+    }
+
+    private void checkState() {
+        if (failure != null) {
+            abort();
+            throw failure;
+        }
+        if (aborted) {
+            throw new RagException(RagErrorCode.TASK_CANCELLED, "任务已终止");
+        }
+        if (cancelled.getAsBoolean()) {
+            abort();
+            throw new RagException(RagErrorCode.TASK_CANCELLED, "任务已取消");
+        }
+    }
+}
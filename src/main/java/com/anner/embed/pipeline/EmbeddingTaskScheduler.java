@@ -0,0 +1,215 @@
+package com.anner.embed.pipeline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.config.ExecutorConfig;
+import com.anner.embed.model.TaskPriority;
+import com.anner.embed.service.TaskService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 全局任务调度：同时运行的任务数不超过任务线程池大小，同一服务端（baseUrl）同时运行的任务数不超过配额，
+ * 其余任务以排队状态等待。高优先级任务先于低优先级任务启动，同一优先级按提交顺序；
+ * 队首任务的服务端配额已满时跳过它，先运行其他服务端的任务。
+ * 很小的上传走快速通道，在独立的名额内立即运行，不受排队和服务端配额影响。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/7
+ */
+@Slf4j
+@Component
+public class EmbeddingTaskScheduler {
+    private final Executor taskExecutor;
+    private final TaskService taskService;
+    private final EmbedProperties properties;
+
+    private final Object lock = new Object();
+    private final LinkedList<QueuedTask> queue = new LinkedList<>();
+    private final Map<String, Integer> runningPerProvider = new HashMap<>();
+    private int running;
+    private int fastPathRunning;
+
+    /**
+     * 排队中的任务。work 在分配到运行名额后执行；discard 在任务排队期间被取消时执行，用于清理已保存的文件
+     */
+    private record QueuedTask(String taskId, String provider, TaskPriority priority, boolean fastPath,
+            Runnable work, Runnable discard, CompletableFuture<Void> future) {
+    }
+
+    public EmbeddingTaskScheduler(@Qualifier(ExecutorConfig.TASK_EXECUTOR) Executor taskExecutor,
+            TaskService taskService, EmbedProperties properties, MeterRegistry registry) {
+        this.taskExecutor = taskExecutor;
+        this.taskService = taskService;
+        this.properties = properties;
+        Gauge.builder("fast_embed.tasks.queued", this, EmbeddingTaskScheduler::queuedCount)
+                .description("排队等待运行的任务数")
+                .register(registry);
+        Gauge.builder("fast_embed.tasks.running", this, EmbeddingTaskScheduler::runningCount)
+                .description("正在运行的任务数")
+                .register(registry);
+    }
+
+    /**
+     * 提交任务，返回的 future 在任务执行结束（或排队期间被取消）后完成
+     *
+     * @param provider 任务使用的服务端，用于按服务端限制同时运行的任务数
+     * @param fastPath 是否为小任务；快速通道有空闲名额时立即运行，否则与普通任务一样排队
+     */
+    public CompletableFuture<Void> submit(String taskId, String provider, TaskPriority priority, boolean fastPath,
+            Runnable work, Runnable discard) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        QueuedTask fastPathTask = null;
+        synchronized (lock) {
+            if (fastPath && fastPathRunning < properties.getScheduler().getFastPathSlots()) {
+                fastPathRunning++;
+                fastPathTask = new QueuedTask(taskId, provider, priority, true, work, discard, future);
+            } else {
+                enqueue(new QueuedTask(taskId, provider, priority, false, work, discard, future));
+            }
+        }
+        if (fastPathTask != null) {
+            log.info("任务 {} 走快速通道立即运行", taskId);
+            start(fastPathTask);
+        } else {
+            dispatch();
+        }
+        return future;
+    }
+
+    /**
+     * 插入到同优先级任务的末尾，队列始终按优先级从高到低排列
+     */
+    private void enqueue(QueuedTask queued) {
+        ListIterator<QueuedTask> iterator = queue.listIterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().priority().compareTo(queued.priority()) > 0) {
+                iterator.previous();
+                break;
+            }
+        }
+        iterator.add(queued);
+    }
+
+    public int queuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public int runningCount() {
+        synchronized (lock) {
+            return running + fastPathRunning;
+        }
+    }
+
+    /**
+     * 任务在排队期间被取消时调用：立即移出队列，清理已保存的文件并完成 future。
+     * 任务已开始运行或不在队列中时返回 false，运行中的任务由处理线程检查取消状态后自行结束
+     */
+    public boolean cancel(String taskId) {
+        QueuedTask cancelled = null;
+        synchronized (lock) {
+            Iterator<QueuedTask> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                QueuedTask queued = iterator.next();
+                if (queued.taskId().equals(taskId)) {
+                    iterator.remove();
+                    cancelled = queued;
+                    break;
+                }
+            }
+        }
+        if (cancelled == null) {
+            return false;
+        }
+        log.info("任务 {} 在排队期间被取消", taskId);
+        try {
+            cancelled.discard().run();
+        } finally {
+            cancelled.future().complete(null);
+        }
+        return true;
+    }
+
+    /**
+     * 在名额允许的范围内按顺序启动排队任务
+     */
+    private void dispatch() {
+        List<QueuedTask> started = new ArrayList<>();
+        synchronized (lock) {
+            int maxRunning = Math.max(1, properties.getExecutor().getTaskPoolSize());
+            int maxPerProvider = Math.max(1, properties.getScheduler().getMaxTasksPerProvider());
+            Iterator<QueuedTask> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                QueuedTask queued = iterator.next();
+                if (running >= maxRunning
+                        || runningPerProvider.getOrDefault(queued.provider(), 0) >= maxPerProvider) {
+                    continue;
+                }
+                iterator.remove();
+                running++;
+                runningPerProvider.merge(queued.provider(), 1, Integer::sum);
+                started.add(queued);
+            }
+        }
+
+        for (QueuedTask queued : started) {
+            start(queued);
+        }
+    }
+
+    private void start(QueuedTask queued) {
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    // 出队与取消之间存在竞争，已取消的任务在这里放弃运行
+                    if (taskService.startTask(queued.taskId())) {
+                        queued.work().run();
+                    } else {
+                        queued.discard().run();
+                    }
+                    queued.future().complete(null);
+                } catch (Throwable e) {
+                    queued.future().completeExceptionally(e);
+                } finally {
+                    release(queued);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("任务线程池已拒绝任务：{}", queued.taskId());
+            taskService.failTask(queued.taskId(), "任务线程池已拒绝任务");
+            queued.future().completeExceptionally(e);
+            release(queued);
+        }
+    }
+
+    private void release(QueuedTask queued) {
+        synchronized (lock) {
+            if (queued.fastPath()) {
+                fastPathRunning--;
+            } else {
+                running--;
+                runningPerProvider.computeIfPresent(queued.provider(),
+                        (provider, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        dispatch();
+    }
+}
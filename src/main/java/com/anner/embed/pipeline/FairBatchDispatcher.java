@@ -0,0 +1,117 @@
+package com.anner.embed.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.config.ExecutorConfig;
+import com.anner.embed.model.TaskPriority;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 在运行中的任务之间轮流派发向量化批次。每个任务的批次进入各自的队列，空闲线程按任务轮转取批次，
+ * 避免大任务占满共享的批次线程池，让同时运行的小任务也能持续推进。
+ * 队列按任务优先级分道，高优先级有待派发的批次时先派发，低优先级任务只使用剩余的处理能力。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/7
+ */
+@Slf4j
+@Component
+public class FairBatchDispatcher {
+    private final Executor batchExecutor;
+    private final int maxRunning;
+
+    private final Object lock = new Object();
+    // 每个优先级一条通道，通道内按轮转顺序排列，取出一个批次后该任务移到末尾
+    private final Map<TaskPriority, LinkedHashMap<String, ArrayDeque<Runnable>>> lanes =
+            new EnumMap<>(TaskPriority.class);
+    private int running;
+
+    public FairBatchDispatcher(@Qualifier(ExecutorConfig.BATCH_EXECUTOR) Executor batchExecutor,
+            EmbedProperties properties) {
+        this.batchExecutor = batchExecutor;
+        // 派发数与批次线程数一致，底层线程池不再排队，先后顺序完全由这里决定
+        this.maxRunning = Math.max(1, properties.getExecutor().getBatchPoolSize());
+        for (TaskPriority priority : TaskPriority.values()) {
+            lanes.put(priority, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * 返回某个任务专用的执行器，提交到其中的批次在对应优先级的通道内参与任务间轮转
+     */
+    public Executor forTask(String taskId, TaskPriority priority) {
+        LinkedHashMap<String, ArrayDeque<Runnable>> lane = lanes.get(priority);
+        return command -> {
+            synchronized (lock) {
+                lane.computeIfAbsent(taskId, k -> new ArrayDeque<>()).add(command);
+            }
+            dispatch();
+        };
+    }
+
+    private void dispatch() {
+        while (true) {
+            Runnable next;
+            synchronized (lock) {
+                LinkedHashMap<String, ArrayDeque<Runnable>> lane = nextLane();
+                if (running >= maxRunning || lane == null) {
+                    return;
+                }
+                Iterator<Map.Entry<String, ArrayDeque<Runnable>>> iterator = lane.entrySet().iterator();
+                Map.Entry<String, ArrayDeque<Runnable>> head = iterator.next();
+                iterator.remove();
+                next = head.getValue().poll();
+                if (!head.getValue().isEmpty()) {
+                    lane.put(head.getKey(), head.getValue());
+                }
+                running++;
+            }
+            execute(next);
+        }
+    }
+
+    /**
+     * 优先级最高的非空通道，没有待派发批次时返回 null
+     */
+    private LinkedHashMap<String, ArrayDeque<Runnable>> nextLane() {
+        for (LinkedHashMap<String, ArrayDeque<Runnable>> lane : lanes.values()) {
+            if (!lane.isEmpty()) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private void execute(Runnable command) {
+        try {
+            batchExecutor.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    synchronized (lock) {
+                        running--;
+                    }
+                    dispatch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 只会在应用关闭时发生
+            synchronized (lock) {
+                running--;
+            }
+            log.warn("向量化线程池已拒绝批次：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.anner.embed.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 向量化流水线各阶段的指标。只使用模型类型、输出格式等有限取值的标签，不按任务打标签，
+ * 通过 /actuator/prometheus 暴露。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/3
+ */
+@Component
+public class PipelineMetrics {
+    private static final String PREFIX = "fast_embed.";
+
+    private final MeterRegistry registry;
+    private final Timer uploadPersistTimer;
+    private final Timer extractionTimer;
+    private final Timer chunkingTimer;
+    private final DistributionSummary segmentsPerFile;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.uploadPersistTimer = Timer.builder(PREFIX + "upload.persist")
+                .description("上传文件落盘耗时")
+                .register(registry);
+        this.extractionTimer = Timer.builder(PREFIX + "extraction")
+                .description("压缩包解压耗时")
+                .register(registry);
+        this.chunkingTimer = Timer.builder(PREFIX + "chunking.file")
+                .description("单个文件读取与分段耗时")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+        this.segmentsPerFile = DistributionSummary.builder(PREFIX + "chunking.segments")
+                .description("单个文件产出的文本段数")
+                .register(registry);
+    }
+
+    public void recordUploadPersist(long nanos) {
+        uploadPersistTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordExtraction(long nanos) {
+        extractionTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordChunking(long nanos, int segments) {
+        chunkingTimer.record(nanos, TimeUnit.NANOSECONDS);
+        segmentsPerFile.record(segments);
+    }
+
+    /**
+     * 向量输出写入耗时，stage 为 append（每个批次）或 commit（最终提交）
+     */
+    public void recordOutput(String format, String stage, long nanos) {
+        Timer.builder(PREFIX + "output.write")
+                .description("向量文件序列化与写入耗时")
+                .tag("format", format)
+                .tag("stage", stage)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 检索索引构建耗时，type 为索引类型
+     */
+    public void recordIndexBuild(String type, long nanos) {
+        Timer.builder(PREFIX + "index.build")
+                .description("任务完成后构建检索索引的耗时")
+                .tag("type", type)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 获取某个模型的向量化指标，任务开始时解析一次，批次处理时直接使用
+     */
+    public ModelMetrics forModel(String modelType) {
+        return new ModelMetrics(registry, modelType);
+    }
+
+    /**
+     * 按模型类型区分的服务端调用指标
+     */
+    public static class ModelMetrics {
+        private final Timer successTimer;
+        private final Timer throttledTimer;
+        private final Timer errorTimer;
+        private final Counter tokens;
+        private final Counter segments;
+        private final DistributionSummary batchSize;
+        private final DistributionSummary batchTokens;
+        private final Counter retries;
+        private final Counter throttles;
+
+        ModelMetrics(MeterRegistry registry, String modelType) {
+            this.successTimer = requestTimer(registry, modelType, "success");
+            this.throttledTimer = requestTimer(registry, modelType, "throttled");
+            this.errorTimer = requestTimer(registry, modelType, "error");
+            this.tokens = Counter.builder(PREFIX + "embedding.tokens")
+                    .description("成功向量化的 token 数，取 rate 即为每秒 token 数")
+                    .tag("model", modelType)
+                    .register(registry);
+            this.segments = Counter.builder(PREFIX + "embedding.segments")
+                    .description("成功向量化的文本段数")
+                    .tag("model", modelType)
+                    .register(registry);
+            this.batchSize = DistributionSummary.builder(PREFIX + "embedding.batch.size")
+                    .description("单次请求的文本段数")
+                    .tag("model", modelType)
+                    .register(registry);
+            this.batchTokens = DistributionSummary.builder(PREFIX + "embedding.batch.tokens")
+                    .description("单次请求的 token 数")
+                    .tag("model", modelType)
+                    .register(registry);
+            this.retries = Counter.builder(PREFIX + "embedding.retries")
+                    .description("批次重试次数")
+                    .tag("model", modelType)
+                    .register(registry);
+            this.throttles = Counter.builder(PREFIX + "embedding.throttles")
+                    .description("触发限流或超时的次数")
+                    .tag("model", modelType)
+                    .register(registry);
+        }
+
+        private static Timer requestTimer(MeterRegistry registry, String modelType, String outcome) {
+            return Timer.builder(PREFIX + "embedding.request")
+                    .description("单次向量化请求耗时")
+                    .tag("model", modelType)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.9, 0.99)
+                    .register(registry);
+        }
+
+        public void recordSuccess(long nanos, int segmentCount, long tokenCount) {
+            successTimer.record(nanos, TimeUnit.NANOSECONDS);
+            segments.increment(segmentCount);
+            batchSize.record(segmentCount);
+            if (tokenCount > 0) {
+                tokens.increment(tokenCount);
+                batchTokens.record(tokenCount);
+            }
+        }
+
+        public void recordThrottled(long nanos) {
+            throttledTimer.record(nanos, TimeUnit.NANOSECONDS);
+            throttles.increment();
+        }
+
+        public void recordError(long nanos) {
+            errorTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void recordRetry() {
+            retries.increment();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.anner.embed.pipeline;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.RetriableException;
+
+/**
+ * 对服务端调用异常进行分类，判断是否需要限流降速、是否可以重试。
+ * 依次检查异常链上的 HTTP 状态码、langchain4j 的异常类型和网络异常类型，不解析异常消息
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/25
+ */
+public class ProviderErrors {
+
+    public enum Kind {
+        // 429 或超时：需要降速并重试
+        THROTTLED,
+        // 5xx 或连接异常：可以重试
+        TRANSIENT,
+        // 其他错误（如 401、400）：重试无意义
+        FATAL
+    }
+
+    public static Kind classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof HttpException) {
+                int status = ((HttpException) t).statusCode();
+                if (status == 429) {
+                    return Kind.THROTTLED;
+                }
+                if (status >= 500 || status == 408) {
+                    return Kind.TRANSIENT;
+                }
+                return Kind.FATAL;
+            }
+            if (t instanceof RateLimitException || t instanceof dev.langchain4j.exception.TimeoutException) {
+                return Kind.THROTTLED;
+            }
+            if (t instanceof InternalServerException) {
+                return Kind.TRANSIENT;
+            }
+            if (t instanceof NonRetriableException) {
+                return Kind.FATAL;
+            }
+            if (t instanceof SocketTimeoutException || t instanceof HttpTimeoutException
+                    || t instanceof java.util.concurrent.TimeoutException) {
+                return Kind.THROTTLED;
+            }
+            if (t instanceof SocketException) {
+                return Kind.TRANSIENT;
+            }
+        }
+        // 只标记为可重试、没有更具体类型的 langchain4j 异常
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof RetriableException) {
+                return Kind.TRANSIENT;
+            }
+        }
+        return Kind.FATAL;
+    }
+}
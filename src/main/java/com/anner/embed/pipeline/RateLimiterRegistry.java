@@ -0,0 +1,51 @@
+package com.anner.embed.pipeline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.util.HashUtils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按 (baseUrl, apiKey) 维护共享的自适应限流器，同一服务端账号的所有任务共用一份额度。
+ * 长时间没有请求的限流器会被移除，与向量化模型客户端使用相同的空闲超时
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/25
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimiterRegistry {
+    private final EmbedProperties properties;
+    private final Map<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdaptiveRateLimiter limiterFor(String baseUrl, String apiKey) {
+        // 不直接使用 apiKey 作为键，避免密钥常驻在内存结构中
+        String key = baseUrl + "#" + HashUtils.sha256Hex(apiKey);
+        EmbedProperties.RateLimit config = properties.getRateLimit();
+        return limiters.computeIfAbsent(key, k -> new AdaptiveRateLimiter(
+                config.getInitialConcurrency(), config.getMaxConcurrency(), config.getCooldownMillis()));
+    }
+
+    /**
+     * 移除空闲超时且没有在途请求的限流器，之后再使用时以初始上限重新创建。
+     * 仍持有已移除限流器的任务可以继续使用，只是不再与新任务共用额度
+     */
+    @Scheduled(fixedDelayString = "${fast-embed.client.evict-interval-millis:60000}")
+    public void evictIdle() {
+        long expireBefore = System.currentTimeMillis() - properties.getClient().getIdleTimeoutMillis();
+        int before = limiters.size();
+        limiters.values().removeIf(limiter -> limiter.isIdleSince(expireBefore));
+        if (limiters.size() < before) {
+            log.info("移除空闲的限流器 {} 个，剩余：{}", before - limiters.size(), limiters.size());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.anner.embed.pipeline;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.Task;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 带限流与重试的批次向量化：每次调用前从共享限流器获取许可，
+ * 遇到 429、超时或 5xx 时按带抖动的指数退避重试，重试与限流次数记录到任务上。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/25
+ */
+@Slf4j
+public class ResilientBatchEmbedder implements BatchEmbedder {
+    private final EmbeddingModel embeddingModel;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final RetryTemplate retryTemplate;
+    private final Task task;
+    private final BooleanSupplier cancelled;
+    private final PipelineMetrics.ModelMetrics metrics;
+
+    public ResilientBatchEmbedder(EmbeddingModel embeddingModel, AdaptiveRateLimiter rateLimiter,
+            EmbedProperties.Retry retry, Task task, BooleanSupplier cancelled, PipelineMetrics.ModelMetrics metrics) {
+        this.embeddingModel = embeddingModel;
+        this.rateLimiter = rateLimiter;
+        this.task = task;
+        this.cancelled = cancelled;
+        this.metrics = metrics;
+
+        ExponentialRandomBackOffPolicy backOffPolicy = new ExponentialRandomBackOffPolicy();
+        backOffPolicy.setInitialInterval(retry.getInitialIntervalMillis());
+        backOffPolicy.setMultiplier(retry.getMultiplier());
+        backOffPolicy.setMaxInterval(retry.getMaxIntervalMillis());
+
+        this.retryTemplate = new RetryTemplate();
+        this.retryTemplate.setBackOffPolicy(backOffPolicy);
+        this.retryTemplate.setRetryPolicy(new SimpleRetryPolicy(retry.getMaxAttempts(),
+                Map.of(RetryableProviderException.class, true), false));
+    }
+
+    @Override
+    public List<Embedding> embedAll(List<TextSegment> batch) {
+        try {
+            return retryTemplate.execute((RetryContext context) -> {
+                if (cancelled.getAsBoolean()) {
+                    throw new RagException(RagErrorCode.TASK_CANCELLED, "任务已取消");
+                }
+                if (context.getRetryCount() > 0) {
+                    task.incrementRetryCount();
+                    metrics.recordRetry();
+                    log.info("任务 {} 第 {} 次重试批次，大小：{}", task.getId(), context.getRetryCount(), batch.size());
+                }
+                return attempt(batch);
+            });
+        } catch (RetryableProviderException e) {
+            throw new RagException(RagErrorCode.API_ERROR, e.getCause());
+        } catch (InterruptedException | BackOffInterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RagException(RagErrorCode.TASK_CANCELLED, "任务线程被中断");
+        }
+    }
+
+    private List<Embedding> attempt(List<TextSegment> batch) throws InterruptedException {
+        rateLimiter.acquire();
+        long start = System.nanoTime();
+        List<Embedding> embeddings;
+        TokenUsage tokenUsage;
+        try {
+            Response<List<Embedding>> response = embeddingModel.embedAll(batch);
+            embeddings = response.content();
+            tokenUsage = response.tokenUsage();
+        } catch (RuntimeException e) {
+            long elapsed = System.nanoTime() - start;
+            ProviderErrors.Kind kind = ProviderErrors.classify(e);
+            if (kind == ProviderErrors.Kind.THROTTLED) {
+                metrics.recordThrottled(elapsed);
+                rateLimiter.onThrottled();
+                task.incrementThrottleCount();
+                log.warn("任务 {} 触发服务端限流或超时，当前并发上限：{}，原因：{}", task.getId(),
+                        rateLimiter.currentLimit(), e.getMessage());
+                throw new RetryableProviderException(e);
+            }
+            metrics.recordError(elapsed);
+            rateLimiter.onFailure();
+            if (kind == ProviderErrors.Kind.TRANSIENT && !Thread.currentThread().isInterrupted()) {
+                throw new RetryableProviderException(e);
+            }
+            throw e;
+        }
+        rateLimiter.onSuccess();
+        // 服务端未返回用量时不计入 token 指标
+        Integer inputTokens = tokenUsage != null ? tokenUsage.inputTokenCount() : null;
+        metrics.recordSuccess(System.nanoTime() - start, batch.size(), inputTokens != null ? inputTokens : 0);
+
+        if (embeddings == null || embeddings.size() != batch.size()) {
+            throw new RagException(RagErrorCode.MODEL_ERROR, String.format("返回的向量数量与文本段数量不一致：%d/%d",
+                    embeddings == null ? 0 : embeddings.size(), batch.size()));
+        }
+        return embeddings;
+    }
+
+    /**
+     * 标记可重试的服务端异常
+     */
+    static class RetryableProviderException extends RuntimeException {
+        RetryableProviderException(Throwable cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.anner.embed.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 任务内文本去重：相同文本只向量化一次，重复的文本段复用首次出现时的向量，并保留各自的元数据。
+ * <p>
+ * 组批时（任务线程）判断文本段是否重复，写出时（按顺序提交）再为重复段填充向量。
+ * 每个文本只记录摘要和待填充的重复段数，向量只为已登记了重复段的文本保留，最后一个重复段写出后即释放，
+ * 因此常驻的向量数受在途批次限制，而不是随不重复文本数增长。
+ * <p>
+ * 向量复用仅限于在途窗口：首次出现的文本段写出后才再次出现的相同文本（例如分散在大量文件中的模板文字）
+ * 不在此复用，而是交给下游向量化。下游的 {@link CachingBatchEmbedder} 在首次出现时已把向量写入
+ * {@link EmbeddingCache}，因此开启向量缓存时这些文本段直接从缓存读取，不会再次请求服务端；
+ * 关闭缓存时会重新向量化。这类文本段单独计数，见 {@link #getLateDuplicateCount()}。
+ * 不重复文本数由单独的摘要集合统计，不受窗口和容量限制。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/28
+ */
+public class SegmentDeduplicator {
+    private final int capacity;
+    private final Map<EmbeddingCache.Key, Entry> entries;
+    private final Set<TextSegment> pendingDuplicates = Collections
+            .synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    // 出现过的全部文本摘要，只用于统计不重复文本数，不会移除
+    private final Set<EmbeddingCache.Key> seen = new HashSet<>();
+    private int lateDuplicateCount;
+
+    public SegmentDeduplicator(int capacity) {
+        this.capacity = capacity;
+        // 按访问顺序排列，超出上限时从最久未访问的文本开始移除
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 组批时调用（单线程）：登记文本段，返回该文本段是否与之前的文本重复
+     */
+    public synchronized boolean register(TextSegment segment) {
+        EmbeddingCache.Key key = EmbeddingCache.Key.of(segment.text());
+        Entry entry = entries.get(key);
+        // 首次出现的文本段已写出且向量已释放时，无法再复用
+        if (entry != null && !(entry.committed && entry.embedding == null)) {
+            entry.pendingDuplicates++;
+            pendingDuplicates.add(segment);
+            return true;
+        }
+        if (!seen.add(key)) {
+            // 相同文本出现过，但首次出现的向量已释放或记录已被移除，交给下游向量化（开启缓存时命中向量缓存）
+            lateDuplicateCount++;
+        }
+        entries.put(key, new Entry());
+        evictIdle();
+        return false;
+    }
+
+    /**
+     * 不重复的文本数
+     */
+    public synchronized int getUniqueCount() {
+        return seen.size();
+    }
+
+    /**
+     * 超出在途窗口、未能复用向量而交给下游向量化的重复文本段数
+     */
+    public synchronized int getLateDuplicateCount() {
+        return lateDuplicateCount;
+    }
+
+    /**
+     * 包装下游向量化，跳过重复文本段，对应位置返回 null，留待写出时填充
+     */
+    public BatchEmbedder wrap(BatchEmbedder delegate) {
+        return batch -> {
+            List<TextSegment> uniques = new ArrayList<>(batch.size());
+            for (TextSegment segment : batch) {
+                if (!pendingDuplicates.contains(segment)) {
+                    uniques.add(segment);
+                }
+            }
+            if (uniques.size() == batch.size()) {
+                return delegate.embedAll(batch);
+            }
+
+            List<Embedding> embedded = uniques.isEmpty() ? Collections.emptyList() : delegate.embedAll(uniques);
+            List<Embedding> results = new ArrayList<>(batch.size());
+            int next = 0;
+            for (TextSegment segment : batch) {
+                results.add(pendingDuplicates.contains(segment) ? null : embedded.get(next++));
+            }
+            return results;
+        };
+    }
+
+    /**
+     * 写出时调用（按提交顺序串行）：为重复文本段填充首次出现时的向量
+     */
+    public synchronized List<Embedding> resolve(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<Embedding> resolved = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < segments.size(); i++) {
+            TextSegment segment = segments.get(i);
+            EmbeddingCache.Key key = EmbeddingCache.Key.of(segment.text());
+            Embedding embedding = embeddings.get(i);
+            Entry entry = entries.get(key);
+            if (pendingDuplicates.remove(segment)) {
+                if (entry == null || entry.embedding == null) {
+                    throw new RagException(RagErrorCode.SYSTEM_ERROR, "去重缓存中缺少重复文本段的向量");
+                }
+                embedding = entry.embedding;
+                if (--entry.pendingDuplicates == 0) {
+                    entry.embedding = null;
+                }
+            } else if (entry != null && !entry.committed) {
+                entry.committed = true;
+                // 组批领先于写出，此时已登记的重复段才需要这个向量
+                if (entry.pendingDuplicates > 0) {
+                    entry.embedding = embedding;
+                }
+            }
+            resolved.add(embedding);
+        }
+        return resolved;
+    }
+
+    /**
+     * 从最久未访问的文本开始移除，直到数量不超过上限；还有重复段待填充的文本不移除
+     */
+    private void evictIdle() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > capacity && iterator.hasNext()) {
+            if (iterator.next().pendingDuplicates == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 一个文本的去重状态：首次出现的文本段是否已写出、待填充的重复段数，以及供重复段复用的向量
+     */
+    private static final class Entry {
+        private boolean committed;
+        private int pendingDuplicates;
+        private Embedding embedding;
+    }
+}
@@ -0,0 +1,52 @@
+package com.anner.embed.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 按顺序记录每个文件的文本段在任务全部文本段中的区间，用于在检查点中记录最后一个已写出的文本段
+ * 所在的文件及其文件内位置。恢复时据此校验重新分段的结果与上次一致。
+ * <p>
+ * 分段线程按文件顺序登记，写出回调按提交顺序查询，已查询位置之前的文件随即丢弃，只保留在途的少量文件。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/14
+ */
+public class SegmentSources {
+    private final Deque<Span> spans = new ArrayDeque<>();
+    private long produced;
+
+    /**
+     * 登记一个文件产出的文本段数，分段失败或没有文本段的文件不占位置
+     */
+    public synchronized void addFile(String name, int segments) {
+        if (segments > 0) {
+            spans.addLast(new Span(name, produced, produced + segments));
+            produced += segments;
+        }
+    }
+
+    /**
+     * 前 committed 个文本段写出后，最后一个已写出的文本段所在的文件；committed 为 0 时返回 null
+     */
+    public synchronized Position positionOf(long committed) {
+        while (!spans.isEmpty() && spans.peekFirst().end() < committed) {
+            spans.removeFirst();
+        }
+        Span span = spans.peekFirst();
+        if (span == null || committed <= span.start()) {
+            return null;
+        }
+        return new Position(span.name(), (int) (committed - span.start()));
+    }
+
+    /**
+     * @param segments 该文件中已写出的文本段数
+     */
+    public record Position(String file, int segments) {
+    }
+
+    private record Span(String name, long start, long end) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.anner.embed.pipeline;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 待分段的源文档，内容在分段线程中按需加载
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/26
+ */
+public record SourceDocument(String name, Callable<String> content) {
+}
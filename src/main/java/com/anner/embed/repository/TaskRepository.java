@@ -0,0 +1,107 @@
+package com.anner.embed.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.Task;
+import com.anner.embed.model.Task.TaskStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 基于内嵌 H2 数据库的任务存储。状态和时间单独成列用于筛选、排序和清理，
+ * 任务的其余字段以 JSON 保存，任务新增字段时无需修改表结构。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/1
+ */
+@Repository
+public class TaskRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final RowMapper<Task> rowMapper;
+
+    public TaskRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.rowMapper = (rs, rowNum) -> {
+            try {
+                return objectMapper.readValue(rs.getString("payload"), Task.class);
+            } catch (JsonProcessingException e) {
+                throw new RagException(RagErrorCode.JSON_PARSE_ERROR, e);
+            }
+        };
+    }
+
+    public void save(Task task) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(task);
+        } catch (JsonProcessingException e) {
+            throw new RagException(RagErrorCode.JSON_PARSE_ERROR, e);
+        }
+        LocalDateTime updateTime = task.getUpdateTime() != null ? task.getUpdateTime() : LocalDateTime.now();
+        LocalDateTime createTime = task.getCreateTime() != null ? task.getCreateTime() : updateTime;
+        jdbcTemplate.update("MERGE INTO embed_task (id, status, create_time, update_time, payload) KEY (id) "
+                + "VALUES (?, ?, ?, ?, ?)", task.getId(), task.getStatus().name(), Timestamp.valueOf(createTime),
+                Timestamp.valueOf(updateTime), payload);
+    }
+
+    public Task findById(String id) {
+        List<Task> tasks = jdbcTemplate.query("SELECT payload FROM embed_task WHERE id = ?", rowMapper, id);
+        return tasks.isEmpty() ? null : tasks.get(0);
+    }
+
+    /**
+     * 按创建时间倒序分页查询，status 为 null 时不按状态筛选
+     */
+    public List<Task> findPage(TaskStatus status, int offset, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT payload FROM embed_task");
+        if (status != null) {
+            sql.append(" WHERE status = ?");
+            args.add(status.name());
+        }
+        sql.append(" ORDER BY create_time DESC, id LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(sql.toString(), rowMapper, args.toArray());
+    }
+
+    public long count(TaskStatus status) {
+        Long count = status == null
+                ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM embed_task", Long.class)
+                : jdbcTemplate.queryForObject("SELECT COUNT(*) FROM embed_task WHERE status = ?", Long.class,
+                        status.name());
+        return count != null ? count : 0;
+    }
+
+    public List<Task> findByStatus(TaskStatus status) {
+        return jdbcTemplate.query("SELECT payload FROM embed_task WHERE status = ?", rowMapper, status.name());
+    }
+
+    /**
+     * 更新时间早于 before 的已结束任务
+     */
+    public List<Task> findFinishedBefore(LocalDateTime before) {
+        return jdbcTemplate.query("SELECT payload FROM embed_task WHERE status NOT IN (?, ?) AND update_time < ?",
+                rowMapper, TaskStatus.QUEUED.name(), TaskStatus.RUNNING.name(), Timestamp.valueOf(before));
+    }
+
+    /**
+     * 删除已结束的任务记录，任务在此期间被恢复为排队或运行中时不删除，返回是否删除
+     */
+    public boolean deleteFinished(String id) {
+        return jdbcTemplate.update("DELETE FROM embed_task WHERE id = ? AND status NOT IN (?, ?)", id,
+                TaskStatus.QUEUED.name(), TaskStatus.RUNNING.name()) > 0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.anner.embed.search;
+
+import java.util.Arrays;
+
+/**
+ * 图遍历中待扩展节点的最大堆，按相似度从高到低弹出，容量按需增长
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+final class CandidateQueue {
+    private float[] scores;
+    private int[] nodes;
+    private int size;
+
+    CandidateQueue(int initialCapacity) {
+        this.scores = new float[Math.max(1, initialCapacity)];
+        this.nodes = new int[scores.length];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void push(int node, float score) {
+        if (size == nodes.length) {
+            scores = Arrays.copyOf(scores, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] >= score) {
+                break;
+            }
+            scores[index] = scores[parent];
+            nodes[index] = nodes[parent];
+            index = parent;
+        }
+        scores[index] = score;
+        nodes[index] = node;
+    }
+
+    float topScore() {
+        return scores[0];
+    }
+
+    /**
+     * 弹出相似度最高的节点
+     */
+    int pop() {
+        int top = nodes[0];
+        size--;
+        float score = scores[size];
+        int node = nodes[size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] > scores[child]) {
+                child++;
+            }
+            if (score >= scores[child]) {
+                break;
+            }
+            scores[index] = scores[child];
+            nodes[index] = nodes[child];
+            index = child;
+        }
+        scores[index] = score;
+        nodes[index] = node;
+        return top;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,86 @@
+package com.anner.embed.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 查询向量与内存映射矩阵中一行的点积。运行时加载了 jdk.incubator.vector 模块时使用 SIMD 实现，
+ * 否则回退到标量实现；SIMD 实现类只在模块可用时才加载，缺少模块或运行时 JDK 的孵化 API 不兼容时都回退。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/11
+ */
+@Slf4j
+public abstract class DotProduct {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final DotProduct PREFERRED = select();
+
+    /**
+     * 当前运行环境下最快的实现
+     */
+    public static DotProduct preferred() {
+        return PREFERRED;
+    }
+
+    public static DotProduct scalar() {
+        return Scalar.INSTANCE;
+    }
+
+    /**
+     * query 与 matrix 中从 byteOffset 开始的 query.length 个 float 的点积，matrix 须为小端序
+     */
+    public abstract float dot(float[] query, ByteBuffer matrix, int byteOffset);
+
+    public abstract String name();
+
+    private static DotProduct select() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("未加载 {} 模块，向量检索使用标量点积，启动参数添加 --add-modules {} 可启用 SIMD",
+                    VECTOR_MODULE, VECTOR_MODULE);
+            return Scalar.INSTANCE;
+        }
+        try {
+            DotProduct simd = (DotProduct) Class.forName(DotProduct.class.getPackageName() + ".SimdDotProduct")
+                    .getDeclaredConstructor().newInstance();
+            // 孵化模块的 API 随 JDK 版本变化（如 fromByteBuffer 在 JDK 19 后被移除），方法缺失要到首次调用才报错，
+            // 因此先试算一次，失败时在这里回退，而不是让之后的每次检索和索引构建失败
+            int probeLength = 67;
+            ByteBuffer probe = ByteBuffer.allocate(probeLength * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            float[] ones = new float[probeLength];
+            for (int d = 0; d < probeLength; d++) {
+                ones[d] = 1;
+                probe.putFloat(d * Float.BYTES, 1);
+            }
+            if (simd.dot(ones, probe, 0) != probeLength) {
+                log.warn("SIMD 点积自检结果不正确，使用标量点积");
+                return Scalar.INSTANCE;
+            }
+            log.info("向量检索使用 SIMD 点积：{}", simd.name());
+            return simd;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            log.warn("SIMD 点积初始化失败，使用标量点积：{}", e.toString());
+            return Scalar.INSTANCE;
+        }
+    }
+
+    private static final class Scalar extends DotProduct {
+        private static final Scalar INSTANCE = new Scalar();
+
+        @Override
+        public float dot(float[] query, ByteBuffer matrix, int byteOffset) {
+            float dot = 0;
+            for (int d = 0; d < query.length; d++) {
+                dot += query[d] * matrix.getFloat(byteOffset + d * Float.BYTES);
+            }
+            return dot;
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.anner.embed.search;
+
+/**
+ * HNSW 分层图的邻接关系，构建时为堆内数组，查询时为内存映射的索引文件
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+interface HnswGraph {
+
+    int size();
+
+    int entryPoint();
+
+    int maxLevel();
+
+    /**
+     * 第 0 层的最大邻居数，也是所有层中最大的邻居数
+     */
+    int maxDegree();
+
+    /**
+     * 将节点在 level 层的邻居写入 target，返回邻居数
+     */
+    int neighbors(int node, int level, int[] target);
+}
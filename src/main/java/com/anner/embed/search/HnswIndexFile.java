@@ -0,0 +1,186 @@
+package com.anner.embed.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+/**
+ * 只读打开 {@link HnswIndexBuilder} 生成的 HNSW 索引文件，邻接表通过内存映射直接访问。
+ * 索引只保存图结构和每行向量范数的倒数，向量本身仍从同名的二进制向量文件读取。
+ * <p>
+ * 文件布局（小端序）：
+ * <pre>
+ * 头部 64 字节：magic、version、dimension、m、count(long)、entryPoint、maxLevel、efConstruction、
+ *              保留、upperInts(long)，其余补 0
+ * 范数倒数：count 个 float
+ * 第 0 层：每个节点 2m + 1 个 int，依次为邻居数和邻居行号，不足部分补 0
+ * 上层偏移：每个节点一个 int，指向上层邻接区的起始位置（以 int 计），只在第 0 层的节点为 -1
+ * 上层邻接：节点所在的第 1..L 层依次各占 m + 1 个 int，格式同第 0 层
+ * </pre>
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+final class HnswIndexFile implements HnswGraph, Closeable {
+    static final int MAGIC = 0x57534E48; // 小端序下为 "HNSW"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    private final FileChannel channel;
+    private final int dimension;
+    private final int m;
+    private final int count;
+    private final int entryPoint;
+    private final int maxLevel;
+    private final int efConstruction;
+    private final float[] inverseNorms;
+    private final int nodesPerChunk;
+    private final IntBuffer[] layer0;
+    private final IntBuffer upperIndex;
+    private final IntBuffer upper;
+
+    private HnswIndexFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = map(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不是有效的 HNSW 索引文件");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不支持的 HNSW 索引文件版本：" + version);
+        }
+        this.dimension = header.getInt();
+        this.m = header.getInt();
+        this.count = Math.toIntExact(header.getLong());
+        this.entryPoint = header.getInt();
+        this.maxLevel = header.getInt();
+        this.efConstruction = header.getInt();
+        header.getInt();
+        long upperInts = header.getLong();
+
+        long normsOffset = HEADER_SIZE;
+        long layer0Offset = normsOffset + (long) count * Float.BYTES;
+        long slotBytes = (long) slotInts(m) * Integer.BYTES;
+        long upperIndexOffset = layer0Offset + count * slotBytes;
+        long upperOffset = upperIndexOffset + (long) count * Integer.BYTES;
+        if (channel.size() < upperOffset + upperInts * Integer.BYTES) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "HNSW 索引文件不完整");
+        }
+
+        this.inverseNorms = new float[count];
+        map(normsOffset, (long) count * Float.BYTES).asFloatBuffer().get(inverseNorms);
+        // 第 0 层按整节点分块映射，单个映射不超过 2GB
+        this.nodesPerChunk = (int) (Integer.MAX_VALUE / slotBytes);
+        this.layer0 = new IntBuffer[(count + nodesPerChunk - 1) / nodesPerChunk];
+        for (int i = 0; i < layer0.length; i++) {
+            long firstNode = (long) i * nodesPerChunk;
+            long nodes = Math.min(nodesPerChunk, count - firstNode);
+            layer0[i] = map(layer0Offset + firstNode * slotBytes, nodes * slotBytes).asIntBuffer();
+        }
+        this.upperIndex = map(upperIndexOffset, (long) count * Integer.BYTES).asIntBuffer();
+        this.upper = map(upperOffset, upperInts * Integer.BYTES).asIntBuffer();
+    }
+
+    static HnswIndexFile open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new HnswIndexFile(channel);
+        } catch (IOException | ArithmeticException e) {
+            closeQuietly(channel);
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * 第 0 层每个节点占用的 int 数：邻居数加上最多 2m 个邻居
+     */
+    static int slotInts(int m) {
+        return 2 * m + 1;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int m() {
+        return m;
+    }
+
+    int efConstruction() {
+        return efConstruction;
+    }
+
+    float[] inverseNorms() {
+        return inverseNorms;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int entryPoint() {
+        return entryPoint;
+    }
+
+    @Override
+    public int maxLevel() {
+        return maxLevel;
+    }
+
+    @Override
+    public int maxDegree() {
+        return 2 * m;
+    }
+
+    @Override
+    public int neighbors(int node, int level, int[] target) {
+        IntBuffer buffer;
+        int base;
+        if (level == 0) {
+            buffer = layer0[node / nodesPerChunk];
+            base = (node % nodesPerChunk) * slotInts(m);
+        } else {
+            buffer = upper;
+            base = upperIndex.get(node) + (level - 1) * (m + 1);
+        }
+        int degree = buffer.get(base);
+        buffer.get(base + 1, target, 0, degree);
+        return degree;
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "HNSW 索引文件过大：" + length);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            MappedVectorIndex.closeQuietly(closeable);
+        }
+    }
+}
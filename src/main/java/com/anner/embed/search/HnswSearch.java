@@ -0,0 +1,92 @@
+package com.anner.embed.search;
+
+/**
+ * HNSW 图上的贪心搜索，构建和查询共用。实例持有遍历所需的临时结构，不是线程安全的，
+ * 每次查询或每个构建线程各自创建。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+final class HnswSearch {
+    private final HnswGraph graph;
+    private final VectorRows rows;
+    private final int[] neighbors;
+    private final VisitedNodes visited;
+    private final CandidateQueue candidates;
+
+    HnswSearch(HnswGraph graph, VectorRows rows, int ef) {
+        this.graph = graph;
+        this.rows = rows;
+        this.neighbors = new int[graph.maxDegree()];
+        this.visited = new VisitedNodes(ef * graph.maxDegree());
+        this.candidates = new CandidateQueue(ef);
+    }
+
+    /**
+     * 从入口逐层贪心下降到第 0 层，返回第 0 层与查询最相似的 ef 个节点
+     */
+    TopK search(float[] unitQuery, int ef) {
+        int entry = graph.entryPoint();
+        for (int level = graph.maxLevel(); level > 0; level--) {
+            entry = greedy(unitQuery, entry, level);
+        }
+        return searchLayer(unitQuery, new int[] { entry }, 1, ef, 0);
+    }
+
+    /**
+     * 在 level 层从 entry 出发，每次移动到更相似的邻居，直到没有更相似的邻居
+     */
+    int greedy(float[] unitQuery, int entry, int level) {
+        int current = entry;
+        float best = rows.similarity(unitQuery, entry);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int node = current;
+            int degree = graph.neighbors(node, level, neighbors);
+            for (int i = 0; i < degree; i++) {
+                float score = rows.similarity(unitQuery, neighbors[i]);
+                if (score > best) {
+                    best = score;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在 level 层从入口节点开始扩展，保留最相似的 ef 个节点；
+     * 待扩展节点中最相似的一个也不如结果中最差的一个时停止
+     */
+    TopK searchLayer(float[] unitQuery, int[] entries, int entryCount, int ef, int level) {
+        visited.clear();
+        candidates.clear();
+        TopK results = new TopK(ef);
+        for (int i = 0; i < entryCount; i++) {
+            int entry = entries[i];
+            if (visited.add(entry)) {
+                float score = rows.similarity(unitQuery, entry);
+                candidates.push(entry, score);
+                results.offer(entry, score);
+            }
+        }
+        while (!candidates.isEmpty() && candidates.topScore() >= results.threshold()) {
+            int degree = graph.neighbors(candidates.pop(), level, neighbors);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = neighbors[i];
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float score = rows.similarity(unitQuery, neighbor);
+                if (score > results.threshold()) {
+                    candidates.push(neighbor, score);
+                    results.offer(neighbor, score);
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,91 @@
+package com.anner.embed.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.vector.BinaryVectorFile;
+
+/**
+ * 基于 HNSW 索引的近似检索：图结构和向量矩阵都通过内存映射读取，加载时不需要遍历矩阵，
+ * 每次查询只计算图上访问到的节点的相似度。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+public class HnswVectorIndex implements VectorIndex {
+    private final BinaryVectorFile file;
+    private final HnswIndexFile graph;
+    private final VectorRows rows;
+    private final int efSearch;
+    private final long memoryBytes;
+
+    private HnswVectorIndex(BinaryVectorFile file, HnswIndexFile graph, int efSearch, long memoryBytes) {
+        if (graph.size() != file.count() || graph.dimension() != file.dimension()) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, String.format(
+                    "HNSW 索引与向量文件不匹配：索引 %d 条 %d 维，向量文件 %d 条 %d 维",
+                    graph.size(), graph.dimension(), file.count(), file.dimension()));
+        }
+        this.file = file;
+        this.graph = graph;
+        this.rows = new VectorRows(file, graph.inverseNorms());
+        this.efSearch = efSearch;
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * @param efSearch 查询时保留的候选数，实际取 efSearch 与 topK 中较大的一个
+     */
+    public static HnswVectorIndex open(Path vectorPath, Path indexPath, int efSearch) {
+        BinaryVectorFile file = BinaryVectorFile.open(vectorPath);
+        HnswIndexFile graph = null;
+        try {
+            graph = HnswIndexFile.open(indexPath);
+            long memoryBytes = Files.size(vectorPath) + Files.size(indexPath)
+                    + (long) graph.size() * Float.BYTES;
+            return new HnswVectorIndex(file, graph, efSearch, memoryBytes);
+        } catch (IOException e) {
+            closeAll(file, graph);
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        } catch (RuntimeException e) {
+            closeAll(file, graph);
+            throw e;
+        }
+    }
+
+    @Override
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public List<SearchMatch> search(float[] query, int topK) {
+        if (query.length != file.dimension()) {
+            throw new RagException(RagErrorCode.DIMENSION_MISMATCH,
+                    String.format("查询向量维度 %d 与索引维度 %d 不一致", query.length, file.dimension()));
+        }
+        TopK best = new TopK(Math.max(1, topK));
+        if (graph.size() > 0) {
+            int ef = Math.max(efSearch, best.capacity());
+            best.addAll(new HnswSearch(graph, rows, ef).search(VectorRows.normalize(query), ef));
+        }
+        return MappedVectorIndex.toMatches(file, best);
+    }
+
+    @Override
+    public void close() {
+        closeAll(file, graph);
+    }
+
+    private static void closeAll(BinaryVectorFile file, HnswIndexFile graph) {
+        MappedVectorIndex.closeQuietly(file);
+        if (graph != null) {
+            MappedVectorIndex.closeQuietly(graph);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.anner.embed.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 顺序写出小端序索引文件：先写入同目录的临时文件，{@link #commit()} 时落盘并原子替换目标文件，
+ * 未提交就关闭时删除临时文件，读取方不会看到写了一半的索引。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+final class IndexFileWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long written;
+    private boolean committed;
+
+    IndexFileWriter(Path target) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    IndexFileWriter putInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+        return this;
+    }
+
+    IndexFileWriter putLong(long value) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+        return this;
+    }
+
+    IndexFileWriter putFloat(float value) throws IOException {
+        ensureRemaining(Float.BYTES);
+        buffer.putFloat(value);
+        return this;
+    }
+
+    IndexFileWriter put(byte[] bytes) throws IOException {
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * 当前已写出的字节数
+     */
+    long position() {
+        return written + buffer.position();
+    }
+
+    /**
+     * 补 0 直到 offset，用于对齐定长头部
+     */
+    IndexFileWriter padTo(long offset) throws IOException {
+        while (position() < offset) {
+            ensureRemaining(1);
+            buffer.put((byte) 0);
+        }
+        return this;
+    }
+
+    /**
+     * 不经过顺序写缓冲区，直接把 bytes 的剩余内容写到 offset 处。
+     * 用于在顺序写出的部分之后按槽位填充数据区，写入区域不能与顺序写出的部分重叠
+     */
+    void writeAt(long offset, ByteBuffer bytes) throws IOException {
+        long base = offset - bytes.position();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, base + bytes.position());
+        }
+    }
+
+    /**
+     * 写出剩余数据并落盘，再用临时文件替换目标文件
+     */
+    void commit() throws IOException {
+        flush();
+        channel.force(true);
+        channel.close();
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,259 @@
+package com.anner.embed.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.vector.BinaryVectorFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 为二进制向量文件构建 IVF 倒排索引：在抽样的归一化向量上训练球面 k-means 聚类中心，
+ * 再把每行分配到最相似的中心，按中心分组写入倒排表，布局见 {@link IvfIndexFile}。
+ * 分配阶段按行区间拆分到 ForkJoinPool 并行计算。构建时堆内只保存样本、聚类中心和每行所属的中心编号，
+ * 写出向量时按行顺序读取映射的向量文件，再写到所属倒排表的下一个槽位。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/13
+ */
+@Slf4j
+public class IvfIndexBuilder {
+    private static final long SEED = 42;
+    // 单个并行分配子任务处理的行数
+    private static final int SPLIT_ROWS = 4096;
+
+    private final int lists;
+    private final int sampleSize;
+    private final int iterations;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param lists      聚类中心数，为 0 时取向量数的平方根
+     * @param sampleSize 训练聚类中心使用的最大样本数
+     * @param iterations k-means 的最大迭代次数
+     * @param pool       并行分配向量使用的线程池，为 null 时在调用线程中顺序分配
+     */
+    public IvfIndexBuilder(int lists, int sampleSize, int iterations, ForkJoinPool pool) {
+        if (lists < 0 || sampleSize < 1 || iterations < 1) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, String.format(
+                    "IVF 参数无效：lists=%d, sampleSize=%d, iterations=%d", lists, sampleSize, iterations));
+        }
+        this.lists = lists;
+        this.sampleSize = sampleSize;
+        this.iterations = iterations;
+        this.pool = pool;
+    }
+
+    /**
+     * 读取向量文件构建索引并写入 indexPath，返回倒排表数
+     */
+    public int build(Path vectorPath, Path indexPath) {
+        try (BinaryVectorFile file = BinaryVectorFile.open(vectorPath)) {
+            if (file.count() == 0 || file.count() > Integer.MAX_VALUE) {
+                throw new RagException(RagErrorCode.INDEX_BUILD_FAILED, "向量条数不支持 IVF 索引：" + file.count());
+            }
+            DotProduct dotProduct = DotProduct.preferred();
+            VectorRows rows = new VectorRows(file, MappedVectorIndex.inverseNorms(file), dotProduct);
+            SplittableRandom random = new SplittableRandom(SEED);
+            float[][] sample = rows.sample(sampleSize, random);
+            int k = lists > 0 ? lists : (int) Math.round(Math.sqrt(rows.size()));
+            Centroids centroids = train(sample, Math.max(1, Math.min(k, sample.length)), dotProduct, random);
+
+            long start = System.currentTimeMillis();
+            int[] assignment = new int[rows.size()];
+            AssignTask assign = new AssignTask(rows, centroids, assignment, 0, assignment.length);
+            if (pool == null || assignment.length <= SPLIT_ROWS) {
+                assign.compute();
+            } else {
+                pool.invoke(assign);
+            }
+            long[] offsets = new long[centroids.count + 1];
+            for (int list : assignment) {
+                offsets[list + 1]++;
+            }
+            for (int list = 0; list < centroids.count; list++) {
+                offsets[list + 1] += offsets[list];
+            }
+            log.debug("IVF 向量分配完成：{} 行，{} 个倒排表，耗时 {}ms", assignment.length, centroids.count,
+                    System.currentTimeMillis() - start);
+            write(indexPath, rows, centroids, assignment, offsets);
+            return centroids.count;
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.INDEX_BUILD_FAILED, e);
+        }
+    }
+
+    /**
+     * 球面 k-means：按点积分配样本，新中心取簇内样本均值再归一化，空簇用随机样本重新填充
+     */
+    private Centroids train(float[][] sample, int k, DotProduct dotProduct, SplittableRandom random) {
+        int dimension = sample[0].length;
+        Centroids centroids = new Centroids(k, dimension, dotProduct);
+        int[] order = new int[sample.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int c = 0; c < k; c++) {
+            int pick = c + random.nextInt(order.length - c);
+            int swap = order[c];
+            order[c] = order[pick];
+            order[pick] = swap;
+            centroids.set(c, sample[order[c]]);
+        }
+
+        int[] assignment = new int[sample.length];
+        double[] sums = new double[k * dimension];
+        float[] center = new float[dimension];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            boolean changed = iteration == 0;
+            Arrays.fill(sums, 0);
+            for (int i = 0; i < sample.length; i++) {
+                int nearest = centroids.nearest(sample[i]);
+                changed |= nearest != assignment[i];
+                assignment[i] = nearest;
+                for (int d = 0; d < dimension; d++) {
+                    sums[nearest * dimension + d] += sample[i][d];
+                }
+            }
+            if (!changed) {
+                break;
+            }
+            for (int c = 0; c < k; c++) {
+                double norm = 0;
+                for (int d = 0; d < dimension; d++) {
+                    norm += sums[c * dimension + d] * sums[c * dimension + d];
+                }
+                if (norm == 0) {
+                    centroids.set(c, sample[random.nextInt(sample.length)]);
+                    continue;
+                }
+                double scale = 1 / Math.sqrt(norm);
+                for (int d = 0; d < dimension; d++) {
+                    center[d] = (float) (sums[c * dimension + d] * scale);
+                }
+                centroids.set(c, center);
+            }
+        }
+        return centroids;
+    }
+
+    private static void write(Path target, VectorRows rows, Centroids centroids, int[] assignment, long[] offsets)
+            throws IOException {
+        // 按倒排表分组的行号顺序，同一倒排表内保持原始行序
+        int[] order = new int[assignment.length];
+        long[] next = offsets.clone();
+        for (int row = 0; row < assignment.length; row++) {
+            order[(int) next[assignment[row]]++] = row;
+        }
+        try (IndexFileWriter writer = new IndexFileWriter(target)) {
+            writer.putInt(IvfIndexFile.MAGIC).putInt(IvfIndexFile.VERSION).putInt(rows.dimension())
+                    .putInt(centroids.count).putLong(assignment.length)
+                    .padTo(IvfIndexFile.HEADER_SIZE);
+            for (int i = 0; i < centroids.count * rows.dimension(); i++) {
+                writer.putFloat(centroids.vectors.getFloat(i * Float.BYTES));
+            }
+            for (long offset : offsets) {
+                writer.putLong(offset);
+            }
+            for (int row : order) {
+                writer.putInt(row);
+            }
+            // 按行顺序读取向量文件，逐行写到所属倒排表的下一个槽位，避免按倒排表顺序随机读取映射文件
+            long vectorsStart = writer.position();
+            long rowBytes = (long) rows.dimension() * Float.BYTES;
+            next = offsets.clone();
+            float[] unit = new float[rows.dimension()];
+            ByteBuffer slot = ByteBuffer.allocate((int) rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (int row = 0; row < assignment.length; row++) {
+                rows.unitVector(row, unit);
+                slot.clear();
+                slot.asFloatBuffer().put(unit);
+                writer.writeAt(vectorsStart + next[assignment[row]]++ * rowBytes, slot);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * 按行区间对半拆分，把每行分配到最相似的聚类中心
+     */
+    private static final class AssignTask extends RecursiveAction {
+        private final VectorRows rows;
+        private final Centroids centroids;
+        private final int[] assignment;
+        private final int from;
+        private final int to;
+
+        private AssignTask(VectorRows rows, Centroids centroids, int[] assignment, int from, int to) {
+            this.rows = rows;
+            this.centroids = centroids;
+            this.assignment = assignment;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_ROWS) {
+                float[] unit = new float[rows.dimension()];
+                for (int row = from; row < to; row++) {
+                    assignment[row] = centroids.nearest(rows.unitVector(row, unit));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AssignTask(rows, centroids, assignment, from, middle),
+                    new AssignTask(rows, centroids, assignment, middle, to));
+        }
+    }
+
+    /**
+     * 归一化的聚类中心，保存在小端序堆内缓冲区中，与映射的向量矩阵共用点积实现
+     */
+    private static final class Centroids {
+        private final int count;
+        private final int dimension;
+        private final ByteBuffer vectors;
+        private final DotProduct dotProduct;
+
+        private Centroids(int count, int dimension, DotProduct dotProduct) {
+            this.count = count;
+            this.dimension = dimension;
+            this.vectors = ByteBuffer.allocate(count * dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            this.dotProduct = dotProduct;
+        }
+
+        void set(int centroid, float[] vector) {
+            int base = centroid * dimension * Float.BYTES;
+            for (int d = 0; d < dimension; d++) {
+                vectors.putFloat(base + d * Float.BYTES, vector[d]);
+            }
+        }
+
+        /**
+         * 与归一化向量点积最大的中心编号
+         */
+        int nearest(float[] unitVector) {
+            int best = 0;
+            float bestScore = Float.NEGATIVE_INFINITY;
+            int rowBytes = dimension * Float.BYTES;
+            for (int c = 0; c < count; c++) {
+                float score = dotProduct.dot(unitVector, vectors, c * rowBytes);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = c;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.anner.embed.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+/**
+ * 只读打开 {@link IvfIndexBuilder} 生成的 IVF 索引文件。只有聚类中心和各倒排表的起止位置读入堆内，
+ * 倒排表中的行号和向量通过内存映射按需访问，查询只会读入被探查的倒排表所在的页。
+ * <p>
+ * 文件布局（小端序）：
+ * <pre>
+ * 头部 64 字节：magic、version、dimension、lists、count(long)，其余补 0
+ * 聚类中心：lists 行，每行 dimension 个 float，已归一化
+ * 倒排表位置：lists + 1 个 long，第 i 个倒排表占 [offsets[i], offsets[i + 1]) 个位置
+ * 行号：count 个 int，按倒排表顺序排列，对应二进制向量文件中的行号
+ * 向量：count 行，每行 dimension 个 float，已归一化，顺序与行号一致
+ * </pre>
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/13
+ */
+final class IvfIndexFile implements Closeable {
+    static final int MAGIC = 0x4C465649; // 小端序下为 "IVFL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    private final FileChannel channel;
+    private final int dimension;
+    private final int lists;
+    private final int count;
+    private final ByteBuffer centroids;
+    private final long[] offsets;
+    private final IntBuffer rowIds;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] vectors;
+    private final long vectorBytes;
+
+    private IvfIndexFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = map(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不是有效的 IVF 索引文件");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不支持的 IVF 索引文件版本：" + version);
+        }
+        this.dimension = header.getInt();
+        this.lists = header.getInt();
+        this.count = Math.toIntExact(header.getLong());
+        if (dimension < 1 || lists < 1) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "IVF 索引文件头部无效");
+        }
+
+        long rowBytes = (long) dimension * Float.BYTES;
+        long centroidsOffset = HEADER_SIZE;
+        long offsetsOffset = centroidsOffset + lists * rowBytes;
+        long rowIdsOffset = offsetsOffset + (lists + 1L) * Long.BYTES;
+        long vectorsOffset = rowIdsOffset + (long) count * Integer.BYTES;
+        this.vectorBytes = count * rowBytes;
+        if (channel.size() < vectorsOffset + vectorBytes) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "IVF 索引文件不完整");
+        }
+
+        // 聚类中心复制到堆内，逐个计算与查询的点积
+        this.centroids = ByteBuffer.allocate(Math.toIntExact(lists * rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        centroids.put(map(centroidsOffset, lists * rowBytes)).clear();
+        this.offsets = new long[lists + 1];
+        map(offsetsOffset, (lists + 1L) * Long.BYTES).asLongBuffer().get(offsets);
+        if (offsets[0] != 0 || offsets[lists] != count) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "IVF 倒排表位置无效");
+        }
+        this.rowIds = map(rowIdsOffset, (long) count * Integer.BYTES).asIntBuffer();
+        // 向量按整行分块映射，单个映射不超过 2GB
+        this.rowsPerChunk = (int) Math.max(1, Integer.MAX_VALUE / rowBytes);
+        this.vectors = new ByteBuffer[(count + rowsPerChunk - 1) / rowsPerChunk];
+        for (int i = 0; i < vectors.length; i++) {
+            long first = (long) i * rowsPerChunk;
+            long rows = Math.min(rowsPerChunk, count - first);
+            vectors[i] = map(vectorsOffset + first * rowBytes, rows * rowBytes);
+        }
+    }
+
+    static IvfIndexFile open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new IvfIndexFile(channel);
+        } catch (IOException | ArithmeticException e) {
+            closeQuietly(channel);
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int lists() {
+        return lists;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * 倒排表中全部向量和行号的字节数，查询平均只访问其中 nprobe / lists
+     */
+    long postingBytes() {
+        return vectorBytes + (long) count * Integer.BYTES;
+    }
+
+    /**
+     * 常驻堆内的聚类中心和倒排表位置的字节数
+     */
+    long heapBytes() {
+        return centroids.capacity() + (long) offsets.length * Long.BYTES;
+    }
+
+    /**
+     * 与查询最相似的 nprobe 个聚类中心编号，按相似度从高到低排列
+     */
+    long[] probe(DotProduct dotProduct, float[] unitQuery, int nprobe) {
+        TopK nearest = new TopK(Math.min(nprobe, lists));
+        int rowBytes = dimension * Float.BYTES;
+        for (int list = 0; list < lists; list++) {
+            nearest.offer(list, dotProduct.dot(unitQuery, centroids, list * rowBytes));
+        }
+        return nearest.drainRows(new float[nearest.size()]);
+    }
+
+    long listStart(int list) {
+        return offsets[list];
+    }
+
+    long listEnd(int list) {
+        return offsets[list + 1];
+    }
+
+    /**
+     * 倒排表中第 position 个向量在二进制向量文件中的行号
+     */
+    int rowId(int position) {
+        return rowIds.get(position);
+    }
+
+    /**
+     * 归一化后的查询向量与倒排表中第 position 个向量的余弦相似度
+     */
+    float similarity(DotProduct dotProduct, float[] unitQuery, int position) {
+        int byteOffset = (position % rowsPerChunk) * dimension * Float.BYTES;
+        return dotProduct.dot(unitQuery, vectors[position / rowsPerChunk], byteOffset);
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "IVF 索引文件过大：" + length);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            MappedVectorIndex.closeQuietly(closeable);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.anner.embed.search;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.vector.BinaryVectorFile;
+
+/**
+ * 基于 IVF 倒排索引的近似检索：先找出与查询最相似的 nprobe 个聚类中心，只扫描这些中心的倒排表。
+ * 堆内只保存聚类中心，倒排表通过内存映射读取，适合向量总量超过可用内存的任务。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/13
+ */
+public class IvfVectorIndex implements VectorIndex {
+    private final BinaryVectorFile file;
+    private final IvfIndexFile index;
+    private final DotProduct dotProduct;
+    private final int nprobe;
+
+    private IvfVectorIndex(BinaryVectorFile file, IvfIndexFile index, DotProduct dotProduct, int nprobe) {
+        if (index.size() != file.count() || index.dimension() != file.dimension()) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, String.format(
+                    "IVF 索引与向量文件不匹配：索引 %d 条 %d 维，向量文件 %d 条 %d 维",
+                    index.size(), index.dimension(), file.count(), file.dimension()));
+        }
+        this.file = file;
+        this.index = index;
+        this.dotProduct = dotProduct;
+        this.nprobe = Math.max(1, Math.min(nprobe, index.lists()));
+    }
+
+    /**
+     * @param nprobe 每次查询扫描的倒排表数，越大召回率越高、延迟越高
+     */
+    public static IvfVectorIndex open(Path vectorPath, Path indexPath, int nprobe) {
+        BinaryVectorFile file = BinaryVectorFile.open(vectorPath);
+        IvfIndexFile index = null;
+        try {
+            index = IvfIndexFile.open(indexPath);
+            return new IvfVectorIndex(file, index, DotProduct.preferred(), nprobe);
+        } catch (RuntimeException e) {
+            closeAll(file, index);
+            throw e;
+        }
+    }
+
+    /**
+     * 堆内的聚类中心加上平均每次查询访问的倒排表字节数，向量文件中只有命中行的文本段会被读入
+     */
+    @Override
+    public long memoryBytes() {
+        return index.heapBytes() + index.postingBytes() / index.lists() * nprobe;
+    }
+
+    @Override
+    public List<SearchMatch> search(float[] query, int topK) {
+        if (query.length != file.dimension()) {
+            throw new RagException(RagErrorCode.DIMENSION_MISMATCH,
+                    String.format("查询向量维度 %d 与索引维度 %d 不一致", query.length, file.dimension()));
+        }
+        float[] unitQuery = VectorRows.normalize(query);
+        TopK best = new TopK(Math.max(1, topK));
+        for (long list : index.probe(dotProduct, unitQuery, nprobe)) {
+            int end = (int) index.listEnd((int) list);
+            for (int position = (int) index.listStart((int) list); position < end; position++) {
+                best.offer(index.rowId(position), index.similarity(dotProduct, unitQuery, position));
+            }
+        }
+        return MappedVectorIndex.toMatches(file, best);
+    }
+
+    @Override
+    public void close() {
+        closeAll(file, index);
+    }
+
+    private static void closeAll(BinaryVectorFile file, IvfIndexFile index) {
+        MappedVectorIndex.closeQuietly(file);
+        if (index != null) {
+            MappedVectorIndex.closeQuietly(index);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.anner.embed.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.SearchMatch;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * 只有 JSON 向量文件的任务使用的索引，整个文件加载为 {@link InMemoryEmbeddingStore}。
+ * 内存占用明显高于二进制文件，仅作为兼容只输出 JSON 的任务的回退方式。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+public class JsonVectorIndex implements VectorIndex {
+    private final InMemoryEmbeddingStore<TextSegment> store;
+    private final long memoryBytes;
+
+    private JsonVectorIndex(InMemoryEmbeddingStore<TextSegment> store, long memoryBytes) {
+        this.store = store;
+        this.memoryBytes = memoryBytes;
+    }
+
+    public static JsonVectorIndex load(Path path) {
+        try {
+            long fileBytes = Files.size(path);
+            // 装箱后的内存占用与 JSON 文本大小相当，按文件大小估算即可满足预算控制的需要
+            return new JsonVectorIndex(InMemoryEmbeddingStore.fromFile(path), fileBytes);
+        } catch (IOException | RuntimeException e) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        }
+    }
+
+    @Override
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public List<SearchMatch> search(float[] query, int topK) {
+        List<EmbeddingMatch<TextSegment>> found;
+        try {
+            found = store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(query))
+                    .maxResults(Math.max(1, topK))
+                    .minScore(0.0)
+                    .build()).matches();
+        } catch (IllegalArgumentException e) {
+            // 余弦相似度计算要求两个向量长度一致
+            throw new RagException(RagErrorCode.DIMENSION_MISMATCH, e.getMessage());
+        }
+        List<SearchMatch> matches = new ArrayList<>(found.size());
+        for (EmbeddingMatch<TextSegment> match : found) {
+            TextSegment segment = match.embedded();
+            // InMemoryEmbeddingStore 的得分为 (cos + 1) / 2，换算回余弦相似度与其他索引保持一致
+            matches.add(new SearchMatch(match.embeddingId(), match.score() * 2 - 1,
+                    segment != null ? segment.text() : null,
+                    segment != null ? segment.metadata().toMap() : null));
+        }
+        return matches;
+    }
+
+    @Override
+    public void close() {
+        // 纯内存结构，移出缓存后由垃圾回收释放
+    }
+}
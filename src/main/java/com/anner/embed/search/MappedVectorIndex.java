@@ -0,0 +1,151 @@
+package com.anner.embed.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.vector.BinaryVectorFile;
+
+import dev.langchain4j.data.segment.TextSegment;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于二进制向量文件的精确检索：向量矩阵通过内存映射读取，加载时只计算每行的范数倒数，
+ * 查询时逐行计算余弦相似度并保留 topK，命中行的文本段按需从文件读取。
+ * 点积由 {@link DotProduct} 计算，行数较多时由 {@link TopKScan} 拆分到 ForkJoinPool 并行扫描。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+@Slf4j
+public class MappedVectorIndex implements VectorIndex {
+    private final BinaryVectorFile file;
+    private final long fileBytes;
+    private final float[] inverseNorms;
+    private final VectorRows rows;
+    private final ForkJoinPool pool;
+
+    private MappedVectorIndex(BinaryVectorFile file, long fileBytes, DotProduct dotProduct, ForkJoinPool pool) {
+        this.file = file;
+        this.fileBytes = fileBytes;
+        if (file.count() > Integer.MAX_VALUE) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "向量条数超出单个索引的上限：" + file.count());
+        }
+        this.inverseNorms = inverseNorms(file);
+        this.rows = new VectorRows(file, inverseNorms, dotProduct);
+        this.pool = pool;
+    }
+
+    public static MappedVectorIndex open(Path path) {
+        return open(path, DotProduct.preferred(), null);
+    }
+
+    /**
+     * @param pool 并行扫描使用的线程池，为 null 时在调用线程中顺序扫描
+     */
+    public static MappedVectorIndex open(Path path, DotProduct dotProduct, ForkJoinPool pool) {
+        BinaryVectorFile file = BinaryVectorFile.open(path);
+        try {
+            return new MappedVectorIndex(file, Files.size(path), dotProduct, pool);
+        } catch (IOException e) {
+            closeQuietly(file);
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        } catch (RuntimeException e) {
+            closeQuietly(file);
+            throw e;
+        }
+    }
+
+    public int dimension() {
+        return file.dimension();
+    }
+
+    public long size() {
+        return file.count();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return fileBytes + (long) inverseNorms.length * Float.BYTES;
+    }
+
+    @Override
+    public List<SearchMatch> search(float[] query, int topK) {
+        int dimension = file.dimension();
+        if (query.length != dimension) {
+            throw new RagException(RagErrorCode.DIMENSION_MISMATCH,
+                    String.format("查询向量维度 %d 与索引维度 %d 不一致", query.length, dimension));
+        }
+        float[] unitQuery = VectorRows.normalize(query);
+        TopK best = TopKScan.scan(rows.size(), Math.max(1, topK), row -> rows.similarity(unitQuery, row), pool);
+        return toMatches(file, best);
+    }
+
+    /**
+     * 计算每行向量范数的倒数，零向量记为 0，使其与任何查询的相似度都为 0
+     */
+    static float[] inverseNorms(BinaryVectorFile file) {
+        float[] inverseNorms = new float[(int) file.count()];
+        int dimension = file.dimension();
+        for (int chunk = 0; chunk < file.chunkCount(); chunk++) {
+            FloatBuffer matrix = file.chunk(chunk);
+            long firstRow = (long) chunk * file.rowsPerChunk();
+            int rows = matrix.limit() / dimension;
+            for (int i = 0; i < rows; i++) {
+                double norm = 0;
+                int base = i * dimension;
+                for (int d = 0; d < dimension; d++) {
+                    float value = matrix.get(base + d);
+                    norm += value * value;
+                }
+                inverseNorms[(int) (firstRow + i)] = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+            }
+        }
+        return inverseNorms;
+    }
+
+    /**
+     * 将 topK 行转换为检索结果，只有命中的行才会读取文本和元数据
+     */
+    static List<SearchMatch> toMatches(BinaryVectorFile file, TopK best) {
+        float[] scores = new float[best.size()];
+        long[] rows = best.drainRows(scores);
+        List<SearchMatch> matches = new ArrayList<>(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            TextSegment segment = file.segment(rows[i]);
+            matches.add(new SearchMatch(String.valueOf(rows[i]), scores[i], segment.text(),
+                    segment.metadata().toMap()));
+        }
+        return matches;
+    }
+
+    static float inverseNorm(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        return norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(file);
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("关闭索引文件失败：{}", e.getMessage());
+        }
+    }
+}
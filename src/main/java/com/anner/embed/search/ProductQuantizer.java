@@ -0,0 +1,197 @@
+package com.anner.embed.search;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationType;
+
+/**
+ * 乘积量化（PQ）：向量按维度切成若干子空间，每个子空间用 k-means 训练最多 256 个中心，
+ * 编码为各子空间最近中心的编号，每个子空间 1 字节。
+ * 查询时先算出查询在每个子空间与全部中心的内积作为查找表，每行的得分只需按编码查表求和。
+ * <p>
+ * 码本布局：子空间 j 的维度区间为 [start(j), start(j + 1))，宽度为 w，其 K 个中心连续存放，
+ * 从 K * start(j) 开始，每个中心 w 个 float，总长度为 K * dimension。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+final class ProductQuantizer extends VectorQuantizer {
+    private static final int MAX_CENTROIDS = 256;
+
+    private final int dimension;
+    private final int subspaces;
+    private final int centroids;
+    private final int[] starts;
+    private final float[] codebook;
+
+    private ProductQuantizer(int dimension, int subspaces, int centroids, float[] codebook) {
+        this.dimension = dimension;
+        this.subspaces = subspaces;
+        this.centroids = centroids;
+        this.starts = starts(dimension, subspaces);
+        this.codebook = codebook;
+    }
+
+    /**
+     * @param subvectorDimension 每个子空间的维数，维度不能整除时各子空间宽度相差不超过 1
+     */
+    static ProductQuantizer train(float[][] sample, int subvectorDimension, int iterations,
+            SplittableRandom random) {
+        int dimension = sample[0].length;
+        int subspaces = Math.min(dimension, (dimension + subvectorDimension - 1) / subvectorDimension);
+        int centroids = Math.min(MAX_CENTROIDS, sample.length);
+        int[] starts = starts(dimension, subspaces);
+        float[] codebook = new float[centroids * dimension];
+        for (int j = 0; j < subspaces; j++) {
+            float[] centers = kMeans(sample, starts[j], starts[j + 1] - starts[j], centroids, iterations, random);
+            System.arraycopy(centers, 0, codebook, centroids * starts[j], centers.length);
+        }
+        return new ProductQuantizer(dimension, subspaces, centroids, codebook);
+    }
+
+    static ProductQuantizer of(int dimension, int codeBytes, float[] parameters) {
+        if (codeBytes < 1 || codeBytes > dimension || parameters.length % dimension != 0
+                || parameters.length / dimension > MAX_CENTROIDS || parameters.length == 0) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "乘积量化码本无效：" + parameters.length);
+        }
+        return new ProductQuantizer(dimension, codeBytes, parameters.length / dimension, parameters);
+    }
+
+    private static int[] starts(int dimension, int subspaces) {
+        int[] starts = new int[subspaces + 1];
+        for (int j = 0; j <= subspaces; j++) {
+            starts[j] = j * dimension / subspaces;
+        }
+        return starts;
+    }
+
+    /**
+     * 在样本的 [from, from + width) 维上做 Lloyd k-means，随机选取样本初始化，空簇用随机样本重新填充
+     */
+    private static float[] kMeans(float[][] sample, int from, int width, int k, int iterations,
+            SplittableRandom random) {
+        int n = sample.length;
+        float[] centers = new float[k * width];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int c = 0; c < k; c++) {
+            int pick = c + random.nextInt(n - c);
+            int swap = order[c];
+            order[c] = order[pick];
+            order[pick] = swap;
+            System.arraycopy(sample[order[c]], from, centers, c * width, width);
+        }
+
+        int[] assignment = new int[n];
+        Arrays.fill(assignment, -1);
+        double[] sums = new double[k * width];
+        int[] sizes = new int[k];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            boolean changed = false;
+            Arrays.fill(sums, 0);
+            Arrays.fill(sizes, 0);
+            for (int i = 0; i < n; i++) {
+                int nearest = nearest(centers, 0, k, width, sample[i], from);
+                changed |= nearest != assignment[i];
+                assignment[i] = nearest;
+                sizes[nearest]++;
+                for (int d = 0; d < width; d++) {
+                    sums[nearest * width + d] += sample[i][from + d];
+                }
+            }
+            if (!changed) {
+                break;
+            }
+            for (int c = 0; c < k; c++) {
+                if (sizes[c] == 0) {
+                    System.arraycopy(sample[random.nextInt(n)], from, centers, c * width, width);
+                    continue;
+                }
+                for (int d = 0; d < width; d++) {
+                    centers[c * width + d] = (float) (sums[c * width + d] / sizes[c]);
+                }
+            }
+        }
+        return centers;
+    }
+
+    /**
+     * centers 中从 base 开始的 k 个中心里，与 vector 在 [from, from + width) 维上欧氏距离最近的编号
+     */
+    private static int nearest(float[] centers, int base, int k, int width, float[] vector, int from) {
+        int best = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            float distance = 0;
+            int center = base + c * width;
+            for (int d = 0; d < width; d++) {
+                float diff = vector[from + d] - centers[center + d];
+                distance += diff * diff;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    QuantizationType type() {
+        return QuantizationType.PQ;
+    }
+
+    @Override
+    int dimension() {
+        return dimension;
+    }
+
+    @Override
+    int codeBytes() {
+        return subspaces;
+    }
+
+    @Override
+    float[] parameters() {
+        return codebook.clone();
+    }
+
+    @Override
+    void encode(float[] unitVector, byte[] code) {
+        for (int j = 0; j < subspaces; j++) {
+            int width = starts[j + 1] - starts[j];
+            code[j] = (byte) nearest(codebook, centroids * starts[j], centroids, width, unitVector, starts[j]);
+        }
+    }
+
+    @Override
+    CodeScorer scorer(float[] unitQuery) {
+        float[] table = new float[subspaces * centroids];
+        for (int j = 0; j < subspaces; j++) {
+            int width = starts[j + 1] - starts[j];
+            int base = centroids * starts[j];
+            for (int c = 0; c < centroids; c++) {
+                float dot = 0;
+                for (int d = 0; d < width; d++) {
+                    dot += unitQuery[starts[j] + d] * codebook[base + c * width + d];
+                }
+                table[j * centroids + c] = dot;
+            }
+        }
+        int k = centroids;
+        int m = subspaces;
+        return (codes, offset) -> {
+            float score = 0;
+            for (int j = 0; j < m; j++) {
+                score += table[j * k + (codes.get(offset + j) & 0xFF)];
+            }
+            return score;
+        };
+    }
+}
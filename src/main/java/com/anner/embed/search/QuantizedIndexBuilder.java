@@ -0,0 +1,141 @@
+package com.anner.embed.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationReport;
+import com.anner.embed.model.QuantizationType;
+import com.anner.embed.vector.BinaryVectorFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 为二进制向量文件生成量化向量：从全部行中均匀抽样训练量化参数，再逐行编码，按
+ * {@link QuantizedVectorFile} 的布局写入临时文件后原子替换。
+ * <p>
+ * 写出后用随机抽取的行作为查询，分别在原始向量上精确检索和在编码上用非对称距离检索，
+ * 以两者 top10 的重合比例作为召回率，与压缩比一起写入报告。查询行自身不计入结果。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+@Slf4j
+public class QuantizedIndexBuilder {
+    private static final long SEED = 42;
+    private static final int RECALL_K = 10;
+
+    private final int sampleSize;
+    private final int subvectorDimension;
+    private final int iterations;
+    private final int evaluationQueries;
+
+    /**
+     * @param sampleSize         训练使用的最大样本数
+     * @param subvectorDimension 乘积量化每个子空间的维数，越小编码越长、精度越高
+     * @param iterations         乘积量化 k-means 的最大迭代次数
+     * @param evaluationQueries  测量召回率使用的查询数，为 0 时不测量
+     */
+    public QuantizedIndexBuilder(int sampleSize, int subvectorDimension, int iterations, int evaluationQueries) {
+        if (sampleSize < 1 || subvectorDimension < 1 || iterations < 1 || evaluationQueries < 0) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, String.format(
+                    "量化参数无效：sampleSize=%d, subvectorDimension=%d, iterations=%d, evaluationQueries=%d",
+                    sampleSize, subvectorDimension, iterations, evaluationQueries));
+        }
+        this.sampleSize = sampleSize;
+        this.subvectorDimension = subvectorDimension;
+        this.iterations = iterations;
+        this.evaluationQueries = evaluationQueries;
+    }
+
+    /**
+     * 读取向量文件训练并写出 type 类型的量化向量到 target，返回压缩比和召回率
+     */
+    public QuantizationReport build(QuantizationType type, Path vectorPath, Path target) {
+        try (BinaryVectorFile file = BinaryVectorFile.open(vectorPath)) {
+            if (file.count() == 0 || file.count() > Integer.MAX_VALUE) {
+                throw new RagException(RagErrorCode.INDEX_BUILD_FAILED, "向量条数不支持量化：" + file.count());
+            }
+            VectorRows rows = new VectorRows(file, MappedVectorIndex.inverseNorms(file));
+            SplittableRandom random = new SplittableRandom(SEED);
+            long start = System.nanoTime();
+            float[][] sample = rows.sample(sampleSize, random);
+            VectorQuantizer quantizer = VectorQuantizer.train(type, sample, subvectorDimension, iterations, random);
+            log.debug("{} 量化训练完成，样本 {} 条，每条编码 {} 字节", type, sample.length, quantizer.codeBytes());
+            write(target, rows, quantizer);
+
+            QuantizationReport report = new QuantizationReport();
+            report.setType(type);
+            report.setFilePath(target.toAbsolutePath().toString());
+            report.setBytesPerVector(quantizer.codeBytes());
+            report.setCompressionRatio((double) rows.dimension() * Float.BYTES / quantizer.codeBytes());
+            report.setTrainingSamples(sample.length);
+            report.setTrainingMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            try (QuantizedVectorFile codes = QuantizedVectorFile.open(target)) {
+                evaluate(rows, codes, random, report);
+            }
+            return report;
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.INDEX_BUILD_FAILED, e);
+        }
+    }
+
+    private static void write(Path target, VectorRows rows, VectorQuantizer quantizer) throws IOException {
+        try (IndexFileWriter writer = new IndexFileWriter(target)) {
+            QuantizedVectorFile.writeHeader(writer, quantizer, rows.size());
+            float[] unit = new float[rows.dimension()];
+            byte[] code = new byte[quantizer.codeBytes()];
+            for (int row = 0; row < rows.size(); row++) {
+                quantizer.encode(rows.unitVector(row, unit), code);
+                writer.put(code);
+            }
+            writer.commit();
+        }
+    }
+
+    private void evaluate(VectorRows rows, QuantizedVectorFile codes, SplittableRandom random,
+            QuantizationReport report) {
+        int queries = Math.min(evaluationQueries, rows.size());
+        // 排除查询行自身后至少要剩一个候选
+        if (queries == 0 || rows.size() < 2) {
+            return;
+        }
+        double recall = 0;
+        float[] unitQuery = new float[rows.dimension()];
+        for (int i = 0; i < queries; i++) {
+            int queryRow = random.nextInt(rows.size());
+            rows.unitVector(queryRow, unitQuery);
+            VectorQuantizer.CodeScorer scorer = codes.quantizer().scorer(unitQuery);
+            Set<Long> exact = topRows(TopKScan.scan(rows.size(), RECALL_K + 1,
+                    row -> rows.similarity(unitQuery, row), null), queryRow);
+            Set<Long> approximate = topRows(TopKScan.scan(rows.size(), RECALL_K + 1,
+                    row -> codes.score(scorer, row), null), queryRow);
+            int expected = exact.size();
+            exact.retainAll(approximate);
+            recall += (double) exact.size() / expected;
+        }
+        report.setEvaluatedQueries(queries);
+        report.setRecallAt10(recall / queries);
+        report.setRecallLoss(1 - report.getRecallAt10());
+    }
+
+    /**
+     * 按得分从高到低取除 excludedRow 外的前 {@link #RECALL_K} 个行号
+     */
+    private static Set<Long> topRows(TopK best, long excludedRow) {
+        long[] rows = best.drainRows(new float[best.size()]);
+        Set<Long> top = new HashSet<>();
+        for (int i = 0; i < rows.length && top.size() < RECALL_K; i++) {
+            if (rows[i] != excludedRow) {
+                top.add(rows[i]);
+            }
+        }
+        return top;
+    }
+}
@@ -0,0 +1,153 @@
+package com.anner.embed.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationType;
+
+/**
+ * 只读打开 {@link QuantizedIndexBuilder} 生成的量化向量文件，编码矩阵通过内存映射直接访问。
+ * 文件只保存编码，行号与同名二进制向量文件一一对应，文本段仍从二进制向量文件读取。
+ * <p>
+ * 文件布局（小端序）：
+ * <pre>
+ * 头部 64 字节：magic、version、量化类型、dimension、count(long)、codeBytes、参数个数，其余补 0
+ * 训练参数：参数个数个 float，标量量化为每维最小值和步长，乘积量化为码本
+ * 编码：count 行，每行 codeBytes 字节
+ * </pre>
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+final class QuantizedVectorFile implements Closeable {
+    static final int MAGIC = 0x51564546; // 小端序下为 "FEVQ"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    private final FileChannel channel;
+    private final VectorQuantizer quantizer;
+    private final int count;
+    private final int codeBytes;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] chunks;
+
+    private QuantizedVectorFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = map(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不是有效的量化向量文件");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不支持的量化向量文件版本：" + version);
+        }
+        int typeCode = header.getInt();
+        if (typeCode < 0 || typeCode >= QuantizationType.values().length) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "不支持的量化类型编号：" + typeCode);
+        }
+        int dimension = header.getInt();
+        this.count = Math.toIntExact(header.getLong());
+        this.codeBytes = header.getInt();
+        int parameterCount = header.getInt();
+        if (dimension < 1 || codeBytes < 1 || parameterCount < 0) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "量化向量文件头部无效");
+        }
+
+        long codesOffset = HEADER_SIZE + (long) parameterCount * Float.BYTES;
+        if (channel.size() < codesOffset + (long) count * codeBytes) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "量化向量文件不完整");
+        }
+        float[] parameters = new float[parameterCount];
+        map(HEADER_SIZE, (long) parameterCount * Float.BYTES).asFloatBuffer().get(parameters);
+        this.quantizer = VectorQuantizer.of(QuantizationType.values()[typeCode], dimension, codeBytes, parameters);
+
+        // 编码按整行分块映射，单个映射不超过 2GB
+        this.rowsPerChunk = Integer.MAX_VALUE / codeBytes;
+        this.chunks = new ByteBuffer[(count + rowsPerChunk - 1) / rowsPerChunk];
+        for (int i = 0; i < chunks.length; i++) {
+            long firstRow = (long) i * rowsPerChunk;
+            long rows = Math.min(rowsPerChunk, count - firstRow);
+            chunks[i] = map(codesOffset + firstRow * codeBytes, rows * codeBytes);
+        }
+    }
+
+    static QuantizedVectorFile open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new QuantizedVectorFile(channel);
+        } catch (IOException | ArithmeticException e) {
+            closeQuietly(channel);
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * 写出量化向量文件的头部和训练参数，之后按行号顺序写入 count 行编码
+     */
+    static void writeHeader(IndexFileWriter writer, VectorQuantizer quantizer, long count) throws IOException {
+        float[] parameters = quantizer.parameters();
+        writer.putInt(MAGIC).putInt(VERSION).putInt(quantizer.type().ordinal()).putInt(quantizer.dimension())
+                .putLong(count).putInt(quantizer.codeBytes()).putInt(parameters.length)
+                .padTo(HEADER_SIZE);
+        for (float parameter : parameters) {
+            writer.putFloat(parameter);
+        }
+    }
+
+    VectorQuantizer quantizer() {
+        return quantizer;
+    }
+
+    QuantizationType type() {
+        return quantizer.type();
+    }
+
+    int dimension() {
+        return quantizer.dimension();
+    }
+
+    int size() {
+        return count;
+    }
+
+    int codeBytes() {
+        return codeBytes;
+    }
+
+    /**
+     * 用查询的打分器估计第 row 行的相似度
+     */
+    float score(VectorQuantizer.CodeScorer scorer, int row) {
+        return scorer.score(chunks[row / rowsPerChunk], (row % rowsPerChunk) * codeBytes);
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            MappedVectorIndex.closeQuietly(closeable);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.anner.embed.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationType;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.vector.BinaryVectorFile;
+
+/**
+ * 基于量化向量的暴力检索：逐行用非对称距离估计相似度，扫描只读取编码，内存和带宽占用为原始向量的
+ * 几分之一；返回的相似度是估计值。命中行的文本段从二进制向量文件读取，其向量矩阵不会被访问。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+    private final BinaryVectorFile file;
+    private final QuantizedVectorFile codes;
+    private final ForkJoinPool pool;
+    private final long memoryBytes;
+
+    private QuantizedVectorIndex(BinaryVectorFile file, QuantizedVectorFile codes, ForkJoinPool pool,
+            long memoryBytes) {
+        if (codes.size() != file.count() || codes.dimension() != file.dimension()) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, String.format(
+                    "量化向量与向量文件不匹配：量化向量 %d 条 %d 维，向量文件 %d 条 %d 维",
+                    codes.size(), codes.dimension(), file.count(), file.dimension()));
+        }
+        this.file = file;
+        this.codes = codes;
+        this.pool = pool;
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * @param pool 并行扫描使用的线程池，为 null 时在调用线程中顺序扫描
+     */
+    public static QuantizedVectorIndex open(Path vectorPath, Path quantizedPath, ForkJoinPool pool) {
+        BinaryVectorFile file = BinaryVectorFile.open(vectorPath);
+        QuantizedVectorFile codes = null;
+        try {
+            codes = QuantizedVectorFile.open(quantizedPath);
+            // 检索只扫描编码，二进制向量文件中只有命中行的文本段会被读入
+            return new QuantizedVectorIndex(file, codes, pool, Files.size(quantizedPath));
+        } catch (IOException e) {
+            closeAll(file, codes);
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, e);
+        } catch (RuntimeException e) {
+            closeAll(file, codes);
+            throw e;
+        }
+    }
+
+    public QuantizationType type() {
+        return codes.type();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public List<SearchMatch> search(float[] query, int topK) {
+        if (query.length != file.dimension()) {
+            throw new RagException(RagErrorCode.DIMENSION_MISMATCH,
+                    String.format("查询向量维度 %d 与索引维度 %d 不一致", query.length, file.dimension()));
+        }
+        VectorQuantizer.CodeScorer scorer = codes.quantizer().scorer(VectorRows.normalize(query));
+        TopK best = TopKScan.scan(codes.size(), Math.max(1, topK), row -> codes.score(scorer, row), pool);
+        return MappedVectorIndex.toMatches(file, best);
+    }
+
+    @Override
+    public void close() {
+        closeAll(file, codes);
+    }
+
+    private static void closeAll(BinaryVectorFile file, QuantizedVectorFile codes) {
+        MappedVectorIndex.closeQuietly(file);
+        if (codes != null) {
+            MappedVectorIndex.closeQuietly(codes);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.anner.embed.search;
+
+import java.util.Arrays;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationType;
+
+/**
+ * 每维 1 字节的标量量化（SQ8）：按样本中每一维的取值范围均分为 255 级，还原值为 min + step * code。
+ * 查询与编码的内积展开为 Σ q·min + Σ (q·step)·code，前一项和每维权重在查询开始时算好。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+final class ScalarQuantizer extends VectorQuantizer {
+    private static final int LEVELS = 255;
+
+    private final float[] min;
+    private final float[] step;
+
+    private ScalarQuantizer(float[] min, float[] step) {
+        this.min = min;
+        this.step = step;
+    }
+
+    static ScalarQuantizer train(float[][] sample) {
+        int dimension = sample[0].length;
+        float[] min = new float[dimension];
+        float[] max = new float[dimension];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (float[] vector : sample) {
+            for (int d = 0; d < dimension; d++) {
+                min[d] = Math.min(min[d], vector[d]);
+                max[d] = Math.max(max[d], vector[d]);
+            }
+        }
+        float[] step = new float[dimension];
+        for (int d = 0; d < dimension; d++) {
+            step[d] = (max[d] - min[d]) / LEVELS;
+        }
+        return new ScalarQuantizer(min, step);
+    }
+
+    static ScalarQuantizer of(int dimension, float[] parameters) {
+        if (parameters.length != 2 * dimension) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "标量量化参数长度无效：" + parameters.length);
+        }
+        return new ScalarQuantizer(Arrays.copyOfRange(parameters, 0, dimension),
+                Arrays.copyOfRange(parameters, dimension, 2 * dimension));
+    }
+
+    @Override
+    QuantizationType type() {
+        return QuantizationType.SQ8;
+    }
+
+    @Override
+    int dimension() {
+        return min.length;
+    }
+
+    @Override
+    int codeBytes() {
+        return min.length;
+    }
+
+    @Override
+    float[] parameters() {
+        float[] parameters = Arrays.copyOf(min, 2 * min.length);
+        System.arraycopy(step, 0, parameters, min.length, step.length);
+        return parameters;
+    }
+
+    @Override
+    void encode(float[] unitVector, byte[] code) {
+        for (int d = 0; d < min.length; d++) {
+            // 样本之外的取值截断到训练时的范围
+            int level = step[d] > 0 ? Math.round((unitVector[d] - min[d]) / step[d]) : 0;
+            code[d] = (byte) Math.max(0, Math.min(LEVELS, level));
+        }
+    }
+
+    @Override
+    CodeScorer scorer(float[] unitQuery) {
+        int dimension = min.length;
+        float[] weights = new float[dimension];
+        float bias = 0;
+        for (int d = 0; d < dimension; d++) {
+            weights[d] = unitQuery[d] * step[d];
+            bias += unitQuery[d] * min[d];
+        }
+        float offsetScore = bias;
+        return (codes, offset) -> {
+            float score = offsetScore;
+            for (int d = 0; d < dimension; d++) {
+                score += weights[d] * (codes.get(offset + d) & 0xFF);
+            }
+            return score;
+        };
+    }
+}
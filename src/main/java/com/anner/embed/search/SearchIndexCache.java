@@ -0,0 +1,225 @@
+package com.anner.embed.search;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.config.ExecutorConfig;
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationReport;
+import com.anner.embed.model.QuantizationType;
+import com.anner.embed.model.Task;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 已加载任务索引的 LRU 缓存。索引在第一次检索时加载，所有索引的估算内存之和超过预算时移除最久未使用的索引；
+ * 被移除的索引在正在进行的查询结束后才关闭。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+@Slf4j
+@Component
+public class SearchIndexCache {
+    private final EmbedProperties properties;
+    private final ForkJoinPool searchExecutor;
+    private final Map<String, CachedIndex> indices = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+    private long usedBytes;
+
+    public SearchIndexCache(EmbedProperties properties,
+            @Qualifier(ExecutorConfig.SEARCH_EXECUTOR) ForkJoinPool searchExecutor) {
+        this.properties = properties;
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * 缓存中的索引，引用计数包含缓存自身持有的一次，计数归零时关闭
+     */
+    private static final class CachedIndex {
+        private final VectorIndex index;
+        private final long bytes;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private CachedIndex(VectorIndex index) {
+            this.index = index;
+            this.bytes = index.memoryBytes();
+        }
+
+        private void retain() {
+            references.incrementAndGet();
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * 在任务的索引上执行操作，索引未加载时先加载
+     */
+    public <T> T withIndex(Task task, Function<VectorIndex, T> action) {
+        CachedIndex cached = acquire(task);
+        try {
+            return action.apply(cached.index);
+        } finally {
+            cached.release();
+        }
+    }
+
+    /**
+     * 移除任务的索引，例如任务的向量文件被删除或重新生成时
+     */
+    public void invalidate(String taskId) {
+        CachedIndex removed;
+        synchronized (indices) {
+            removed = indices.remove(taskId);
+            if (removed != null) {
+                usedBytes -= removed.bytes;
+            }
+        }
+        if (removed != null) {
+            removed.release();
+        }
+    }
+
+    private CachedIndex acquire(Task task) {
+        CachedIndex cached = lookup(task.getId());
+        if (cached != null) {
+            return cached;
+        }
+        // 同一任务只加载一次，其他任务的查询不受影响
+        Object lock = loadLocks.computeIfAbsent(task.getId(), id -> new Object());
+        synchronized (lock) {
+            try {
+                cached = lookup(task.getId());
+                if (cached != null) {
+                    return cached;
+                }
+                long start = System.currentTimeMillis();
+                cached = new CachedIndex(load(task));
+                cached.retain();
+                log.info("已加载任务 {} 的检索索引，估算内存 {} MB，耗时 {}ms", task.getId(),
+                        cached.bytes / 1024 / 1024, System.currentTimeMillis() - start);
+                synchronized (indices) {
+                    indices.put(task.getId(), cached);
+                    usedBytes += cached.bytes;
+                    evictOverBudget(task.getId());
+                }
+                return cached;
+            } finally {
+                loadLocks.remove(task.getId());
+            }
+        }
+    }
+
+    private CachedIndex lookup(String taskId) {
+        synchronized (indices) {
+            CachedIndex cached = indices.get(taskId);
+            if (cached != null) {
+                cached.retain();
+            }
+            return cached;
+        }
+    }
+
+    private VectorIndex load(Task task) {
+        // 优先使用可内存映射的二进制文件（配置了量化检索时扫描量化向量，有 IVF 或 HNSW 索引时走近似检索），
+        // 只有 JSON 文件时回退到 InMemoryEmbeddingStore
+        String binaryPath = task.getBinaryVectorFilePath();
+        if (binaryPath != null && new File(binaryPath).isFile()) {
+            VectorIndex quantized = loadQuantized(task, Path.of(binaryPath));
+            if (quantized != null) {
+                return quantized;
+            }
+            // 构建了 IVF 索引的任务向量数较多，优先使用以限制内存占用
+            String ivfPath = task.getIvfIndexFilePath();
+            if (ivfPath != null && new File(ivfPath).isFile()) {
+                try {
+                    return IvfVectorIndex.open(Path.of(binaryPath), Path.of(ivfPath),
+                            properties.getSearch().getIvf().getNprobe());
+                } catch (RagException e) {
+                    log.warn("任务 {} 的 IVF 索引加载失败，回退到其他索引：{}", task.getId(), e.getMessage());
+                }
+            }
+            String hnswPath = task.getHnswIndexFilePath();
+            if (hnswPath != null && new File(hnswPath).isFile()) {
+                try {
+                    return HnswVectorIndex.open(Path.of(binaryPath), Path.of(hnswPath),
+                            properties.getSearch().getHnsw().getEfSearch());
+                } catch (RagException e) {
+                    log.warn("任务 {} 的 HNSW 索引加载失败，回退到精确检索：{}", task.getId(), e.getMessage());
+                }
+            }
+            return MappedVectorIndex.open(Path.of(binaryPath), DotProduct.preferred(), searchExecutor);
+        }
+        String jsonPath = task.getVectorFilePath();
+        if (jsonPath != null && new File(jsonPath).isFile()) {
+            return JsonVectorIndex.load(Path.of(jsonPath));
+        }
+        throw new RagException(RagErrorCode.INDEX_NOT_AVAILABLE, "任务的向量文件不存在，taskId: " + task.getId());
+    }
+
+    /**
+     * 配置了检索使用的量化类型且任务生成了该量化向量时加载量化索引，否则返回 null
+     */
+    private VectorIndex loadQuantized(Task task, Path binaryPath) {
+        QuantizationType type = properties.getSearch().getQuantization().getSearchType();
+        if (type == null) {
+            return null;
+        }
+        for (QuantizationReport report : task.getQuantizationReports()) {
+            if (report.getType() == type && new File(report.getFilePath()).isFile()) {
+                try {
+                    return QuantizedVectorIndex.open(binaryPath, Path.of(report.getFilePath()), searchExecutor);
+                } catch (RagException e) {
+                    log.warn("任务 {} 的 {} 量化向量加载失败，回退到原始向量：{}", task.getId(), type, e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按最久未使用的顺序移除索引，直到总内存不超过预算；刚加载的索引即使单独超出预算也保留
+     */
+    private void evictOverBudget(String keep) {
+        long budget = properties.getSearch().getMemoryBudget().toBytes();
+        Iterator<Map.Entry<String, CachedIndex>> iterator = indices.entrySet().iterator();
+        while (usedBytes > budget && iterator.hasNext()) {
+            Map.Entry<String, CachedIndex> entry = iterator.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            usedBytes -= entry.getValue().bytes;
+            entry.getValue().release();
+            log.info("检索索引超出内存预算，移除任务 {} 的索引", entry.getKey());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (indices) {
+            indices.values().forEach(CachedIndex::release);
+            indices.clear();
+            usedBytes = 0;
+        }
+    }
+}
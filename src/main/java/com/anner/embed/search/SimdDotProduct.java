@@ -0,0 +1,42 @@
+package com.anner.embed.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 JDK Vector API 的点积，按平台首选宽度（AVX2 为 8 路、AVX-512 为 16 路）直接从映射内存加载并做 FMA，
+ * 尾部不足一个向量宽度的部分按标量计算。只通过 {@link DotProduct#preferred()} 反射创建。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/11
+ */
+final class SimdDotProduct extends DotProduct {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float dot(float[] query, ByteBuffer matrix, int byteOffset) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int d = 0;
+        for (int bound = SPECIES.loopBound(query.length); d < bound; d += SPECIES.length()) {
+            FloatVector q = FloatVector.fromArray(SPECIES, query, d);
+            FloatVector row = FloatVector.fromByteBuffer(SPECIES, matrix, byteOffset + d * Float.BYTES,
+                    ByteOrder.LITTLE_ENDIAN);
+            sum = q.fma(row, sum);
+        }
+        float dot = sum.reduceLanes(VectorOperators.ADD);
+        for (; d < query.length; d++) {
+            dot += query[d] * matrix.getFloat(byteOffset + d * Float.BYTES);
+        }
+        return dot;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+}
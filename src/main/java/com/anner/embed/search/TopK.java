@@ -0,0 +1,108 @@
+package com.anner.embed.search;
+
+/**
+ * 保留得分最高的 k 个行号的最小堆，使用基本类型数组，避免逐行装箱
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+public class TopK {
+    private final int capacity;
+    private final float[] scores;
+    private final long[] rows;
+    private int size;
+
+    public TopK(int capacity) {
+        this.capacity = capacity;
+        this.scores = new float[capacity];
+        this.rows = new long[capacity];
+    }
+
+    /**
+     * 当前堆中的最低分，堆未满时为负无穷，调用方可据此提前跳过不可能入选的行
+     */
+    public float threshold() {
+        return size < capacity ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(long row, float score) {
+        if (size < capacity) {
+            scores[size] = score;
+            rows[size] = row;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            rows[0] = row;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 合并另一个堆中的结果，用于并行计算后汇总
+     */
+    public void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.rows[i], other.scores[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 按得分从高到低返回行号，调用后堆被清空
+     */
+    public long[] drainRows(float[] scoresOut) {
+        long[] result = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = rows[0];
+            scoresOut[i] = scores[0];
+            size--;
+            scores[0] = scores[size];
+            rows[0] = rows[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        long row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+    }
+}
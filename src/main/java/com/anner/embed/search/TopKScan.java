@@ -0,0 +1,73 @@
+package com.anner.embed.search;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 对全部行逐一打分并保留 topK 的暴力扫描。行数较多时按行区间对半拆分到 ForkJoinPool 并行扫描，
+ * 各区间的 topK 最后合并。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+final class TopKScan {
+    // 单个并行子任务扫描的行数，过小时拆分和合并的开销超过并行收益
+    private static final int SPLIT_ROWS = 8192;
+
+    /**
+     * 计算单行的得分，得分越高越相似
+     */
+    @FunctionalInterface
+    interface RowScorer {
+        float score(int row);
+    }
+
+    private TopKScan() {
+    }
+
+    /**
+     * @param pool 并行扫描使用的线程池，为 null 时在调用线程中顺序扫描
+     */
+    static TopK scan(int count, int k, RowScorer scorer, ForkJoinPool pool) {
+        if (pool == null || count <= SPLIT_ROWS) {
+            return scanRange(scorer, k, 0, count);
+        }
+        return pool.invoke(new ScanTask(scorer, k, 0, count));
+    }
+
+    private static TopK scanRange(RowScorer scorer, int k, int from, int to) {
+        TopK best = new TopK(k);
+        for (int row = from; row < to; row++) {
+            best.offer(row, scorer.score(row));
+        }
+        return best;
+    }
+
+    private static final class ScanTask extends RecursiveTask<TopK> {
+        private final RowScorer scorer;
+        private final int k;
+        private final int from;
+        private final int to;
+
+        private ScanTask(RowScorer scorer, int k, int from, int to) {
+            this.scorer = scorer;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= SPLIT_ROWS) {
+                return scanRange(scorer, k, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scorer, k, from, middle);
+            left.fork();
+            TopK best = new ScanTask(scorer, k, middle, to).compute();
+            best.addAll(left.join());
+            return best;
+        }
+    }
+}
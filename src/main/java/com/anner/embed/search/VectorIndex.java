@@ -0,0 +1,29 @@
+package com.anner.embed.search;
+
+import java.io.Closeable;
+import java.util.List;
+
+import com.anner.embed.model.SearchMatch;
+
+/**
+ * 已加载的任务向量索引，线程安全，可被多个查询并发使用
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/9
+ */
+public interface VectorIndex extends Closeable {
+
+    /**
+     * 估算索引占用的内存（含内存映射部分），用于检索缓存的内存预算
+     */
+    long memoryBytes();
+
+    /**
+     * 返回与查询向量余弦相似度最高的 topK 个文本段，按相似度从高到低排列
+     */
+    List<SearchMatch> search(float[] query, int topK);
+
+    @Override
+    void close();
+}
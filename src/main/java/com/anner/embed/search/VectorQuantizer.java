@@ -0,0 +1,73 @@
+package com.anner.embed.search;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.QuantizationType;
+
+/**
+ * 将归一化后的向量编码为定长字节码。检索时使用非对称距离计算（ADC）：查询向量保持 float 精度，
+ * 只有库中的向量被量化，每个查询预先计算一次打分参数，扫描时每行只读取编码。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/12
+ */
+abstract class VectorQuantizer {
+
+    /**
+     * 估计查询向量与一条编码的内积，即余弦相似度的近似值
+     */
+    @FunctionalInterface
+    interface CodeScorer {
+        float score(ByteBuffer codes, int offset);
+    }
+
+    /**
+     * 用样本训练量化参数，样本须已归一化
+     *
+     * @param subvectorDimension 乘积量化每个子空间的维数
+     * @param iterations         乘积量化 k-means 的最大迭代次数
+     */
+    static VectorQuantizer train(QuantizationType type, float[][] sample, int subvectorDimension, int iterations,
+            SplittableRandom random) {
+        return switch (type) {
+            case SQ8 -> ScalarQuantizer.train(sample);
+            case PQ -> ProductQuantizer.train(sample, subvectorDimension, iterations, random);
+        };
+    }
+
+    /**
+     * 从量化向量文件中保存的参数还原
+     */
+    static VectorQuantizer of(QuantizationType type, int dimension, int codeBytes, float[] parameters) {
+        VectorQuantizer quantizer = switch (type) {
+            case SQ8 -> ScalarQuantizer.of(dimension, parameters);
+            case PQ -> ProductQuantizer.of(dimension, codeBytes, parameters);
+        };
+        if (quantizer.codeBytes() != codeBytes) {
+            throw new RagException(RagErrorCode.INDEX_LOAD_FAILED, "量化参数与编码长度不一致：" + codeBytes);
+        }
+        return quantizer;
+    }
+
+    abstract QuantizationType type();
+
+    abstract int dimension();
+
+    /**
+     * 每条向量的编码字节数
+     */
+    abstract int codeBytes();
+
+    /**
+     * 需要写入文件的训练参数
+     */
+    abstract float[] parameters();
+
+    abstract void encode(float[] unitVector, byte[] code);
+
+    abstract CodeScorer scorer(float[] unitQuery);
+}
@@ -0,0 +1,99 @@
+package com.anner.embed.search;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import com.anner.embed.vector.BinaryVectorFile;
+
+/**
+ * 按行号随机访问内存映射的向量矩阵，供精确检索和图索引使用。查询向量需预先归一化，
+ * 行向量的范数倒数由调用方提供，相似度即余弦相似度。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+final class VectorRows {
+    private final BinaryVectorFile file;
+    private final ByteBuffer[] chunks;
+    private final int rowsPerChunk;
+    private final int dimension;
+    private final float[] inverseNorms;
+    private final DotProduct dotProduct;
+
+    VectorRows(BinaryVectorFile file, float[] inverseNorms) {
+        this(file, inverseNorms, DotProduct.preferred());
+    }
+
+    VectorRows(BinaryVectorFile file, float[] inverseNorms, DotProduct dotProduct) {
+        this.file = file;
+        this.chunks = new ByteBuffer[file.chunkCount()];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = file.chunkBytes(i);
+        }
+        this.rowsPerChunk = file.rowsPerChunk();
+        this.dimension = file.dimension();
+        this.inverseNorms = inverseNorms;
+        this.dotProduct = dotProduct;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int size() {
+        return inverseNorms.length;
+    }
+
+    /**
+     * 归一化后的查询向量与第 row 行的余弦相似度
+     */
+    float similarity(float[] unitQuery, int row) {
+        int byteOffset = (row % rowsPerChunk) * dimension * Float.BYTES;
+        return dotProduct.dot(unitQuery, chunks[row / rowsPerChunk], byteOffset) * inverseNorms[row];
+    }
+
+    /**
+     * 将第 row 行归一化后复制到 target 中
+     */
+    float[] unitVector(int row, float[] target) {
+        file.vector(row, target);
+        float scale = inverseNorms[row];
+        for (int d = 0; d < dimension; d++) {
+            target[d] *= scale;
+        }
+        return target;
+    }
+
+    /**
+     * 蓄水池抽样，从全部行中均匀抽取最多 size 行，返回归一化后的向量
+     */
+    float[][] sample(int size, SplittableRandom random) {
+        int count = size();
+        int[] picked = new int[Math.min(size, count)];
+        for (int row = 0; row < count; row++) {
+            if (row < picked.length) {
+                picked[row] = row;
+            } else {
+                int slot = random.nextInt(row + 1);
+                if (slot < picked.length) {
+                    picked[slot] = row;
+                }
+            }
+        }
+        float[][] sample = new float[picked.length][];
+        for (int i = 0; i < picked.length; i++) {
+            sample[i] = unitVector(picked[i], new float[dimension]);
+        }
+        return sample;
+    }
+
+    static float[] normalize(float[] vector) {
+        float scale = MappedVectorIndex.inverseNorm(vector);
+        float[] unit = new float[vector.length];
+        for (int d = 0; d < vector.length; d++) {
+            unit[d] = vector[d] * scale;
+        }
+        return unit;
+    }
+}
@@ -0,0 +1,70 @@
+package com.anner.embed.search;
+
+import java.util.Arrays;
+
+/**
+ * 图遍历中已访问节点的开放寻址哈希集合。单次查询访问的节点数远小于节点总数，
+ * 按访问量分配和清空，避免每次查询分配与图同样大小的位图。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/10
+ */
+final class VisitedNodes {
+    private static final int EMPTY = -1;
+
+    private int[] slots;
+    private int size;
+
+    VisitedNodes(int expected) {
+        this.slots = new int[Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    /**
+     * 标记节点为已访问，节点此前未被访问时返回 true
+     */
+    boolean add(int node) {
+        int mask = slots.length - 1;
+        int index = mix(node) & mask;
+        while (slots[index] != EMPTY) {
+            if (slots[index] == node) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = node;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, EMPTY);
+            size = 0;
+        }
+    }
+
+    private void grow() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        Arrays.fill(slots, EMPTY);
+        int mask = slots.length - 1;
+        for (int node : old) {
+            if (node != EMPTY) {
+                int index = mix(node) & mask;
+                while (slots[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = node;
+            }
+        }
+    }
+
+    private static int mix(int node) {
+        int h = node * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
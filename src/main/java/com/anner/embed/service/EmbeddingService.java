@@ -10,6 +10,11 @@ import org.apache.commons.compress.archivers.ArchiveException;
 public interface EmbeddingService {
     CompletableFuture<Void> processEmbedding(String taskId,EmbeddingConfig config) throws IOException, ArchiveException;
 
+    /**
+     * 从检查点恢复失败的任务，API 密钥不会写入检查点，需要重新提供
+     */
+    CompletableFuture<Void> resumeEmbedding(String taskId, String apiKey);
+
     double getProgress();
 
     File getVectorFile();
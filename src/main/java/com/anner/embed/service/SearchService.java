@@ -0,0 +1,14 @@
+package com.anner.embed.service;
+
+import java.util.List;
+
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.model.SearchRequest;
+
+public interface SearchService {
+
+    /**
+     * 在已完成任务的向量文件上检索与查询文本最相似的文本段
+     */
+    List<SearchMatch> search(String taskId, SearchRequest request);
+}
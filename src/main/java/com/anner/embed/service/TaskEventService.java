@@ -0,0 +1,36 @@
+package com.anner.embed.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.anner.embed.model.Task;
+
+/**
+ * 通过 Server-Sent Events 推送任务进度。处理线程直接修改任务对象，
+ * 推送按固定节奏合并变更，每个任务在一个周期内最多推送一次。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/2
+ */
+public interface TaskEventService {
+
+    /**
+     * 开始跟踪运行中的任务，其进度和阶段变化会被周期性推送
+     */
+    void track(Task task);
+
+    /**
+     * 任务状态发生变化（完成、失败、取消等），在下一个推送周期发出；已结束的任务推送后停止跟踪
+     */
+    void publish(Task task);
+
+    /**
+     * 订阅单个任务的事件，订阅时立即推送一次当前状态
+     */
+    SseEmitter subscribe(Task task);
+
+    /**
+     * 订阅所有任务的事件
+     */
+    SseEmitter subscribeAll();
+}
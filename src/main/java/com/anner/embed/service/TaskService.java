@@ -1,8 +1,11 @@
 package com.anner.embed.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import com.anner.embed.model.PageResult;
 import com.anner.embed.model.Task;
+import com.anner.embed.model.Task.TaskStatus;
 
 public interface TaskService {
     Task createTask(String fileName, String modelType);
@@ -11,15 +14,42 @@ public interface TaskService {
 
     void updateTaskProgress(String taskId, int processedCount, int totalCount);
 
+    /**
+     * 调度器为排队中的任务分配到运行名额后调用，将任务置为运行中；任务已被取消时返回 false
+     */
+    boolean startTask(String taskId);
+
     void completeTask(String taskId);
 
     void failTask(String taskId, String errorMessage);
 
     void cancelTask(String taskId);
 
-    List<Task> getAllTasks();
+    /**
+     * 按创建时间倒序分页查询任务
+     *
+     * @param status 状态筛选，为 null 时返回全部状态
+     * @param page   页码，从 1 开始
+     * @param size   每页条数
+     */
+    PageResult<Task> listTasks(TaskStatus status, int page, int size);
 
     Task getTask(String taskId);
 
+    /**
+     * 服务重启后根据检查点重新登记任务，已存在同 ID 的任务时返回已有任务
+     */
+    Task restoreTask(Task task);
+
+    /**
+     * 将失败的任务重新置为排队中，任务状态不允许恢复时返回 false
+     */
+    boolean resumeTask(String taskId);
+
     boolean isTaskCancelled(String taskId);
+
+    /**
+     * 删除更新时间早于 before 的已结束任务记录，返回被删除的任务，任务的文件由调用方清理
+     */
+    List<Task> purgeFinishedBefore(LocalDateTime before);
 }
\ No newline at end of file
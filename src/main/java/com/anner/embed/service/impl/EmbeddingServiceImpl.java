@@ -4,47 +4,124 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntToDoubleFunction;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import com.anner.embed.LLM;
+import com.anner.embed.RagConstants;
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.config.ExecutorConfig;
 import com.anner.embed.exception.RagErrorCode;
 import com.anner.embed.exception.RagException;
 import com.anner.embed.model.EmbeddingConfig;
+import com.anner.embed.model.QuantizationReport;
+import com.anner.embed.model.QuantizationType;
 import com.anner.embed.model.Task;
+import com.anner.embed.model.Task.TaskStatus;
+import com.anner.embed.model.TaskCheckpoint;
+import com.anner.embed.model.TaskPriority;
+import com.anner.embed.model.VectorFileFormat;
+import com.anner.embed.pipeline.ArchiveDocumentIterator;
+import com.anner.embed.pipeline.BatchEmbedder;
+import com.anner.embed.pipeline.CachingBatchEmbedder;
+import com.anner.embed.pipeline.CheckpointStore;
+import com.anner.embed.pipeline.ChunkingStage;
+import com.anner.embed.pipeline.EmbeddingCache;
+import com.anner.embed.pipeline.EmbeddingModelRegistry;
+import com.anner.embed.pipeline.EmbeddingPipeline;
+import com.anner.embed.pipeline.EmbeddingTaskScheduler;
+import com.anner.embed.pipeline.FairBatchDispatcher;
+import com.anner.embed.pipeline.PipelineMetrics;
+import com.anner.embed.pipeline.RateLimiterRegistry;
+import com.anner.embed.pipeline.ResilientBatchEmbedder;
+import com.anner.embed.pipeline.SegmentDeduplicator;
+import com.anner.embed.pipeline.SegmentSources;
+import com.anner.embed.pipeline.SourceDocument;
+import com.anner.embed.search.HnswIndexBuilder;
+import com.anner.embed.search.IvfIndexBuilder;
+import com.anner.embed.search.QuantizedIndexBuilder;
+import com.anner.embed.search.SearchIndexCache;
 import com.anner.embed.service.EmbeddingService;
 import com.anner.embed.service.TaskService;
+import com.anner.embed.util.EmbeddingBatcher;
 import com.anner.embed.util.FileProcessor;
+import com.anner.embed.vector.BinaryVectorWriter;
+import com.anner.embed.vector.OutputCheckpoint;
+import com.anner.embed.vector.StreamingJsonVectorWriter;
+import com.anner.embed.vector.VectorOutput;
 
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
 public class EmbeddingServiceImpl implements EmbeddingService {
     private final TaskService taskService;
+    private final EmbeddingTaskScheduler taskScheduler;
+    private final FairBatchDispatcher batchDispatcher;
+    private final Executor chunkExecutor;
+    private final ForkJoinPool searchExecutor;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final EmbeddingModelRegistry embeddingModelRegistry;
+    private final EmbeddingCache embeddingCache;
+    private final CheckpointStore checkpointStore;
+    private final SearchIndexCache searchIndexCache;
+    private final PipelineMetrics metrics;
+    private final EmbedProperties properties;
     private static final String VECTOR_DIR = "vectors";
     private static final String UPLOAD_DIR = "upload_files";
 
-    public EmbeddingServiceImpl(TaskService taskService) {
+    public EmbeddingServiceImpl(TaskService taskService,
+            EmbeddingTaskScheduler taskScheduler, FairBatchDispatcher batchDispatcher,
+            @Qualifier(ExecutorConfig.CHUNK_EXECUTOR) Executor chunkExecutor,
+            @Qualifier(ExecutorConfig.SEARCH_EXECUTOR) ForkJoinPool searchExecutor,
+            RateLimiterRegistry rateLimiterRegistry, EmbeddingModelRegistry embeddingModelRegistry,
+            EmbeddingCache embeddingCache, CheckpointStore checkpointStore, SearchIndexCache searchIndexCache,
+            PipelineMetrics metrics, EmbedProperties properties) {
         this.taskService = taskService;
+        this.taskScheduler = taskScheduler;
+        this.batchDispatcher = batchDispatcher;
+        this.chunkExecutor = chunkExecutor;
+        this.searchExecutor = searchExecutor;
+        this.rateLimiterRegistry = rateLimiterRegistry;
+        this.embeddingModelRegistry = embeddingModelRegistry;
+        this.embeddingCache = embeddingCache;
+        this.checkpointStore = checkpointStore;
+        this.searchIndexCache = searchIndexCache;
+        this.metrics = metrics;
+        this.properties = properties;
         try {
             // 确保向量文件目录和上传文件目录存在
             Files.createDirectories(Paths.get(VECTOR_DIR).toAbsolutePath());
@@ -59,37 +136,52 @@ public class EmbeddingServiceImpl implements EmbeddingService {
     public CompletableFuture<Void> processEmbedding(String taskId,EmbeddingConfig config) {
         try {
             validateConfig(config);
+            Task task = taskService.getTask(taskId);
+            task.setOutputFormat(config.getOutputFormat());
+            task.setPriority(config.getPriority());
+            task.setQuantization(config.getQuantization());
+            task.setBaseUrl(config.getBaseUrl());
+            // 很小的压缩包走快速通道，不必排在大任务之后
+            boolean fastPath = config.getFile().getSize() <= properties.getScheduler().getFastPathMaxSize().toBytes();
 
             // 生成唯一的工作目录
             File workDir = new File(UPLOAD_DIR, taskId);
             createDirectory(workDir);
 
             // 保存上传的压缩文件
+            long persistStart = System.nanoTime();
             File compressedFile = saveUploadedFile(config, workDir);
+            metrics.recordUploadPersist(System.nanoTime() - persistStart);
+            TaskCheckpoint checkpoint = TaskCheckpoint.of(taskId, task.getFileName(), config);
+
+            if (config.isStreamingExtraction()) {
+                // 流式模式：不解压到磁盘，异步阶段直接从压缩包逐个读取条目进行分段。
+                // 压缩包保留到任务结束，失败后恢复时需要重新读取
+                checkpoint.setArchivePath(compressedFile.getAbsolutePath());
+                saveCheckpoint(workDir, checkpoint);
+                return runTask(taskId, config, workDir, checkpoint, fastPath,
+                        () -> processArchiveStream(taskId, config, compressedFile, taskId, checkpoint));
+            }
 
             // 创建解压目录
             File extractDir = new File(workDir, "extracted");
             createDirectory(extractDir);
 
             // 解压文件
+            long extractStart = System.nanoTime();
             extractArchive(compressedFile, extractDir);
+            metrics.recordExtraction(System.nanoTime() - extractStart);
 
             // 删除压缩文件
             deleteFile(compressedFile);
+            saveCheckpoint(workDir, checkpoint);
 
             // 获取解压目录的绝对路径，用于后续异步处理
             final String extractDirPath = extractDir.getAbsolutePath();
 
             // 异步处理向量化
-            return CompletableFuture.runAsync(() -> {
-                try {
-                    processExtractedFiles(taskId, config, extractDirPath, taskId);
-                } catch (Exception e) {
-                    log.error("向量化处理失败", e);
-                    taskService.failTask(taskId, e.getMessage());
-                    throw new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
-                }
-            });
+            return runTask(taskId, config, workDir, checkpoint, fastPath,
+                    () -> processExtractedFiles(taskId, config, extractDirPath, taskId, checkpoint));
         } catch (RagException e) {
             throw e;
         } catch (Exception e) {
@@ -98,6 +190,114 @@ public class EmbeddingServiceImpl implements EmbeddingService {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> resumeEmbedding(String taskId, String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new RagException(RagErrorCode.MISSING_PARAMETER, "恢复任务需要提供API密钥");
+        }
+        File workDir = new File(UPLOAD_DIR, taskId);
+        TaskCheckpoint checkpoint = checkpointStore.load(workDir);
+        if (checkpoint == null) {
+            throw new RagException(RagErrorCode.TASK_NOT_RESUMABLE, "任务没有可用的检查点，taskId: " + taskId);
+        }
+
+        File archiveFile = checkpoint.getArchivePath() != null ? new File(checkpoint.getArchivePath()) : null;
+        File extractDir = new File(workDir, "extracted");
+        if (checkpoint.isStreamingExtraction() ? archiveFile == null || !archiveFile.isFile()
+                : !extractDir.isDirectory()) {
+            throw new RagException(RagErrorCode.TASK_NOT_RESUMABLE, "任务的源文件已被清理，无法恢复，taskId: " + taskId);
+        }
+
+        Task task = taskService.getTask(taskId);
+        if (task == null) {
+            // 服务重启后内存中的任务已丢失，根据检查点重新登记为失败状态再恢复
+            Task restored = new Task(taskId, checkpoint.getFileName(), checkpoint.getModelType());
+            restored.setStatus(TaskStatus.FAILED);
+            restored.setOutputFormat(checkpoint.getOutputFormat());
+            task = taskService.restoreTask(restored);
+        }
+        if (!taskService.resumeTask(taskId)) {
+            throw new RagException(RagErrorCode.TASK_NOT_RESUMABLE,
+                    String.format("只有失败的任务可以恢复，当前状态：%s，taskId: %s", task.getStatus(), taskId));
+        }
+        task.setCurrentStage("正在从检查点恢复");
+        // 恢复后会重新生成向量文件和索引，之前加载的检索索引不再有效
+        searchIndexCache.invalidate(taskId);
+        log.info("任务 {} 从检查点恢复，已完成 {} 个文本段", taskId, checkpoint.getCommittedSegments());
+
+        EmbeddingConfig config = checkpoint.toConfig(apiKey);
+        task.setPriority(config.getPriority());
+        task.setQuantization(config.getQuantization());
+        task.setBaseUrl(config.getBaseUrl());
+        if (checkpoint.isStreamingExtraction()) {
+            return runTask(taskId, config, workDir, checkpoint, false,
+                    () -> processArchiveStream(taskId, config, archiveFile, taskId, checkpoint));
+        }
+        String extractDirPath = extractDir.getAbsolutePath();
+        return runTask(taskId, config, workDir, checkpoint, false,
+                () -> processExtractedFiles(taskId, config, extractDirPath, taskId, checkpoint));
+    }
+
+    /**
+     * 交给调度器排队执行向量化。成功或取消后清理检查点和保留的压缩包；
+     * 其他失败保留它们，以便之后从检查点恢复
+     *
+     * @param fastPath 是否为小任务，小任务在快速通道名额内立即运行，不参与排队
+     */
+    private CompletableFuture<Void> runTask(String taskId, EmbeddingConfig config, File workDir,
+            TaskCheckpoint checkpoint, boolean fastPath, Runnable work) {
+        Task task = taskService.getTask(taskId);
+        task.setCurrentStage("排队等待中");
+        return taskScheduler.submit(taskId, config.getBaseUrl(), config.getPriority(), fastPath, () -> {
+            try {
+                work.run();
+                cleanupCheckpoint(workDir, checkpoint);
+            } catch (Exception e) {
+                log.error("向量化处理失败", e);
+                boolean resumable = properties.getCheckpoint().isEnabled() && !taskService.isTaskCancelled(taskId);
+                taskService.failTask(taskId, e.getMessage());
+                if (!resumable) {
+                    cleanupCheckpoint(workDir, checkpoint);
+                }
+                throw new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
+            }
+        }, () -> cleanupCheckpoint(workDir, checkpoint));
+    }
+
+    private void cleanupCheckpoint(File workDir, TaskCheckpoint checkpoint) {
+        checkpointStore.delete(workDir);
+        if (checkpoint.getArchivePath() != null) {
+            deleteFile(new File(checkpoint.getArchivePath()));
+        }
+    }
+
+    /**
+     * 跳过检查点之前的文本段后，当前位置必须与检查点记录的最后一个已写出文本段一致，否则输出会重复或缺失
+     */
+    private static void checkResumePosition(TaskCheckpoint checkpoint, String file, int segments) {
+        if (checkpoint.getLastCommittedFile() == null) {
+            // 旧版本的检查点没有记录位置，只能依赖文本段总数校验
+            return;
+        }
+        if (!checkpoint.getLastCommittedFile().equals(file) || checkpoint.getLastCommittedFileSegments() != segments) {
+            throw new RagException(RagErrorCode.TASK_NOT_RESUMABLE, String.format(
+                    "文件分段结果与检查点不一致，无法恢复：检查点停在 %s 的第 %d 个文本段，本次停在 %s 的第 %d 个文本段",
+                    checkpoint.getLastCommittedFile(), checkpoint.getLastCommittedFileSegments(), file, segments));
+        }
+    }
+
+    private void saveCheckpoint(File workDir, TaskCheckpoint checkpoint) {
+        if (!properties.getCheckpoint().isEnabled()) {
+            return;
+        }
+        try {
+            checkpointStore.save(workDir, checkpoint);
+        } catch (RagException e) {
+            // 检查点只用于恢复，写入失败不影响当前任务
+            log.warn("任务 {} 保存检查点失败：{}", checkpoint.getTaskId(), e.getMessage());
+        }
+    }
+
     private void validateConfig(EmbeddingConfig config) {
         if (config == null) {
             throw new RagException(RagErrorCode.MISSING_PARAMETER, "配置信息不能为空");
@@ -111,6 +311,36 @@ public class EmbeddingServiceImpl implements EmbeddingService {
         if (config.getOverlapTokens() < 0) {
             throw new RagException(RagErrorCode.INVALID_PARAMETER, "overlapTokens不能小于0");
         }
+        if (config.getEmbeddingBatchSize() == null) {
+            config.setEmbeddingBatchSize(RagConstants.EMBED_PARAMS.BATCH_SIZE);
+        }
+        if (config.getMaxTokensPerBatch() == null) {
+            config.setMaxTokensPerBatch(RagConstants.EMBED_PARAMS.MAX_TOKENS_PER_BATCH);
+        }
+        if (config.getEmbeddingConcurrency() == null) {
+            config.setEmbeddingConcurrency(RagConstants.EMBED_PARAMS.CONCURRENCY);
+        }
+        if (config.getEmbeddingBatchSize() <= 0) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "embeddingBatchSize必须大于0");
+        }
+        if (config.getMaxTokensPerBatch() <= 0) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "maxTokensPerBatch必须大于0");
+        }
+        if (config.getEmbeddingConcurrency() <= 0) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "embeddingConcurrency必须大于0");
+        }
+        if (config.getOutputFormat() == null) {
+            config.setOutputFormat(VectorFileFormat.JSON);
+        }
+        if (config.getPriority() == null) {
+            config.setPriority(TaskPriority.NORMAL);
+        }
+        if (config.getQuantization() == null) {
+            config.setQuantization(EnumSet.noneOf(QuantizationType.class));
+        }
+        if (!config.getQuantization().isEmpty() && !config.getOutputFormat().includesBinary()) {
+            throw new RagException(RagErrorCode.INVALID_PARAMETER, "量化向量基于二进制向量文件生成，outputFormat需为binary或both");
+        }
     }
 
     private void createDirectory(File directory) {
@@ -124,11 +354,11 @@ public class EmbeddingServiceImpl implements EmbeddingService {
 
     private File saveUploadedFile(EmbeddingConfig config, File workDir) {
         try {
-            byte[] fileBytes = config.getFile().getBytes();
             String originalFilename = StringUtils
                     .cleanPath(Objects.requireNonNull(config.getFile().getOriginalFilename()));
-            File compressedFile = new File(workDir, originalFilename);
-            FileUtils.writeByteArrayToFile(compressedFile, fileBytes);
+            File compressedFile = new File(workDir, originalFilename).getAbsoluteFile();
+            // 由容器直接移动或流式拷贝临时文件，避免把整个压缩包读入堆内存
+            config.getFile().transferTo(compressedFile);
             log.info("压缩文件已保存到: {}", compressedFile.getAbsolutePath());
             return compressedFile;
         } catch (IOException e) {
@@ -153,6 +383,40 @@ public class EmbeddingServiceImpl implements EmbeddingService {
         }
     }
 
+    /**
+     * 按 tasks.retention-days 删除过期的已结束任务记录，同时删除其向量文件、索引文件和上传文件，
+     * 并释放已加载的检索索引。保留天数为 0 时不删除任何任务
+     */
+    @Scheduled(fixedDelayString = "${fast-embed.tasks.purge-interval-millis:3600000}")
+    public void purgeExpiredTasks() {
+        int retentionDays = properties.getTasks().getRetentionDays();
+        if (retentionDays <= 0) {
+            return;
+        }
+        for (Task task : taskService.purgeFinishedBefore(LocalDateTime.now().minusDays(retentionDays))) {
+            searchIndexCache.invalidate(task.getId());
+            deleteTaskFiles(task.getId());
+        }
+    }
+
+    /**
+     * 向量文件及其旁边的索引、量化文件都以任务 ID 加扩展名命名，上传文件在以任务 ID 命名的目录中
+     */
+    private void deleteTaskFiles(String taskId) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(VECTOR_DIR).toAbsolutePath(),
+                taskId + ".*")) {
+            for (Path file : files) {
+                deleteFile(file.toFile());
+            }
+        } catch (IOException e) {
+            log.warn("列出任务 {} 的向量文件失败：{}", taskId, e.getMessage());
+        }
+        File workDir = new File(UPLOAD_DIR, taskId);
+        if (!FileUtils.deleteQuietly(workDir) && workDir.exists()) {
+            log.warn("删除任务 {} 的上传文件失败：{}", taskId, workDir.getAbsolutePath());
+        }
+    }
+
     private void deleteFile(File file) {
         try {
             Files.deleteIfExists(file.toPath());
@@ -161,15 +425,18 @@ public class EmbeddingServiceImpl implements EmbeddingService {
         }
     }
 
-    private void processExtractedFiles(String uuidName, EmbeddingConfig config, String extractDirPath, String taskId) {
+    private void processExtractedFiles(String uuidName, EmbeddingConfig config, String extractDirPath, String taskId,
+            TaskCheckpoint checkpoint) {
         try {
             Task task = taskService.getTask(taskId);
             task.setCurrentStage("正在分析文件并进行文本分段");
             log.info("开始处理文件：{}，任务ID：{}", task.getFileName(), taskId);
 
-            // 处理解压后的文件
-            Collection<File> files = FileUtils.listFiles(new File(extractDirPath),
-                    new String[] { "json", "md", "txt" }, true);
+            // 处理解压后的文件，按路径排序保证文本段顺序稳定
+            File extractDir = new File(extractDirPath);
+            List<File> files = new ArrayList<>(FileUtils.listFiles(extractDir,
+                    FileProcessor.SUPPORTED_EXTENSIONS, true));
+            files.sort(Comparator.comparing(File::getPath));
             int totalFiles = files.size();
             log.info("共发现 {} 个文件需要处理", totalFiles);
 
@@ -177,108 +444,397 @@ public class EmbeddingServiceImpl implements EmbeddingService {
                 throw new RagException(RagErrorCode.FILE_NOT_FOUND, "压缩包中未找到可处理的文件（支持json、md、txt格式）");
             }
 
-            List<TextSegment> segments = new ArrayList<>();
-            int processedFiles = 0;
+            Iterator<SourceDocument> documents = files.stream()
+                    .map(file -> new SourceDocument(extractDir.toPath().relativize(file.toPath()).toString(),
+                            () -> FileUtils.readFileToString(file, StandardCharsets.UTF_8)))
+                    .iterator();
+            Map<VectorFileFormat, VectorOutput> outputs = createOutputs(uuidName, config.getOutputFormat(),
+                    checkpoint);
+            try {
+                generateEmbeddings(config, documents, processedFiles -> (double) processedFiles / totalFiles * 100,
+                        taskId, outputs, checkpoint);
+                saveAndComplete(outputs, taskId);
+            } catch (RuntimeException e) {
+                releaseOutputs(outputs, taskId);
+                throw e;
+            }
+        } catch (Exception e) {
+            log.error("向量化处理失败：{}", e.getMessage(), e);
+            throw new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
+        }
+    }
 
-            for (File file : files) {
-                if (taskService.isTaskCancelled(taskId)) {
-                    throw new RagException(RagErrorCode.TASK_CANCELLED, "任务已取消");
-                }
+    private void processArchiveStream(String uuidName, EmbeddingConfig config, File archiveFile, String taskId,
+            TaskCheckpoint checkpoint) {
+        try {
+            Task task = taskService.getTask(taskId);
+            task.setCurrentStage("正在分析文件并进行文本分段");
+            log.info("开始流式处理压缩包：{}，任务ID：{}", task.getFileName(), taskId);
 
-                log.debug("正在处理文件：{}", file.getName());
-                try {
-                    List<TextSegment> fileSegments = FileProcessor.processFiles(
-                            Collections.singletonList(file),
-                            config.getMaxTokensPerChunk(),
-                            config.getOverlapTokens());
-                    segments.addAll(fileSegments);
-                    log.debug("文件 {} 处理成功，生成段落数：{}", file.getName(), fileSegments.size());
+            long archiveSize = Math.max(1, archiveFile.length());
+            Map<VectorFileFormat, VectorOutput> outputs = createOutputs(uuidName, config.getOutputFormat(),
+                    checkpoint);
+            try {
+                try (CountingInputStream countingStream = new CountingInputStream(new FileInputStream(archiveFile));
+                        ArchiveInputStream<? extends ArchiveEntry> archiveInputStream = new ArchiveStreamFactory()
+                                .createArchiveInputStream(new BufferedInputStream(countingStream))) {
+                    // 条目总数未知，按已读取的压缩包字节数估算分段进度
+                    generateEmbeddings(config, new ArchiveDocumentIterator(archiveInputStream),
+                            processedFiles -> Math.min(100,
+                                    (double) countingStream.getByteCount() / archiveSize * 100),
+                            taskId, outputs, checkpoint);
+                } catch (RagException e) {
+                    throw e;
                 } catch (Exception e) {
-                    log.warn("文件 {} 处理失败：{}", file.getName(), e.getMessage());
-                    // 继续处理其他文件
-                    continue;
+                    throw new RagException(RagErrorCode.FILE_EXTRACT_ERROR, e);
                 }
 
-                processedFiles++;
-                double segmentProgress = (double) processedFiles / totalFiles * 100;
-                task.setSegmentProgress(segmentProgress);
-                task.setProgress(segmentProgress * 0.3); // 文本分段占总进度的30%
-                task.setUpdateTime(LocalDateTime.now());
+                saveAndComplete(outputs, taskId);
+            } catch (RuntimeException e) {
+                releaseOutputs(outputs, taskId);
+                throw e;
             }
+        } catch (Exception e) {
+            log.error("向量化处理失败：{}", e.getMessage(), e);
+            throw new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
+        }
+    }
 
-            if (segments.isEmpty()) {
-                throw new RagException(RagErrorCode.TEXT_PROCESS_ERROR, "未能从任何文件中提取出有效的文本内容");
+    /**
+     * 按任务选择的格式创建向量输出，各输出在批次提交时增量写盘，不在内存中累积整个任务的向量。
+     * 检查点中已有写出记录时，在原临时文件上截断到检查点位置继续写
+     */
+    private Map<VectorFileFormat, VectorOutput> createOutputs(String uuidName, VectorFileFormat format,
+            TaskCheckpoint checkpoint) {
+        boolean resume = checkpoint.getCommittedSegments() > 0;
+        Map<VectorFileFormat, VectorOutput> outputs = new EnumMap<>(VectorFileFormat.class);
+        try {
+            if (format.includesJson()) {
+                outputs.put(VectorFileFormat.JSON,
+                        new StreamingJsonVectorWriter(Paths.get(VECTOR_DIR, uuidName + ".json"),
+                                resumePosition(checkpoint, VectorFileFormat.JSON)));
             }
+            if (format.includesBinary()) {
+                outputs.put(VectorFileFormat.BINARY,
+                        new BinaryVectorWriter(Paths.get(VECTOR_DIR, uuidName + ".bin"),
+                                resumePosition(checkpoint, VectorFileFormat.BINARY)));
+            }
+        } catch (RuntimeException e) {
+            outputs.values().forEach(VectorOutput::close);
+            throw e;
+        }
+        if (resume) {
+            log.info("任务 {} 的向量输出已恢复到第 {} 个文本段", uuidName, checkpoint.getCommittedSegments());
+        }
+        return outputs;
+    }
 
-            log.info("文本分段完成，共生成 {} 个文本段", segments.size());
-            task.setCurrentStage("正在生成文本向量");
+    private OutputCheckpoint resumePosition(TaskCheckpoint checkpoint, VectorFileFormat format) {
+        if (checkpoint.getCommittedSegments() == 0) {
+            return null;
+        }
+        OutputCheckpoint position = checkpoint.getOutputs().get(format);
+        if (position == null || position.entries() != checkpoint.getCommittedSegments()) {
+            throw new RagException(RagErrorCode.TASK_NOT_RESUMABLE, "检查点中缺少 " + format + " 输出的写入位置");
+        }
+        return position;
+    }
 
-            // 执行向量化
-            InMemoryEmbeddingStore<TextSegment> embeddingStore = generateEmbeddingStore(config, segments, taskId);
+    /**
+     * 任务失败时释放输出：被取消或未启用检查点时删除临时文件，否则保留以便恢复
+     */
+    private void releaseOutputs(Map<VectorFileFormat, VectorOutput> outputs, String taskId) {
+        boolean resumable = properties.getCheckpoint().isEnabled() && !taskService.isTaskCancelled(taskId);
+        Consumer<VectorOutput> release = resumable ? VectorOutput::close : VectorOutput::abort;
+        outputs.values().forEach(release);
+    }
 
-            // 保存向量化的结果
-            String vectorFilePath = saveVectorFile(uuidName, embeddingStore, segments.size());
-            task.setVectorFilePath(vectorFilePath);
+    private void saveAndComplete(Map<VectorFileFormat, VectorOutput> outputs, String taskId) {
+        Task task = taskService.getTask(taskId);
 
-            task.setCurrentStage("处理完成");
-            taskService.completeTask(taskId);
-            log.info("任务处理完成：{}，向量文件已保存：{}", taskId, vectorFilePath);
-        } catch (Exception e) {
-            log.error("向量化处理失败：{}", e.getMessage(), e);
-            throw new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
+        // 保存向量化的结果
+        for (Map.Entry<VectorFileFormat, VectorOutput> entry : outputs.entrySet()) {
+            long commitStart = System.nanoTime();
+            String vectorFilePath = saveVectorFile(entry.getValue(), task.getTotalSegments());
+            metrics.recordOutput(entry.getKey().name(), "commit", System.nanoTime() - commitStart);
+            if (entry.getKey() == VectorFileFormat.BINARY) {
+                task.setBinaryVectorFilePath(vectorFilePath);
+            } else {
+                task.setVectorFilePath(vectorFilePath);
+            }
+        }
+
+        if (task.getBinaryVectorFilePath() != null && properties.getSearch().getHnsw().isEnabled()) {
+            buildHnswIndex(task);
+        }
+        if (task.getBinaryVectorFilePath() != null && properties.getSearch().getIvf().isEnabled()) {
+            buildIvfIndex(task);
         }
+        if (task.getBinaryVectorFilePath() != null) {
+            for (QuantizationType type : task.getQuantization()) {
+                buildQuantizedVectors(task, type);
+            }
+        }
+
+        task.setCurrentStage("处理完成");
+        taskService.completeTask(taskId);
+        log.info("任务处理完成：{}，向量文件已保存：{} {}", taskId, task.getVectorFilePath(),
+                task.getBinaryVectorFilePath());
+    }
+
+    /**
+     * 与二进制向量文件同目录、同名但扩展名为 extension 的索引文件路径
+     */
+    private static Path siblingPath(Path vectorPath, String extension) {
+        String baseName = vectorPath.getFileName().toString().replaceFirst("\\.bin$", "");
+        return vectorPath.resolveSibling(baseName + "." + extension);
     }
 
-    private InMemoryEmbeddingStore<TextSegment> generateEmbeddingStore(EmbeddingConfig config,
-            List<TextSegment> segments, String taskId) {
+    /**
+     * 可选的最后阶段：为二进制向量文件构建 HNSW 索引，保存在向量文件旁。
+     * 构建失败不影响任务结果，检索时回退到精确检索
+     */
+    private void buildHnswIndex(Task task) {
+        EmbedProperties.Hnsw hnsw = properties.getSearch().getHnsw();
+        if (task.getTotalSegments() < hnsw.getMinVectors()) {
+            return;
+        }
+        task.setCurrentStage("正在构建检索索引");
+        Path vectorPath = Paths.get(task.getBinaryVectorFilePath());
+        Path indexPath = siblingPath(vectorPath, "hnsw");
+        long start = System.nanoTime();
+        try {
+            int nodes = new HnswIndexBuilder(hnsw.getM(), hnsw.getEfConstruction()).build(vectorPath, indexPath);
+            long elapsed = System.nanoTime() - start;
+            metrics.recordIndexBuild("hnsw", elapsed);
+            task.setHnswIndexFilePath(indexPath.toAbsolutePath().toString());
+            log.info("任务 {} 的 HNSW 索引构建完成，共 {} 个节点，耗时 {}ms，保存到文件：{}", task.getId(), nodes,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), task.getHnswIndexFilePath());
+        } catch (RuntimeException e) {
+            log.warn("任务 {} 的 HNSW 索引构建失败，检索将使用精确计算：{}", task.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 可选的最后阶段：为二进制向量文件构建 IVF 倒排索引，保存在向量文件旁。
+     * 构建失败不影响任务结果，检索时回退到其他索引
+     */
+    private void buildIvfIndex(Task task) {
+        EmbedProperties.Ivf ivf = properties.getSearch().getIvf();
+        if (task.getTotalSegments() < ivf.getMinVectors()) {
+            return;
+        }
+        task.setCurrentStage("正在构建倒排索引");
+        Path vectorPath = Paths.get(task.getBinaryVectorFilePath());
+        Path indexPath = siblingPath(vectorPath, "ivf");
+        long start = System.nanoTime();
+        try {
+            int lists = new IvfIndexBuilder(ivf.getLists(), ivf.getSampleSize(), ivf.getTrainIterations(),
+                    searchExecutor).build(vectorPath, indexPath);
+            long elapsed = System.nanoTime() - start;
+            metrics.recordIndexBuild("ivf", elapsed);
+            task.setIvfIndexFilePath(indexPath.toAbsolutePath().toString());
+            log.info("任务 {} 的 IVF 索引构建完成，共 {} 个倒排表，耗时 {}ms，保存到文件：{}", task.getId(), lists,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), task.getIvfIndexFilePath());
+        } catch (RuntimeException e) {
+            log.warn("任务 {} 的 IVF 索引构建失败：{}", task.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 可选的最后阶段：从二进制向量文件抽样训练量化参数，编码后保存在向量文件旁，并测量召回率。
+     * 生成失败不影响任务结果
+     */
+    private void buildQuantizedVectors(Task task, QuantizationType type) {
+        EmbedProperties.Quantization quantization = properties.getSearch().getQuantization();
+        task.setCurrentStage("正在生成" + type + "量化向量");
+        Path vectorPath = Paths.get(task.getBinaryVectorFilePath());
+        Path quantizedPath = siblingPath(vectorPath, type.suffix());
+        long start = System.nanoTime();
+        try {
+            QuantizationReport report = new QuantizedIndexBuilder(quantization.getSampleSize(),
+                    quantization.getSubvectorDimension(), quantization.getTrainIterations(),
+                    quantization.getEvaluationQueries()).build(type, vectorPath, quantizedPath);
+            metrics.recordIndexBuild(type.suffix(), System.nanoTime() - start);
+            task.getQuantizationReports().add(report);
+            log.info("任务 {} 的 {} 量化向量生成完成，压缩比 {}，召回率 {}（{} 个查询），耗时 {}ms，保存到文件：{}",
+                    task.getId(), type, String.format("%.1f", report.getCompressionRatio()),
+                    String.format("%.3f", report.getRecallAt10()), report.getEvaluatedQueries(),
+                    report.getTrainingMillis(), report.getFilePath());
+        } catch (RuntimeException e) {
+            log.warn("任务 {} 的 {} 量化向量生成失败：{}", task.getId(), type, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 分段与向量化并行执行：文档在分段线程池中并行切分，按原始顺序组成批次后立即提交向量化，
+     * 无需等待全部文件分段完成，内存中只保留有限数量的文档和批次。
+     *
+     * @param documents       按顺序提供的待处理文档
+     * @param segmentProgress 根据已处理文档数计算分段进度（0-100）
+     * @param outputs         按顺序接收向量化结果的输出
+     * @param checkpoint      任务检查点，其中已写出的文本段在恢复时直接跳过，处理过程中定期更新
+     */
+    private void generateEmbeddings(EmbeddingConfig config, Iterator<SourceDocument> documents,
+            IntToDoubleFunction segmentProgress, String taskId, Map<VectorFileFormat, VectorOutput> outputs,
+            TaskCheckpoint checkpoint) {
+        // 任务运行期间持有模型客户端，避免耗时较长的任务中途被当作空闲客户端移除
+        try (EmbeddingModelRegistry.Lease lease = embeddingModelRegistry.acquire(config.getModelType(),
+                config.getBaseUrl(), config.getApiKey())) {
+            generateEmbeddings(config, lease.model(), documents, segmentProgress, taskId, outputs, checkpoint);
+        }
+    }
+
+    private void generateEmbeddings(EmbeddingConfig config, EmbeddingModel embeddingModel,
+            Iterator<SourceDocument> documents, IntToDoubleFunction segmentProgress, String taskId,
+            Map<VectorFileFormat, VectorOutput> outputs, TaskCheckpoint checkpoint) {
         Task task = taskService.getTask(taskId);
-        InMemoryEmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
-        EmbeddingModel embeddingModel = LLM.doubaoLLMEmbedding(config.getModelType(), config.getBaseUrl(),
-                config.getApiKey());
+        File workDir = new File(UPLOAD_DIR, taskId);
+        long skipSegments = checkpoint.getCommittedSegments();
+        long checkpointInterval = properties.getCheckpoint().getIntervalMillis();
+        AtomicLong lastCheckpointAt = new AtomicLong(System.currentTimeMillis());
+
+        AtomicInteger processedCount = new AtomicInteger((int) skipSegments);
+        AtomicInteger producedCount = new AtomicInteger();
+        log.info("开始分段并生成向量，并发数 {}", config.getEmbeddingConcurrency());
+
+        BooleanSupplier cancelled = () -> taskService.isTaskCancelled(taskId);
+        BatchEmbedder embedder = new ResilientBatchEmbedder(embeddingModel,
+                rateLimiterRegistry.limiterFor(config.getBaseUrl(), config.getApiKey()),
+                properties.getRetry(), task, cancelled, metrics.forModel(config.getModelType()));
+        if (embeddingCache.isEnabled()) {
+            // 先查缓存，只有未命中的文本段才会请求服务端
+            embedder = new CachingBatchEmbedder(embedder,
+                    embeddingCache.namespace(config.getModelType(), config.getBaseUrl()), task);
+        }
+        SegmentDeduplicator deduplicator = properties.getDedup().isEnabled()
+                ? new SegmentDeduplicator(properties.getDedup().getMaxEntries())
+                : null;
+        if (deduplicator != null) {
+            // 任务内重复的文本只向量化一次，写出时再为重复段填充向量
+            embedder = deduplicator.wrap(embedder);
+        }
 
-        int totalSegments = segments.size();
-        int processedCount = 0;
-        log.info("开始生成向量，共 {} 个文本段", totalSegments);
+        // 记录文本段来自哪个文件，检查点据此记录写出位置，恢复时校验分段结果一致
+        SegmentSources sources = new SegmentSources();
+        // 批次结果按提交顺序依次写入输出，保证与文本段原始顺序一致
+        EmbeddingPipeline pipeline = new EmbeddingPipeline(taskId, embedder,
+                batchDispatcher.forTask(taskId, config.getPriority()), config.getEmbeddingConcurrency(), cancelled,
+                (embeddings, batch) -> {
+                    List<Embedding> resolved = deduplicator != null ? deduplicator.resolve(embeddings, batch)
+                            : embeddings;
+                    for (Map.Entry<VectorFileFormat, VectorOutput> entry : outputs.entrySet()) {
+                        long appendStart = System.nanoTime();
+                        entry.getValue().append(resolved, batch);
+                        metrics.recordOutput(entry.getKey().name(), "append", System.nanoTime() - appendStart);
+                    }
+                    int processed = processedCount.addAndGet(batch.size());
+
+                    // 分段仍在进行时总数未知，按已产出文本段的比例折算向量化进度
+                    double embeddingProgress = (double) processed / producedCount.get()
+                            * task.getSegmentProgress();
+                    task.setEmbeddingProgress(embeddingProgress);
+                    // 文本分段占总进度的30%，向量化占总进度的70%
+                    task.setProgress(task.getSegmentProgress() * 0.3 + embeddingProgress * 0.7);
+                    task.setUpdateTime(LocalDateTime.now());
+
+                    log.info("向量化进度：{}/{}，完成度：{}%", processed, producedCount.get(), embeddingProgress);
+
+                    // 写出回调按批次顺序串行执行，此时各输出恰好停在批次边界上
+                    long now = System.currentTimeMillis();
+                    if (now - lastCheckpointAt.get() >= checkpointInterval) {
+                        for (Map.Entry<VectorFileFormat, VectorOutput> entry : outputs.entrySet()) {
+                            checkpoint.getOutputs().put(entry.getKey(), entry.getValue().checkpoint());
+                        }
+                        checkpoint.setCommittedSegments(processed);
+                        SegmentSources.Position position = sources.positionOf(processed);
+                        checkpoint.setLastCommittedFile(position != null ? position.file() : null);
+                        checkpoint.setLastCommittedFileSegments(position != null ? position.segments() : 0);
+                        saveCheckpoint(workDir, checkpoint);
+                        lastCheckpointAt.set(now);
+                    }
+                });
+
+        EmbeddingBatcher batcher = new EmbeddingBatcher(config.getEmbeddingBatchSize(),
+                config.getMaxTokensPerBatch(), FileProcessor.defaultTokenizer());
+        int processedFiles = 0;
+        long skippedSegments = 0;
+        try (ChunkingStage chunking = new ChunkingStage(documents, config.getMaxTokensPerChunk(),
+                config.getOverlapTokens(), chunkExecutor, properties.getChunking().getQueueCapacity(), metrics)) {
+            ChunkingStage.ChunkResult result;
+            while ((result = chunking.next()) != null) {
+                if (cancelled.getAsBoolean()) {
+                    throw new RagException(RagErrorCode.TASK_CANCELLED, "任务已取消");
+                }
 
-        for (TextSegment segment : segments) {
-            if (taskService.isTaskCancelled(taskId)) {
-                throw new RagException(RagErrorCode.TASK_CANCELLED, "任务已取消");
-            }
+                processedFiles++;
+                if (result.error() != null) {
+                    log.warn("文件 {} 处理失败：{}", result.name(), result.error().getMessage());
+                    // 继续处理其他文件
+                } else {
+                    log.debug("文件 {} 处理成功，生成段落数：{}", result.name(), result.segments().size());
+                    // 先累加产出数再提交，保证进度计算时分母不小于分子
+                    producedCount.addAndGet(result.segments().size());
+                    sources.addFile(result.name(), result.segments().size());
+                    for (int i = 0; i < result.segments().size(); i++) {
+                        TextSegment segment = result.segments().get(i);
+                        if (skippedSegments < skipSegments) {
+                            // 检查点之前的文本段已写入输出，按顺序跳过。分段失败的文件不产出文本段，
+                            // 两次运行中失败的文件不同会使跳过的位置错开，因此跳过结束时校验停在检查点记录的位置上
+                            if (++skippedSegments == skipSegments) {
+                                checkResumePosition(checkpoint, result.name(), i + 1);
+                            }
+                            continue;
+                        }
+                        List<TextSegment> batch = deduplicator != null && deduplicator.register(segment)
+                                ? batcher.addPassenger(segment)
+                                : batcher.add(segment);
+                        if (batch != null) {
+                            pipeline.submit(batch);
+                        }
+                    }
+                }
 
-            try {
-                log.debug("正在处理第 {}/{} 个文本段，长度：{}", processedCount + 1, totalSegments, segment.text().length());
-                Embedding embedding = embeddingModel.embed(segment).content();
-                embeddingStore.add(embedding, segment);
-                processedCount++;
-
-                // 更新任务进度
-                double embeddingProgress = (double) processedCount / totalSegments * 100;
-                task.setEmbeddingProgress(embeddingProgress);
-                // 向量化占总进度的70%
-                task.setProgress(30 + embeddingProgress * 0.7);
+                task.setSegmentProgress(segmentProgress.applyAsDouble(processedFiles));
                 task.setUpdateTime(LocalDateTime.now());
+            }
 
-                if (processedCount % 10 == 0 || processedCount == totalSegments) {
-                    log.info("向量化进度：{}/{}，完成度：{}%",
-                            processedCount, totalSegments, embeddingProgress);
-                }
-            } catch (Exception e) {
-                log.error("处理文本段失败：{}", e.getMessage());
-                throw new RagException(RagErrorCode.VECTORIZATION_FAILED, e);
+            if (processedFiles == 0) {
+                throw new RagException(RagErrorCode.FILE_NOT_FOUND, "压缩包中未找到可处理的文件（支持json、md、txt格式）");
             }
+            if (producedCount.get() == 0) {
+                throw new RagException(RagErrorCode.TEXT_PROCESS_ERROR, "未能从任何文件中提取出有效的文本内容");
+            }
+            if (skippedSegments < skipSegments) {
+                throw new RagException(RagErrorCode.TASK_NOT_RESUMABLE, "文件分段结果与检查点不一致，无法恢复");
+            }
+
+            task.setSegmentProgress(100);
+            task.setTotalSegments(producedCount.get());
+            task.setUniqueSegments(deduplicator != null ? deduplicator.getUniqueCount() : producedCount.get());
+            task.setLateDuplicateSegments(deduplicator != null ? deduplicator.getLateDuplicateCount() : 0);
+            task.setCurrentStage("正在生成文本向量");
+            log.info("文本分段完成，共处理 {} 个文件，生成 {} 个文本段，其中不重复的 {} 个，超出去重窗口的重复段 {} 个",
+                    processedFiles, producedCount.get(), task.getUniqueSegments(), task.getLateDuplicateSegments());
+
+            List<TextSegment> last = batcher.flush();
+            if (last != null) {
+                pipeline.submit(last);
+            }
+            pipeline.await();
+        } catch (RuntimeException e) {
+            pipeline.abort();
+            throw e;
         }
 
-        log.info("向量生成完成，共处理 {} 个文本段", totalSegments);
-        return embeddingStore;
+        log.info("向量生成完成，共处理 {} 个文本段，缓存命中 {} 个，命中率 {}", processedCount.get(),
+                task.getCacheHits(), task.getCacheHitRatio());
     }
 
-    private String saveVectorFile(String uuidName, InMemoryEmbeddingStore<TextSegment> embeddingStore,
-            int segmentsSize) {
+    private String saveVectorFile(VectorOutput output, int segmentsSize) {
         try {
-            String fileName = uuidName + ".json";
-            File vectorFile = new File(VECTOR_DIR, fileName);
-            log.debug("准备保存向量文件：{}", vectorFile.getAbsolutePath());
-            embeddingStore.serializeToFile(vectorFile.getAbsolutePath());
+            String vectorFilePath = output.commit();
+            File vectorFile = new File(vectorFilePath);
             log.info("向量化处理完成，共处理 {} 个文本段，保存到文件：{}", segmentsSize, vectorFile.getAbsolutePath());
 
             // 验证文件是否成功保存
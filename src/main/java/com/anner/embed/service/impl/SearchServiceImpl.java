@@ -0,0 +1,81 @@
+package com.anner.embed.service.impl;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.model.SearchRequest;
+import com.anner.embed.model.Task;
+import com.anner.embed.model.Task.TaskStatus;
+import com.anner.embed.pipeline.EmbeddingModelRegistry;
+import com.anner.embed.search.SearchIndexCache;
+import com.anner.embed.service.SearchService;
+import com.anner.embed.service.TaskService;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchServiceImpl implements SearchService {
+    private final TaskService taskService;
+    private final EmbeddingModelRegistry embeddingModelRegistry;
+    private final SearchIndexCache indexCache;
+    private final EmbedProperties properties;
+
+    @Override
+    public List<SearchMatch> search(String taskId, SearchRequest request) {
+        Task task = taskService.getTask(taskId);
+        if (task == null) {
+            throw new RagException(RagErrorCode.TASK_NOT_FOUND, "任务不存在，taskId: " + taskId);
+        }
+        if (task.getStatus() != TaskStatus.COMPLETED) {
+            throw new RagException(RagErrorCode.INDEX_NOT_AVAILABLE,
+                    String.format("任务尚未完成，无法检索。当前状态：%s，taskId: %s", task.getStatus(), taskId));
+        }
+        if (request.getQuery() == null || request.getQuery().isBlank()) {
+            throw new RagException(RagErrorCode.MISSING_PARAMETER, "查询文本不能为空");
+        }
+        if (request.getApiKey() == null || request.getApiKey().isBlank()) {
+            throw new RagException(RagErrorCode.MISSING_PARAMETER, "检索需要提供API密钥");
+        }
+        int maxTopK = properties.getSearch().getMaxTopK();
+        int topK = request.getTopK() != null ? request.getTopK() : properties.getSearch().getDefaultTopK();
+        if (topK < 1 || topK > maxTopK) {
+            throw new RagException(RagErrorCode.PARAMETER_OUT_OF_RANGE,
+                    "topK必须在1到" + maxTopK + "之间，当前值：" + topK);
+        }
+        String baseUrl = request.getBaseUrl() != null && !request.getBaseUrl().isBlank() ? request.getBaseUrl()
+                : task.getBaseUrl();
+        if (baseUrl == null) {
+            throw new RagException(RagErrorCode.MISSING_PARAMETER, "任务未记录服务地址，请在请求中提供baseUrl");
+        }
+
+        // 查询必须使用与任务相同的模型向量化，否则向量空间不一致
+        float[] query = embedQuery(task.getModelType(), baseUrl, request);
+        long start = System.nanoTime();
+        List<SearchMatch> matches = indexCache.withIndex(task, index -> index.search(query, topK));
+        if (request.getMinScore() != null) {
+            matches.removeIf(match -> match.getScore() < request.getMinScore());
+        }
+        log.debug("任务 {} 检索完成，返回 {} 条结果，耗时 {}ms", taskId, matches.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return matches;
+    }
+
+    private float[] embedQuery(String modelType, String baseUrl, SearchRequest request) {
+        EmbeddingModel model = embeddingModelRegistry.modelFor(modelType, baseUrl, request.getApiKey());
+        try {
+            return model.embed(request.getQuery()).content().vector();
+        } catch (RuntimeException e) {
+            log.error("查询向量化失败：{}", e.getMessage());
+            throw new RagException(RagErrorCode.API_ERROR, e);
+        }
+    }
+}
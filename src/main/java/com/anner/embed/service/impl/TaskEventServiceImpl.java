@@ -0,0 +1,199 @@
+package com.anner.embed.service.impl;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.config.ExecutorConfig;
+import com.anner.embed.model.Task;
+import com.anner.embed.model.Task.TaskStatus;
+import com.anner.embed.service.TaskEventService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+public class TaskEventServiceImpl implements TaskEventService {
+    private static final String EVENT_NAME = "task";
+
+    private final EmbedProperties properties;
+    private final Executor eventExecutor;
+    // 上一轮推送尚未结束时跳过本轮，待推送的任务只保留最新状态，留到下一轮一起推送
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    // 被跟踪的任务及其上次推送时的快照
+    private final Map<String, Task> trackedTasks = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> lastSent = new ConcurrentHashMap<>();
+    private final Map<String, Task> pendingTasks = new ConcurrentHashMap<>();
+    private final Map<String, Set<SseEmitter>> taskEmitters = new ConcurrentHashMap<>();
+    private final Set<SseEmitter> allEmitters = new CopyOnWriteArraySet<>();
+    private volatile long lastHeartbeat = System.currentTimeMillis();
+
+    /**
+     * 用于判断任务是否有需要推送的变化，进度保留一位小数，更细的抖动不推送
+     */
+    private record Snapshot(TaskStatus status, String stage, long progress, long segmentProgress,
+            long embeddingProgress) {
+        static Snapshot of(Task task) {
+            return new Snapshot(task.getStatus(), task.getCurrentStage(), Math.round(task.getProgress() * 10),
+                    Math.round(task.getSegmentProgress() * 10), Math.round(task.getEmbeddingProgress() * 10));
+        }
+    }
+
+    public TaskEventServiceImpl(EmbedProperties properties,
+            @Qualifier(ExecutorConfig.EVENT_EXECUTOR) Executor eventExecutor) {
+        this.properties = properties;
+        this.eventExecutor = eventExecutor;
+    }
+
+    @Override
+    public void track(Task task) {
+        trackedTasks.put(task.getId(), task);
+        pendingTasks.put(task.getId(), task);
+    }
+
+    @Override
+    public void publish(Task task) {
+        pendingTasks.put(task.getId(), task);
+    }
+
+    @Override
+    public SseEmitter subscribe(Task task) {
+        SseEmitter emitter = newEmitter(() -> removeTaskEmitter(task.getId()));
+        if (task.getStatus().isFinished()) {
+            // 已结束的任务不会再有变化，发送当前状态后立即关闭连接，不登记到推送列表
+            send(emitter, task);
+            emitter.complete();
+            return emitter;
+        }
+        taskEmitters.computeIfAbsent(task.getId(), id -> new CopyOnWriteArraySet<>()).add(emitter);
+        send(emitter, task);
+        return emitter;
+    }
+
+    @Override
+    public SseEmitter subscribeAll() {
+        SseEmitter emitter = newEmitter(null);
+        allEmitters.add(emitter);
+        return emitter;
+    }
+
+    private SseEmitter newEmitter(Runnable onDone) {
+        SseEmitter emitter = new SseEmitter(properties.getEvents().getEmitterTimeoutMillis());
+        Runnable cleanup = () -> {
+            allEmitters.remove(emitter);
+            taskEmitters.values().forEach(emitters -> emitters.remove(emitter));
+            if (onDone != null) {
+                onDone.run();
+            }
+        };
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(e -> cleanup.run());
+        return emitter;
+    }
+
+    private void removeTaskEmitter(String taskId) {
+        taskEmitters.computeIfPresent(taskId, (id, emitters) -> emitters.isEmpty() ? null : emitters);
+    }
+
+    /**
+     * 推送周期：把推送交给事件线程执行，SseEmitter.send 可能被慢连接阻塞，不在共用的定时任务线程中调用
+     */
+    @Scheduled(fixedRateString = "${fast-embed.events.min-interval-millis:500}")
+    public void flush() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            eventExecutor.execute(() -> {
+                try {
+                    dispatch();
+                } finally {
+                    dispatching.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dispatching.set(false);
+            log.debug("事件线程池已关闭，跳过本轮推送");
+        }
+    }
+
+    /**
+     * 收集本周期内有变化的任务，每个任务只推送最新状态
+     */
+    private void dispatch() {
+        for (Task task : trackedTasks.values()) {
+            if (!Objects.equals(lastSent.get(task.getId()), Snapshot.of(task))) {
+                pendingTasks.putIfAbsent(task.getId(), task);
+            }
+        }
+
+        for (String taskId : pendingTasks.keySet()) {
+            Task task = pendingTasks.remove(taskId);
+            if (task == null) {
+                continue;
+            }
+            lastSent.put(taskId, Snapshot.of(task));
+            if (task.getStatus().isFinished()) {
+                trackedTasks.remove(taskId);
+                lastSent.remove(taskId);
+            }
+            Set<SseEmitter> emitters = taskEmitters.get(taskId);
+            if (emitters != null) {
+                emitters.forEach(emitter -> send(emitter, task));
+            }
+            allEmitters.forEach(emitter -> send(emitter, task));
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastHeartbeat >= properties.getEvents().getHeartbeatIntervalMillis()) {
+            lastHeartbeat = now;
+            heartbeat();
+        }
+    }
+
+    /**
+     * 定期发送注释行，及时发现已断开的连接
+     */
+    private void heartbeat() {
+        allEmitters.forEach(this::ping);
+        taskEmitters.values().forEach(emitters -> emitters.forEach(this::ping));
+    }
+
+    private void ping(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void send(SseEmitter emitter, Task task) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(task, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("推送任务事件失败，关闭连接：{}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        allEmitters.forEach(SseEmitter::complete);
+        taskEmitters.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+}
@@ -1,24 +1,78 @@
 package com.anner.embed.service.impl;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.model.PageResult;
 import com.anner.embed.model.Task;
 import com.anner.embed.model.Task.TaskStatus;
+import com.anner.embed.pipeline.EmbeddingTaskScheduler;
+import com.anner.embed.repository.TaskRepository;
+import com.anner.embed.service.TaskEventService;
 import com.anner.embed.service.TaskService;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 任务状态持久化到 {@link TaskRepository}，内存中只保留运行中的任务和少量最近结束的任务。
+ * 运行中任务的进度由处理线程直接修改内存对象，定期批量写回存储。
+ */
 @Slf4j
 @Service
 public class TaskServiceImpl implements TaskService {
-    private final Map<String, Task> tasks = new ConcurrentHashMap<>();
+    private final TaskRepository taskRepository;
+    private final TaskEventService taskEventService;
+    private final EmbeddingTaskScheduler taskScheduler;
+    private final EmbedProperties properties;
+    private final Map<String, Task> activeTasks = new ConcurrentHashMap<>();
+    private final Map<String, Task> recentTasks;
+
+    /**
+     * 调度器依赖任务服务更新任务状态，这里延迟注入调度器以避免循环依赖
+     */
+    public TaskServiceImpl(TaskRepository taskRepository, TaskEventService taskEventService,
+            @Lazy EmbeddingTaskScheduler taskScheduler, EmbedProperties properties) {
+        this.taskRepository = taskRepository;
+        this.taskEventService = taskEventService;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+        int cacheSize = properties.getTasks().getCacheSize();
+        this.recentTasks = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Task> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * 上次退出时仍在运行或排队的任务已无线程处理，标记为失败，可通过检查点恢复
+     */
+    @PostConstruct
+    public void markInterruptedTasks() {
+        List<Task> interrupted = new ArrayList<>(taskRepository.findByStatus(TaskStatus.RUNNING));
+        interrupted.addAll(taskRepository.findByStatus(TaskStatus.QUEUED));
+        for (Task task : interrupted) {
+            task.setStatus(TaskStatus.FAILED);
+            task.setErrorMessage("服务重启导致任务中断，可从检查点恢复");
+            task.setUpdateTime(LocalDateTime.now());
+            taskRepository.save(task);
+            log.warn("Task interrupted by restart: {}", task.getId());
+        }
+    }
 
     @Override
     public Task createTask(String fileName, String modelType) {
@@ -27,11 +81,13 @@ public class TaskServiceImpl implements TaskService {
         task.setFileName(fileName);
         task.setModelType(modelType);
         task.setProgress(0.0);
-        task.setStatus(TaskStatus.RUNNING);
+        task.setStatus(TaskStatus.QUEUED);
         task.setCreateTime(LocalDateTime.now());
         task.setUpdateTime(LocalDateTime.now());
 
-        tasks.put(task.getId(), task);
+        activeTasks.put(task.getId(), task);
+        taskRepository.save(task);
+        taskEventService.track(task);
         log.info("Created new task: {}", task.getId());
         return task;
     }
@@ -51,51 +107,204 @@ public class TaskServiceImpl implements TaskService {
         task.setUpdateTime(LocalDateTime.now());
     }
 
+    @Override
+    public boolean startTask(String taskId) {
+        Task task = getTask(taskId);
+        if (task == null) {
+            return false;
+        }
+        synchronized (task) {
+            if (task.getStatus() != TaskStatus.QUEUED) {
+                return false;
+            }
+            task.setStatus(TaskStatus.RUNNING);
+            task.setUpdateTime(LocalDateTime.now());
+        }
+        log.info("Task started: {}", taskId);
+        return true;
+    }
+
     @Override
     public void completeTask(String taskId) {
-        Task task = tasks.get(taskId);
-        if (task != null) {
+        Task task = getTask(taskId);
+        if (task == null) {
+            return;
+        }
+        synchronized (task) {
+            // 已取消的任务保持取消状态
+            if (!isUnfinished(task)) {
+                return;
+            }
             task.setStatus(TaskStatus.COMPLETED);
             task.setProgress(100.0);
             task.setUpdateTime(LocalDateTime.now());
-            log.info("Task completed: {}", taskId);
         }
+        finish(task);
+        log.info("Task completed: {}", taskId);
     }
 
     @Override
     public void failTask(String taskId, String errorMessage) {
-        Task task = tasks.get(taskId);
-        if (task != null) {
+        Task task = getTask(taskId);
+        if (task == null) {
+            return;
+        }
+        synchronized (task) {
+            // 取消会使处理线程抛出异常，此时不能把已取消的任务改为失败，否则会被当作可恢复的任务
+            if (!isUnfinished(task)) {
+                return;
+            }
             task.setStatus(TaskStatus.FAILED);
             task.setErrorMessage(errorMessage);
             task.setUpdateTime(LocalDateTime.now());
-            log.error("Task failed: {} - {}", taskId, errorMessage);
         }
+        finish(task);
+        log.error("Task failed: {} - {}", taskId, errorMessage);
     }
 
     @Override
     public void cancelTask(String taskId) {
-        Task task = tasks.get(taskId);
-        if (task != null && task.getStatus() == TaskStatus.RUNNING) {
+        Task task = getTask(taskId);
+        if (task == null) {
+            return;
+        }
+        synchronized (task) {
+            if (!isUnfinished(task)) {
+                return;
+            }
             task.setStatus(TaskStatus.CANCELLED);
             task.setUpdateTime(LocalDateTime.now());
-            log.info("Task cancelled: {}", taskId);
         }
+        finish(task);
+        // 排队中的任务立即移出队列，不必等到下一次调度
+        taskScheduler.cancel(taskId);
+        log.info("Task cancelled: {}", taskId);
+    }
+
+    /**
+     * 只有排队中或运行中的任务可以转为结束状态，调用方持有任务对象的锁
+     */
+    private static boolean isUnfinished(Task task) {
+        return task.getStatus() == TaskStatus.RUNNING || task.getStatus() == TaskStatus.QUEUED;
+    }
+
+    /**
+     * 任务结束后从活动任务中移出，放入最近任务缓存并持久化
+     */
+    private void finish(Task task) {
+        recentTasks.put(task.getId(), task);
+        activeTasks.remove(task.getId());
+        taskRepository.save(task);
+        taskEventService.publish(task);
     }
 
     @Override
-    public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+    public PageResult<Task> listTasks(TaskStatus status, int page, int size) {
+        int offset = (int) Math.min((long) (page - 1) * size, Integer.MAX_VALUE);
+        List<Task> items = new ArrayList<>();
+        for (Task stored : taskRepository.findPage(status, offset, size)) {
+            // 运行中的任务以内存中的实时进度为准
+            Task active = activeTasks.get(stored.getId());
+            items.add(active != null ? active : stored);
+        }
+        return new PageResult<>(items, taskRepository.count(status), page, size);
     }
 
     @Override
     public Task getTask(String taskId) {
-        return tasks.get(taskId);
+        Task task = activeTasks.get(taskId);
+        if (task != null) {
+            return task;
+        }
+        task = recentTasks.get(taskId);
+        if (task != null) {
+            return task;
+        }
+        task = taskRepository.findById(taskId);
+        if (task != null) {
+            recentTasks.put(taskId, task);
+        }
+        return task;
+    }
+
+    @Override
+    public Task restoreTask(Task task) {
+        Task existing = getTask(task.getId());
+        if (existing != null) {
+            return existing;
+        }
+        recentTasks.put(task.getId(), task);
+        taskRepository.save(task);
+        log.info("Restored task from checkpoint: {}", task.getId());
+        return task;
+    }
+
+    @Override
+    public boolean resumeTask(String taskId) {
+        Task task = getTask(taskId);
+        if (task == null) {
+            return false;
+        }
+        synchronized (task) {
+            if (task.getStatus() != TaskStatus.FAILED) {
+                return false;
+            }
+            task.setStatus(TaskStatus.QUEUED);
+            task.setErrorMessage(null);
+            task.setUpdateTime(LocalDateTime.now());
+        }
+        activeTasks.put(taskId, task);
+        recentTasks.remove(taskId);
+        taskRepository.save(task);
+        taskEventService.track(task);
+        log.info("Task resumed: {}", taskId);
+        return true;
     }
 
     @Override
     public boolean isTaskCancelled(String taskId) {
-        Task task = tasks.get(taskId);
+        Task task = getTask(taskId);
         return task != null && task.getStatus() == TaskStatus.CANCELLED;
     }
-}
\ No newline at end of file
+
+    /**
+     * 定期把运行中任务的进度写回存储，服务异常退出时最多丢失一个周期的进度
+     */
+    @Scheduled(fixedDelayString = "${fast-embed.tasks.flush-interval-millis:5000}")
+    public void flushActiveTasks() {
+        for (Task task : activeTasks.values()) {
+            try {
+                taskRepository.save(task);
+            } catch (RuntimeException e) {
+                log.warn("Failed to persist task {}: {}", task.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 从内存缓存中移除超过保留时间的已结束任务，存储中的记录不受影响
+     */
+    @Scheduled(fixedDelayString = "${fast-embed.tasks.evict-interval-millis:60000}")
+    public void evictExpiredTasks() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(properties.getTasks().getCacheTtlMillis()));
+        synchronized (recentTasks) {
+            recentTasks.values().removeIf(task -> task.getUpdateTime() == null
+                    || task.getUpdateTime().isBefore(before));
+        }
+    }
+
+    @Override
+    public List<Task> purgeFinishedBefore(LocalDateTime before) {
+        List<Task> purged = new ArrayList<>();
+        for (Task task : taskRepository.findFinishedBefore(before)) {
+            if (!activeTasks.containsKey(task.getId()) && taskRepository.deleteFinished(task.getId())) {
+                recentTasks.remove(task.getId());
+                purged.add(task);
+            }
+        }
+        if (!purged.isEmpty()) {
+            log.info("Purged {} finished tasks older than {}", purged.size(), before);
+        }
+        return purged;
+    }
+}
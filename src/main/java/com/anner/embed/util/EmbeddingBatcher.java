@@ -0,0 +1,95 @@
+package com.anner.embed.util;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将文本段按数量和 token 总数切分为 embedAll 批次。
+ * 既可以一次性切分完整列表，也可以逐个追加文本段，在批次凑满时取出。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/24
+ */
+public class EmbeddingBatcher {
+    private final int maxSegmentsPerBatch;
+    private final int maxTokensPerBatch;
+    private final Tokenizer tokenizer;
+    private List<TextSegment> current = new ArrayList<>();
+    private int currentTokens;
+
+    public EmbeddingBatcher(int maxSegmentsPerBatch, int maxTokensPerBatch, Tokenizer tokenizer) {
+        this.maxSegmentsPerBatch = maxSegmentsPerBatch;
+        this.maxTokensPerBatch = maxTokensPerBatch;
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * 按顺序切分批次，每个批次同时受文本段数量和 token 总数限制。
+     * 单个文本段超过 token 上限时单独成批，交由服务端处理。
+     *
+     * @param segments           待向量化的文本段
+     * @param maxSegmentsPerBatch 每批最多的文本段数量
+     * @param maxTokensPerBatch   每批最多的 token 数量
+     * @param tokenizer          用于估算 token 数的分词器
+     * @return 保持原始顺序的批次列表
+     */
+    public static List<List<TextSegment>> partition(List<TextSegment> segments, int maxSegmentsPerBatch,
+            int maxTokensPerBatch, Tokenizer tokenizer) {
+        EmbeddingBatcher batcher = new EmbeddingBatcher(maxSegmentsPerBatch, maxTokensPerBatch, tokenizer);
+        List<List<TextSegment>> batches = new ArrayList<>();
+        for (TextSegment segment : segments) {
+            List<TextSegment> full = batcher.add(segment);
+            if (full != null) {
+                batches.add(full);
+            }
+        }
+        List<TextSegment> last = batcher.flush();
+        if (last != null) {
+            batches.add(last);
+        }
+        return batches;
+    }
+
+    /**
+     * 追加一个文本段，若当前批次放不下则返回已凑满的批次，否则返回 null
+     */
+    public List<TextSegment> add(TextSegment segment) {
+        int tokens = tokenizer.estimateTokenCountInText(segment.text());
+        List<TextSegment> full = null;
+        if (!current.isEmpty()
+                && (current.size() >= maxSegmentsPerBatch || currentTokens + tokens > maxTokensPerBatch)) {
+            full = flush();
+        }
+        current.add(segment);
+        currentTokens += tokens;
+        return full;
+    }
+
+    /**
+     * 追加一个不需要向量化的文本段（如任务内重复的文本），只为保持顺序随批次一起写出。
+     * 不占用 token 额度，但计入批次的文本段数量，连续的重复文本也会按数量上限切分，
+     * 避免单个在途批次无限增长；若当前批次已满则返回该批次，否则返回 null
+     */
+    public List<TextSegment> addPassenger(TextSegment segment) {
+        List<TextSegment> full = current.size() >= maxSegmentsPerBatch ? flush() : null;
+        current.add(segment);
+        return full;
+    }
+
+    /**
+     * 取出剩余未满的批次，没有剩余时返回 null
+     */
+    public List<TextSegment> flush() {
+        if (current.isEmpty()) {
+            return null;
+        }
+        List<TextSegment> last = current;
+        current = new ArrayList<>();
+        currentTokens = 0;
+        return last;
+    }
+}
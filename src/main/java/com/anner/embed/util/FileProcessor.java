@@ -5,18 +5,39 @@ import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.Tokenizer;
 import dev.langchain4j.model.openai.OpenAiEmbeddingModelName;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FileProcessor {
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    public static final String[] SUPPORTED_EXTENSIONS = { "json", "md", "txt" };
+    private static final int MAX_CACHED_SPLITTERS = 64;
+    private static final Tokenizer DEFAULT_TOKENIZER = new OpenAiTokenizer(
+            OpenAiEmbeddingModelName.TEXT_EMBEDDING_ADA_002);
+    private static final Map<SplitterKey, DocumentSplitter> SPLITTERS = new ConcurrentHashMap<>();
+
+    public static boolean isSupportedFile(String fileName) {
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : SUPPORTED_EXTENSIONS) {
+            if (lowerName.endsWith("." + extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     public static List<TextSegment> processFiles(List<File> files, int maxTokensPerChunk, int overlapTokens) {
         List<TextSegment> allSegments = new ArrayList<>();
@@ -35,12 +56,44 @@ public class FileProcessor {
         return new ArrayList<>(processContent(content, maxTokensPerChunk, overlapTokens));
     }
 
-    private static List<TextSegment> processContent(String content, int maxTokensPerChunk, int overlapTokens) {
-        DocumentSplitter splitter = DocumentSplitters.recursive(
-                maxTokensPerChunk,
-                overlapTokens,
-                new OpenAiTokenizer(OpenAiEmbeddingModelName.TEXT_EMBEDDING_ADA_002)
-        );
+    /**
+     * 读取流中的全部文本并分段，不会关闭传入的流，便于逐个处理压缩包条目
+     */
+    public static List<TextSegment> processStream(InputStream inputStream, int maxTokensPerChunk, int overlapTokens)
+            throws IOException {
+        String content = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        return new ArrayList<>(processContent(content, maxTokensPerChunk, overlapTokens));
+    }
+
+    /**
+     * 默认分词器，加载 BPE 编码表的开销较大，全局共享一份（线程安全）
+     */
+    public static Tokenizer defaultTokenizer() {
+        return DEFAULT_TOKENIZER;
+    }
+
+    /**
+     * 获取缓存的分段器。递归分段器本身无状态，可在多线程间共享
+     */
+    public static DocumentSplitter splitter(int maxTokensPerChunk, int overlapTokens, Tokenizer tokenizer) {
+        SplitterKey key = new SplitterKey(maxTokensPerChunk, overlapTokens, tokenizer);
+        DocumentSplitter splitter = SPLITTERS.get(key);
+        if (splitter != null) {
+            return splitter;
+        }
+        // 分段参数来自请求，防止异常参数组合让缓存无限增长
+        if (SPLITTERS.size() >= MAX_CACHED_SPLITTERS) {
+            SPLITTERS.clear();
+        }
+        return SPLITTERS.computeIfAbsent(key,
+                k -> DocumentSplitters.recursive(k.maxTokensPerChunk(), k.overlapTokens(), k.tokenizer()));
+    }
+
+    public static List<TextSegment> processContent(String content, int maxTokensPerChunk, int overlapTokens) {
+        DocumentSplitter splitter = splitter(maxTokensPerChunk, overlapTokens, DEFAULT_TOKENIZER);
         return splitter.split(Document.from(content));
     }
+
+    private record SplitterKey(int maxTokensPerChunk, int overlapTokens, Tokenizer tokenizer) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.anner.embed.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 只读打开 {@link BinaryVectorWriter} 生成的二进制向量文件。向量矩阵通过内存映射直接访问，
+ * 无需解析；单个映射不能超过 2GB，因此矩阵按整行分成若干块分别映射。文本段按需读取。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/29
+ */
+public class BinaryVectorFile implements Closeable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final FileChannel channel;
+    private final int dimension;
+    private final long count;
+    private final long offsetTableOffset;
+    private final long textOffset;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] chunkBytes;
+    private final FloatBuffer[] chunks;
+
+    private BinaryVectorFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = read(0, BinaryVectorWriter.HEADER_SIZE);
+        if (header.getInt() != BinaryVectorWriter.MAGIC) {
+            throw new RagException(RagErrorCode.FILE_READ_ERROR, "不是有效的二进制向量文件");
+        }
+        int version = header.getInt();
+        if (version != BinaryVectorWriter.VERSION) {
+            throw new RagException(RagErrorCode.FILE_READ_ERROR, "不支持的二进制向量文件版本：" + version);
+        }
+        this.dimension = header.getInt();
+        header.getInt();
+        this.count = header.getLong();
+        long matrixOffset = header.getLong();
+        this.offsetTableOffset = header.getLong();
+        this.textOffset = header.getLong();
+
+        long rowBytes = (long) Math.max(dimension, 1) * Float.BYTES;
+        this.rowsPerChunk = (int) Math.max(1, Integer.MAX_VALUE / rowBytes);
+        int chunkCount = (int) ((count + rowsPerChunk - 1) / rowsPerChunk);
+        this.chunkBytes = new ByteBuffer[chunkCount];
+        this.chunks = new FloatBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long firstRow = (long) i * rowsPerChunk;
+            long rows = Math.min(rowsPerChunk, count - firstRow);
+            chunkBytes[i] = channel.map(FileChannel.MapMode.READ_ONLY, matrixOffset + firstRow * rowBytes,
+                    rows * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+            chunks[i] = chunkBytes[i].asFloatBuffer();
+        }
+    }
+
+    public static BinaryVectorFile open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new BinaryVectorFile(channel);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new RagException(RagErrorCode.FILE_READ_ERROR, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 每个映射块包含的行数，批量计算时可按块顺序遍历矩阵
+     */
+    public int rowsPerChunk() {
+        return rowsPerChunk;
+    }
+
+    public int chunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * 返回第 chunk 块矩阵的只读视图，行 i 位于 [i * dimension, (i + 1) * dimension)
+     */
+    public FloatBuffer chunk(int chunk) {
+        return chunks[chunk].duplicate();
+    }
+
+    /**
+     * 第 chunk 块矩阵的小端序字节视图，行 i 从字节偏移 i * dimension * 4 开始，供 SIMD 计算直接读取
+     */
+    public ByteBuffer chunkBytes(int chunk) {
+        return chunkBytes[chunk].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 将第 row 行向量复制到 target 中
+     */
+    public float[] vector(long row, float[] target) {
+        checkRow(row);
+        FloatBuffer chunk = chunks[(int) (row / rowsPerChunk)];
+        chunk.get((int) (row % rowsPerChunk) * dimension, target, 0, dimension);
+        return target;
+    }
+
+    public float[] vector(long row) {
+        return vector(row, new float[dimension]);
+    }
+
+    public String text(long row) {
+        return decodeRecord(row, false).text();
+    }
+
+    public TextSegment segment(long row) {
+        return decodeRecord(row, true);
+    }
+
+    private TextSegment decodeRecord(long row, boolean withMetadata) {
+        checkRow(row);
+        try {
+            ByteBuffer range = read(offsetTableOffset + row * Long.BYTES, 2 * Long.BYTES);
+            long start = range.getLong();
+            long end = range.getLong();
+            ByteBuffer record = read(textOffset + start, (int) (end - start));
+            int textLength = record.getInt();
+            String text = new String(record.array(), record.position(), textLength, StandardCharsets.UTF_8);
+            if (!withMetadata) {
+                return TextSegment.from(text);
+            }
+            int metadataStart = record.position() + textLength;
+            Map<String, Object> metadata = OBJECT_MAPPER.readValue(record.array(), metadataStart,
+                    record.limit() - metadataStart, new TypeReference<Map<String, Object>>() {
+                    });
+            return TextSegment.from(text, Metadata.from(metadata));
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_READ_ERROR, e);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new RagException(RagErrorCode.FILE_READ_ERROR, "二进制向量文件已损坏");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void checkRow(long row) {
+        if (row < 0 || row >= count) {
+            throw new IndexOutOfBoundsException("行号越界：" + row);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // 忽略关闭异常
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.anner.embed.vector;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 二进制向量文件写入器，文件布局（全部为小端序）：
+ *
+ * <pre>
+ * [头部 64 字节] magic | version | dimension | 保留 | count | matrixOffset | offsetTableOffset | textOffset | textLength | 保留
+ * [向量矩阵]     count * dimension 个 float32，按行连续存放
+ * [偏移表]       count + 1 个 int64，第 i 个文本段记录位于文本区 [offset[i], offset[i+1])
+ * [文本区]       每条记录为 int32 文本字节数 + UTF-8 文本 + UTF-8 JSON 元数据
+ * </pre>
+ *
+ * 向量直接追加到临时文件，偏移表和文本记录分别写入另外两个临时文件，提交时拼接各区、回填头部，
+ * 最后原子重命名为目标文件。三个临时文件都只追加写入，可按检查点截断后继续写。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/29
+ */
+public class BinaryVectorWriter implements VectorOutput {
+    static final int MAGIC = 0x42564546; // 小端序下为 "FEVB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Path target;
+    private final Path matrixFile;
+    private final Path offsetsFile;
+    private final Path textFile;
+    private final FileChannel matrixChannel;
+    private final OutputStream offsetsOut;
+    private final OutputStream textOut;
+    private final ByteBuffer longBuffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long count;
+    private long textLength;
+    private int dimension = -1;
+
+    public BinaryVectorWriter(Path target) {
+        this(target, null);
+    }
+
+    /**
+     * @param resumeFrom 非空时截断已有临时文件到检查点位置并继续追加
+     */
+    public BinaryVectorWriter(Path target, OutputCheckpoint resumeFrom) {
+        this.target = target.toAbsolutePath();
+        this.matrixFile = VectorFiles.tempSibling(this.target, ".tmp");
+        this.offsetsFile = VectorFiles.tempSibling(this.target, ".offsets.tmp");
+        this.textFile = VectorFiles.tempSibling(this.target, ".text.tmp");
+        try {
+            if (resumeFrom == null) {
+                this.matrixChannel = FileChannel.open(matrixFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                this.matrixChannel.position(HEADER_SIZE);
+                this.offsetsOut = new BufferedOutputStream(Files.newOutputStream(offsetsFile), 1 << 16);
+                this.textOut = new BufferedOutputStream(Files.newOutputStream(textFile), 1 << 16);
+                writeOffset(0);
+            } else {
+                this.count = resumeFrom.entries();
+                this.textLength = resumeFrom.textBytes();
+                this.dimension = resumeFrom.dimension();
+                VectorFiles.truncate(matrixFile, resumeFrom.dataBytes());
+                VectorFiles.truncate(offsetsFile, (count + 1) * Long.BYTES);
+                VectorFiles.truncate(textFile, textLength);
+                this.matrixChannel = FileChannel.open(matrixFile, StandardOpenOption.WRITE);
+                this.matrixChannel.position(resumeFrom.dataBytes());
+                this.offsetsOut = new BufferedOutputStream(
+                        Files.newOutputStream(offsetsFile, StandardOpenOption.APPEND), 1 << 16);
+                this.textOut = new BufferedOutputStream(
+                        Files.newOutputStream(textFile, StandardOpenOption.APPEND), 1 << 16);
+            }
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public void append(List<Embedding> embeddings, List<TextSegment> segments) {
+        if (embeddings.isEmpty()) {
+            return;
+        }
+        if (dimension < 0) {
+            dimension = embeddings.get(0).dimension();
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(embeddings.size() * dimension * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (Embedding embedding : embeddings) {
+                if (embedding.dimension() != dimension) {
+                    throw new RagException(RagErrorCode.VECTORIZATION_FAILED,
+                            "向量维度不一致：期望 " + dimension + "，实际 " + embedding.dimension());
+                }
+                buffer.asFloatBuffer().put(embedding.vector());
+                buffer.position(buffer.position() + dimension * Float.BYTES);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                matrixChannel.write(buffer);
+            }
+
+            for (TextSegment segment : segments) {
+                writeTextRecord(segment);
+            }
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    private void writeTextRecord(TextSegment segment) throws IOException {
+        byte[] text = segment.text().getBytes(StandardCharsets.UTF_8);
+        byte[] metadata = metadataBytes(segment);
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(text.length);
+        textOut.write(length.array());
+        textOut.write(text);
+        textOut.write(metadata);
+
+        textLength += Integer.BYTES + text.length + metadata.length;
+        count++;
+        writeOffset(textLength);
+    }
+
+    private void writeOffset(long offset) throws IOException {
+        longBuffer.clear();
+        offsetsOut.write(longBuffer.putLong(offset).array());
+    }
+
+    private static byte[] metadataBytes(TextSegment segment) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(segment.metadata().toMap());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public OutputCheckpoint checkpoint() {
+        try {
+            offsetsOut.flush();
+            textOut.flush();
+            return new OutputCheckpoint(count, matrixChannel.position(), textLength, dimension);
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public String commit() {
+        try {
+            offsetsOut.close();
+            textOut.close();
+            long matrixOffset = HEADER_SIZE;
+            long offsetTableOffset = matrixOffset + count * Math.max(dimension, 0) * Float.BYTES;
+            long offsetTableLength = (count + 1) * Long.BYTES;
+            long textOffset = offsetTableOffset + offsetTableLength;
+
+            VectorFiles.transfer(offsetsFile, offsetTableLength, matrixChannel, offsetTableOffset);
+            VectorFiles.transfer(textFile, textLength, matrixChannel, textOffset);
+
+            // 回填头部
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(Math.max(dimension, 0)).putInt(0)
+                    .putLong(count).putLong(matrixOffset).putLong(offsetTableOffset)
+                    .putLong(textOffset).putLong(textLength).putLong(0);
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += matrixChannel.write(header, position);
+            }
+            matrixChannel.force(true);
+            matrixChannel.close();
+
+            VectorFiles.moveAtomically(matrixFile, target);
+            VectorFiles.deleteQuietly(offsetsFile, textFile);
+            return target.toString();
+        } catch (IOException e) {
+            abort();
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(offsetsOut);
+        closeQuietly(textOut);
+        try {
+            matrixChannel.close();
+        } catch (IOException ignored) {
+            // 清理阶段忽略关闭异常
+        }
+    }
+
+    @Override
+    public void abort() {
+        close();
+        VectorFiles.deleteQuietly(matrixFile, offsetsFile, textFile);
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // 清理阶段忽略关闭异常
+        }
+    }
+}
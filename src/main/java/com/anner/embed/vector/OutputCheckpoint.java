@@ -0,0 +1,15 @@
+package com.anner.embed.vector;
+
+/**
+ * 向量输出在某个批次边界上的写入位置，用于任务中断后截断临时文件并继续追加
+ *
+ * @param entries   已写入的文本段数
+ * @param dataBytes 主临时文件的有效字节数
+ * @param textBytes 文本区临时文件的有效字节数（仅二进制格式）
+ * @param dimension 向量维度（仅二进制格式，尚未写入向量时为 -1）
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/31
+ */
+public record OutputCheckpoint(long entries, long dataBytes, long textBytes, int dimension) {
+}
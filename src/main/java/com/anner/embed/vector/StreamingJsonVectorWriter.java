@@ -0,0 +1,213 @@
+package com.anner.embed.vector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流式写出与 {@link InMemoryEmbeddingStore#fromFile} 兼容的 JSON 向量文件。
+ * 每个条目的 id、embedding 和 embedded 字段由生成器直接写入输出文件的 entries 数组，
+ * 内存中只保留当前批次，不再持有整个任务的向量。写入临时文件，提交时原子重命名为目标文件。
+ * <p>
+ * 类加载时用一个探针条目对比直接写出的结果与 InMemoryEmbeddingStore 的序列化结果，
+ * 不一致时（依赖升级改变了序列化格式）回退为先用临时向量库序列化每个批次再逐条复制。
+ * <p>
+ * 数组的括号和分隔符由本类直接写出，生成器只负责单个条目，因此可以在任意条目边界截断临时文件后继续追加。
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/30
+ */
+@Slf4j
+public class StreamingJsonVectorWriter implements VectorOutput {
+    private static final String ENTRIES = "entries";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final boolean DIRECT_ENTRIES = directEntriesCompatible();
+
+    private final Path target;
+    private final Path tempFile;
+    private final JsonGenerator generator;
+    private final JsonNode template;
+    private long entries;
+
+    public StreamingJsonVectorWriter(Path target) {
+        this(target, null);
+    }
+
+    /**
+     * @param resumeFrom 非空时截断已有临时文件到检查点位置并继续追加
+     */
+    public StreamingJsonVectorWriter(Path target, OutputCheckpoint resumeFrom) {
+        this.target = target.toAbsolutePath();
+        this.tempFile = VectorFiles.tempSibling(this.target, ".tmp");
+        try {
+            // 以空向量库的序列化结果为模板，entries 之外的字段在提交时原样写出
+            this.template = OBJECT_MAPPER.readTree(new InMemoryEmbeddingStore<TextSegment>().serializeToJson());
+            OutputStream out;
+            if (resumeFrom == null) {
+                out = Files.newOutputStream(tempFile);
+            } else {
+                VectorFiles.truncate(tempFile, resumeFrom.dataBytes());
+                out = Files.newOutputStream(tempFile, StandardOpenOption.APPEND);
+                this.entries = resumeFrom.entries();
+            }
+            this.generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            // 条目之间的逗号自行写出，不使用根级别分隔符
+            generator.setRootValueSeparator(null);
+            if (resumeFrom == null) {
+                generator.writeRaw("{" + OBJECT_MAPPER.writeValueAsString(ENTRIES) + ":[");
+            }
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public void append(List<Embedding> embeddings, List<TextSegment> segments) {
+        try {
+            if (!DIRECT_ENTRIES) {
+                appendThroughStore(embeddings, segments);
+                return;
+            }
+            for (int i = 0; i < embeddings.size(); i++) {
+                if (entries > 0) {
+                    generator.writeRaw(',');
+                }
+                writeEntry(generator, UUID.randomUUID().toString(), embeddings.get(i), segments.get(i));
+                entries++;
+            }
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    private void appendThroughStore(List<Embedding> embeddings, List<TextSegment> segments) throws IOException {
+        InMemoryEmbeddingStore<TextSegment> batchStore = new InMemoryEmbeddingStore<>();
+        batchStore.addAll(embeddings, segments);
+        JsonNode batchEntries = OBJECT_MAPPER.readTree(batchStore.serializeToJson()).path(ENTRIES);
+        for (JsonNode entry : batchEntries) {
+            if (entries > 0) {
+                generator.writeRaw(',');
+            }
+            generator.writeTree(entry);
+            entries++;
+        }
+    }
+
+    /**
+     * 按 InMemoryEmbeddingStore 的条目结构写出：{"id", "embedding": {"vector"}, "embedded": {"text", "metadata"}}
+     */
+    private static void writeEntry(JsonGenerator generator, String id, Embedding embedding, TextSegment segment)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", id);
+        generator.writeObjectFieldStart("embedding");
+        generator.writeArrayFieldStart("vector");
+        for (float value : embedding.vector()) {
+            generator.writeNumber(value);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("embedded");
+        generator.writeStringField("text", segment.text());
+        generator.writeObjectFieldStart("metadata");
+        generator.writeObjectField("metadata", segment.metadata().toMap());
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * 分别用两种方式序列化同一个探针条目，结构一致时才直接写出条目
+     */
+    private static boolean directEntriesCompatible() {
+        try {
+            InMemoryEmbeddingStore<TextSegment> probe = new InMemoryEmbeddingStore<>();
+            Embedding embedding = Embedding.from(new float[] {0.5f, -1.25f, 3.0e-8f});
+            TextSegment segment = TextSegment.from("探针 \"text\"\n",
+                    Metadata.from(Map.of("file_name", "probe.md", "index", 3)));
+            probe.add(embedding, segment);
+            JsonNode expected = OBJECT_MAPPER.readTree(probe.serializeToJson()).path(ENTRIES).path(0);
+
+            StringWriter json = new StringWriter();
+            try (JsonGenerator probeGenerator = OBJECT_MAPPER.getFactory().createGenerator(json)) {
+                writeEntry(probeGenerator, expected.path("id").asText(), embedding, segment);
+            }
+            if (OBJECT_MAPPER.readTree(json.toString()).equals(expected)) {
+                return true;
+            }
+            log.warn("向量库序列化格式与直接写出的条目不一致，JSON 向量文件改为逐批经临时向量库序列化：{}", expected);
+        } catch (IOException | RuntimeException e) {
+            log.warn("检查向量库序列化格式失败，JSON 向量文件改为逐批经临时向量库序列化：{}", e.getMessage());
+        }
+        return false;
+    }
+
+    @Override
+    public OutputCheckpoint checkpoint() {
+        try {
+            generator.flush();
+            return new OutputCheckpoint(entries, Files.size(tempFile), 0, -1);
+        } catch (IOException e) {
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public String commit() {
+        try {
+            generator.writeRaw(']');
+            Iterator<Map.Entry<String, JsonNode>> fields = template.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!ENTRIES.equals(field.getKey())) {
+                    generator.writeRaw("," + OBJECT_MAPPER.writeValueAsString(field.getKey()) + ":");
+                    generator.writeTree(field.getValue());
+                }
+            }
+            generator.writeRaw('}');
+            generator.close();
+
+            VectorFiles.moveAtomically(tempFile, target);
+            return target.toString();
+        } catch (IOException e) {
+            abort();
+            throw new RagException(RagErrorCode.FILE_WRITE_ERROR, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            generator.close();
+        } catch (IOException ignored) {
+            // 清理阶段忽略关闭异常
+        }
+    }
+
+    @Override
+    public void abort() {
+        close();
+        VectorFiles.deleteQuietly(tempFile);
+    }
+}
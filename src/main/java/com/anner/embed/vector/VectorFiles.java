@@ -0,0 +1,71 @@
+package com.anner.embed.vector;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.anner.embed.exception.RagErrorCode;
+import com.anner.embed.exception.RagException;
+
+/**
+ * 向量输出共用的临时文件操作
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/31
+ */
+final class VectorFiles {
+
+    private VectorFiles() {
+    }
+
+    static Path tempSibling(Path target, String suffix) {
+        return target.resolveSibling(target.getFileName() + suffix);
+    }
+
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 将检查点之后写入的内容截掉，临时文件缺失或短于检查点时说明无法恢复
+     */
+    static void truncate(Path file, long length) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < length) {
+            throw new RagException(RagErrorCode.FILE_READ_ERROR, "检查点对应的临时文件缺失或不完整：" + file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    /**
+     * 将 source 的前 length 字节写入 target 的 position 处
+     */
+    static void transfer(Path source, long length, FileChannel target, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long transferred = 0;
+            while (transferred < length) {
+                transferred += target.transferFrom(channel, position + transferred, length - transferred);
+            }
+        }
+    }
+
+    static void deleteQuietly(Path... files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // 清理阶段忽略删除异常
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.anner.embed.vector;
+
+import java.util.List;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 向量结果输出：按顺序追加批次，全部完成后提交生成最终文件，失败时放弃并清理临时文件
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/3/29
+ */
+public interface VectorOutput {
+
+    void append(List<Embedding> embeddings, List<TextSegment> segments);
+
+    /**
+     * 将已追加的数据刷到磁盘，返回当前写入位置，之后可据此恢复输出
+     */
+    OutputCheckpoint checkpoint();
+
+    /**
+     * 写出最终文件并返回其绝对路径
+     */
+    String commit();
+
+    /**
+     * 释放文件句柄但保留临时文件，便于之后从检查点恢复
+     */
+    void close();
+
+    void abort();
+}
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS embed_task (
+    id          VARCHAR(64) PRIMARY KEY,
+    status      VARCHAR(16) NOT NULL,
+    create_time TIMESTAMP   NOT NULL,
+    update_time TIMESTAMP   NOT NULL,
+    payload     CLOB        NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_embed_task_status_create ON embed_task (status, create_time);
+CREATE INDEX IF NOT EXISTS idx_embed_task_create ON embed_task (create_time);
@@ -89,75 +89,65 @@ const EmbeddingConfig: React.FC<EmbeddingConfigProps> = () => {
     const navigate = useNavigate();
 
     useEffect(() => {
-        let intervalId: ReturnType<typeof setInterval>;
-        if (processing && currentTaskId && currentTaskId !== 'COMPLETED') {
-            intervalId = setInterval(async () => {
-                try {
-                    const response = await axios.get(`/api/tasks/${currentTaskId}`);
-                    if (response.data.success) {
-                        const task = response.data.data;
-                        setProgress(task.progress);
-
-                        // 更新各阶段状态
-                        const newStages = [...stages];
-
-                        if (task.currentStage === "准备处理文件") {
-                            newStages[0].progress = 100;
-                            newStages[0].completed = true;
-                        } else if (task.currentStage === "正在分析文件并进行文本分段") {
-                            newStages[0].completed = true;
-                            newStages[0].progress = 100;
-                            newStages[1].progress = task.segmentProgress;
-                        } else if (task.currentStage === "正在生成文本向量") {
-                            newStages[0].completed = true;
-                            newStages[0].progress = 100;
-                            newStages[1].completed = true;
-                            newStages[1].progress = 100;
-                            newStages[2].progress = task.embeddingProgress;
-                        } else if (task.currentStage === "处理完成") {
-                            newStages.forEach(stage => {
-                                stage.completed = true;
-                                stage.progress = 100;
-                            });
-                        }
-
-                        setStages(newStages);
-
-                        if (task.status === 'COMPLETED') {
-                            setProcessing(false);
-                            setCompleted(true);
-                            setProgress(100);
-                            clearInterval(intervalId);
-                            form.resetFields(['file']);
-                        } else if (task.status === 'FAILED') {
-                            setProcessing(false);
-                            setProgress(0);
-                            clearInterval(intervalId);
-                            message.error(task.errorMessage || '处理失败');
-                        } else if (task.status === 'CANCELLED') {
-                            setProcessing(false);
-                            setProgress(0);
-                            clearInterval(intervalId);
-                            message.info('任务已取消');
-                        }
-                    } else {
-                        throw new Error(response.data.message || '获取进度失败');
-                    }
-                } catch (error) {
-                    console.error('获取进度失败:', error);
-                    handleError(error);
-                    setProcessing(false);
-                    setProgress(0);
-                    clearInterval(intervalId);
-                }
-            }, 1000);
+        if (!processing || !currentTaskId || currentTaskId === 'COMPLETED') {
+            return;
         }
-        return () => {
-            if (intervalId) {
-                clearInterval(intervalId);
+        // 订阅服务端推送的任务进度，任务结束后关闭连接
+        const source = new EventSource(`/api/tasks/${currentTaskId}/events`);
+        source.addEventListener('task', (event) => {
+            const task = JSON.parse((event as MessageEvent).data);
+            setProgress(task.progress);
+
+            // 更新各阶段状态
+            setStages((current) => {
+                const newStages = current.map((stage) => ({ ...stage }));
+
+                if (task.currentStage === "准备处理文件") {
+                    newStages[0].progress = 100;
+                    newStages[0].completed = true;
+                } else if (task.currentStage === "正在分析文件并进行文本分段") {
+                    newStages[0].completed = true;
+                    newStages[0].progress = 100;
+                    newStages[1].progress = task.segmentProgress;
+                } else if (task.currentStage === "正在生成文本向量") {
+                    newStages[0].completed = true;
+                    newStages[0].progress = 100;
+                    newStages[1].completed = true;
+                    newStages[1].progress = 100;
+                    newStages[2].progress = task.embeddingProgress;
+                } else if (task.currentStage === "处理完成") {
+                    newStages.forEach(stage => {
+                        stage.completed = true;
+                        stage.progress = 100;
+                    });
+                }
+                return newStages;
+            });
+
+            if (task.status === 'COMPLETED') {
+                setProcessing(false);
+                setCompleted(true);
+                setProgress(100);
+                source.close();
+                form.resetFields(['file']);
+            } else if (task.status === 'FAILED') {
+                setProcessing(false);
+                setProgress(0);
+                source.close();
+                message.error(task.errorMessage || '处理失败');
+            } else if (task.status === 'CANCELLED') {
+                setProcessing(false);
+                setProgress(0);
+                source.close();
+                message.info('任务已取消');
             }
+        });
+        source.onerror = () => {
+            // 连接中断时浏览器会自动重连，这里只记录日志
+            console.error('任务进度连接中断，正在重连');
         };
-    }, [processing, currentTaskId, form, stages]);
+        return () => source.close();
+    }, [processing, currentTaskId, form]);
 
     const handleError = (error: any) => {
         if (error.response?.data) {
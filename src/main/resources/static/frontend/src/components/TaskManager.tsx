@@ -1,7 +1,7 @@
-import { CheckCircleFilled, CloseCircleFilled, DownloadOutlined, HomeOutlined, LoadingOutlined, StopOutlined } from '@ant-design/icons';
+import { CheckCircleFilled, ClockCircleOutlined, CloseCircleFilled, DownloadOutlined, HomeOutlined, LoadingOutlined, StopOutlined } from '@ant-design/icons';
 import { Button, Card, message, Modal, Space, Table, Tag, Typography } from 'antd';
 import axios from 'axios';
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 
 const { Title } = Typography;
@@ -11,7 +11,7 @@ interface Task {
     fileName: string;
     modelType: string;
     progress: number;
-    status: 'RUNNING' | 'COMPLETED' | 'FAILED' | 'CANCELLED';
+    status: 'QUEUED' | 'RUNNING' | 'COMPLETED' | 'FAILED' | 'CANCELLED';
     currentStage: string;
     createTime: string;
     updateTime: string;
@@ -20,14 +20,20 @@ interface Task {
 
 const TaskManager: React.FC = () => {
     const [tasks, setTasks] = useState<Task[]>([]);
+    const [total, setTotal] = useState(0);
+    const [page, setPage] = useState(1);
+    const [pageSize, setPageSize] = useState(10);
     const [loading, setLoading] = useState(false);
+    const tasksRef = useRef<Task[]>([]);
     const navigate = useNavigate();
 
     const fetchTasks = async () => {
         try {
-            const response = await axios.get('/api/tasks');
+            const response = await axios.get('/api/tasks', { params: { page, size: pageSize } });
             if (response.data.success) {
-                setTasks(response.data.data);
+                tasksRef.current = response.data.data.items;
+                setTasks(response.data.data.items);
+                setTotal(response.data.data.total);
             }
         } catch (error) {
             console.error('获取任务列表失败:', error);
@@ -37,9 +43,27 @@ const TaskManager: React.FC = () => {
 
     useEffect(() => {
         fetchTasks();
-        const intervalId = setInterval(fetchTasks, 5000);
+        // 进度由服务端推送，低频刷新只用于发现新任务和同步分页
+        const intervalId = setInterval(fetchTasks, 30000);
         return () => clearInterval(intervalId);
-    }, []);
+    }, [page, pageSize]);
+
+    useEffect(() => {
+        const source = new EventSource('/api/tasks/events');
+        source.addEventListener('task', (event) => {
+            const updated: Task = JSON.parse((event as MessageEvent).data);
+            if (!tasksRef.current.some((task) => task.id === updated.id)) {
+                // 新任务只在第一页显示，交给列表查询处理分页
+                if (page === 1) {
+                    fetchTasks();
+                }
+                return;
+            }
+            tasksRef.current = tasksRef.current.map((task) => (task.id === updated.id ? { ...task, ...updated } : task));
+            setTasks(tasksRef.current);
+        });
+        return () => source.close();
+    }, [page, pageSize]);
 
     const handleCancel = async (taskId: string) => {
         Modal.confirm({
@@ -88,6 +112,8 @@ const TaskManager: React.FC = () => {
                 return <StopOutlined style={{ color: '#faad14' }} />;
             case 'RUNNING':
                 return <LoadingOutlined style={{ color: '#1890ff' }} />;
+            case 'QUEUED':
+                return <ClockCircleOutlined style={{ color: '#8c8c8c' }} />;
             default:
                 return null;
         }
@@ -113,6 +139,10 @@ const TaskManager: React.FC = () => {
                 color = 'processing';
                 text = '处理中';
                 break;
+            case 'QUEUED':
+                color = 'default';
+                text = '排队中';
+                break;
             default:
                 color = 'default';
                 text = '未知';
@@ -170,7 +200,7 @@ const TaskManager: React.FC = () => {
             width: '10%',
             render: (_: any, record: Task) => (
                 <Space size="small" direction="vertical" style={{ width: '100%' }}>
-                    {record.status === 'RUNNING' && (
+                    {(record.status === 'RUNNING' || record.status === 'QUEUED') && (
                         <Button
                             danger
                             type="primary"
@@ -243,7 +273,13 @@ const TaskManager: React.FC = () => {
                     rowKey="id"
                     loading={loading}
                     pagination={{
-                        pageSize: 10,
+                        current: page,
+                        pageSize: pageSize,
+                        total: total,
+                        onChange: (nextPage, nextPageSize) => {
+                            setPage(nextPage);
+                            setPageSize(nextPageSize);
+                        },
                         showTotal: (total) => `共 ${total} 条记录`,
                         showSizeChanger: true,
                         showQuickJumper: true,
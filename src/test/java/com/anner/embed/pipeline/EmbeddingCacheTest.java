@@ -0,0 +1,102 @@
+package com.anner.embed.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.langchain4j.data.embedding.Embedding;
+
+/**
+ * 向量缓存的新旧两代轮转、命中回写和重新加载
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddingCache.Namespace open(int maxGenerationEntries) throws IOException {
+        return new EmbeddingCache.Namespace(directory.resolve("cache.bin"), directory.resolve("cache.old.bin"),
+                Long.MAX_VALUE, maxGenerationEntries);
+    }
+
+    private static void put(EmbeddingCache.Namespace cache, String text) {
+        cache.putAll(List.of(EmbeddingCache.Key.of(text)), List.of(vectorOf(text)));
+    }
+
+    private static Embedding get(EmbeddingCache.Namespace cache, String text) {
+        return cache.get(EmbeddingCache.Key.of(text));
+    }
+
+    private static Embedding vectorOf(String text) {
+        return Embedding.from(new float[] {text.length(), text.hashCode(), -1.5f});
+    }
+
+    @Test
+    void rotationDropsOnlyTheRetiredGeneration() throws IOException {
+        EmbeddingCache.Namespace cache = open(2);
+        put(cache, "a");
+        put(cache, "b");
+        // 新一代写满，写入 c 时 {a, b} 降为旧一代
+        put(cache, "c");
+        assertTrue(Files.exists(directory.resolve("cache.old.bin")));
+        assertEquals(3, cache.size());
+
+        // 旧一代命中的 a 写回新一代：{c, a}
+        assertArrayEquals(vectorOf("a").vector(), get(cache, "a").vector());
+        // 再次轮转：{c, a} 降为旧一代，只有 b 所在的旧一代被丢弃
+        put(cache, "d");
+
+        assertNull(get(cache, "b"));
+        assertNotNull(get(cache, "a"));
+        assertNotNull(get(cache, "c"));
+        assertArrayEquals(vectorOf("d").vector(), get(cache, "d").vector());
+        cache.close();
+    }
+
+    @Test
+    void reopenLoadsBothGenerations() throws IOException {
+        EmbeddingCache.Namespace cache = open(2);
+        put(cache, "a");
+        put(cache, "b");
+        put(cache, "c");
+        cache.close();
+
+        EmbeddingCache.Namespace reopened = open(2);
+        assertEquals(3, reopened.size());
+        for (String text : List.of("a", "b", "c")) {
+            assertArrayEquals(vectorOf(text).vector(), get(reopened, text).vector());
+        }
+        reopened.close();
+    }
+
+    @Test
+    void reopenTruncatesIncompleteTail() throws IOException {
+        EmbeddingCache.Namespace cache = open(10);
+        put(cache, "a");
+        cache.close();
+        // 模拟写入中断：文件末尾只有半条记录
+        Files.write(directory.resolve("cache.bin"), new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        EmbeddingCache.Namespace reopened = open(10);
+        assertEquals(1, reopened.size());
+        put(reopened, "b");
+        assertArrayEquals(vectorOf("a").vector(), get(reopened, "a").vector());
+        assertArrayEquals(vectorOf("b").vector(), get(reopened, "b").vector());
+        reopened.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.anner.embed.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.anner.embed.config.EmbedProperties;
+import com.anner.embed.model.TaskPriority;
+import com.anner.embed.service.TaskService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 任务调度的全局名额、服务端配额、优先级和排队期间取消。
+ * 任务线程池由测试手动执行，便于控制任务何时结束
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class EmbeddingTaskSchedulerTest {
+    private final Queue<Runnable> pending = new LinkedList<>();
+    private final Executor executor = pending::add;
+    private final List<String> started = new ArrayList<>();
+    private final List<String> discarded = new ArrayList<>();
+    private TaskService taskService;
+    private EmbeddingTaskScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        EmbedProperties properties = new EmbedProperties();
+        properties.getExecutor().setTaskPoolSize(2);
+        properties.getScheduler().setMaxTasksPerProvider(1);
+        properties.getScheduler().setFastPathSlots(1);
+        taskService = mock(TaskService.class);
+        when(taskService.startTask(anyString())).thenReturn(true);
+        scheduler = new EmbeddingTaskScheduler(executor, taskService, properties, new SimpleMeterRegistry());
+    }
+
+    private CompletableFuture<Void> submit(String taskId, String provider, TaskPriority priority) {
+        return submit(taskId, provider, priority, false);
+    }
+
+    private CompletableFuture<Void> submit(String taskId, String provider, TaskPriority priority,
+            boolean fastPath) {
+        return scheduler.submit(taskId, provider, priority, fastPath, () -> started.add(taskId),
+                () -> discarded.add(taskId));
+    }
+
+    /**
+     * 执行一个已分配到名额的任务，任务结束后释放名额
+     */
+    private void runNext() {
+        pending.remove().run();
+    }
+
+    @Test
+    void providerQuotaLetsOtherProvidersRunFirst() {
+        submit("a1", "a", TaskPriority.NORMAL);
+        submit("a2", "a", TaskPriority.NORMAL);
+        submit("b1", "b", TaskPriority.NORMAL);
+        // a2 超出服务端 a 的配额，b1 先于它启动
+        assertEquals(2, pending.size());
+        assertEquals(1, scheduler.queuedCount());
+
+        runNext();
+        runNext();
+        assertEquals(List.of("a1", "b1"), started);
+        assertEquals(1, pending.size());
+        runNext();
+        assertEquals(List.of("a1", "b1", "a2"), started);
+        assertEquals(0, scheduler.runningCount());
+    }
+
+    @Test
+    void higherPriorityStartsFirst() {
+        submit("a1", "a", TaskPriority.NORMAL);
+        submit("b1", "b", TaskPriority.NORMAL);
+        submit("c1", "c", TaskPriority.LOW);
+        submit("d1", "d", TaskPriority.NORMAL);
+        submit("e1", "e", TaskPriority.HIGH);
+
+        runNext();
+        runNext();
+        runNext();
+        runNext();
+        runNext();
+        assertEquals(List.of("a1", "b1", "e1", "d1", "c1"), started);
+    }
+
+    @Test
+    void fastPathBypassesQueue() {
+        submit("a1", "a", TaskPriority.NORMAL);
+        submit("a2", "a", TaskPriority.NORMAL);
+        submit("small", "a", TaskPriority.NORMAL, true);
+        assertEquals(2, pending.size());
+        assertEquals(1, scheduler.queuedCount());
+        assertEquals(2, scheduler.runningCount());
+    }
+
+    @Test
+    void cancelRemovesQueuedTaskImmediately() {
+        submit("a1", "a", TaskPriority.NORMAL);
+        CompletableFuture<Void> queued = submit("a2", "a", TaskPriority.NORMAL);
+        CompletableFuture<Void> next = submit("a3", "a", TaskPriority.NORMAL);
+
+        assertTrue(scheduler.cancel("a2"));
+        assertTrue(queued.isDone());
+        assertEquals(List.of("a2"), discarded);
+        assertEquals(1, scheduler.queuedCount());
+
+        runNext();
+        runNext();
+        assertEquals(List.of("a1", "a3"), started);
+        assertTrue(next.isDone());
+    }
+
+    @Test
+    void cancelIgnoresStartedTask() {
+        CompletableFuture<Void> future = submit("a1", "a", TaskPriority.NORMAL);
+
+        assertFalse(scheduler.cancel("a1"));
+        assertFalse(future.isDone());
+        assertTrue(discarded.isEmpty());
+    }
+
+    @Test
+    void taskCancelledAfterDispatchIsDiscarded() {
+        when(taskService.startTask("a1")).thenReturn(false);
+        CompletableFuture<Void> future = submit("a1", "a", TaskPriority.NORMAL);
+
+        runNext();
+        assertTrue(future.isDone());
+        assertTrue(started.isEmpty());
+        assertEquals(List.of("a1"), discarded);
+        assertEquals(0, scheduler.runningCount());
+    }
+}
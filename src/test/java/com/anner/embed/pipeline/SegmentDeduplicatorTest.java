@@ -0,0 +1,125 @@
+package com.anner.embed.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 任务内去重：批次乱序完成、按顺序写出时的向量填充，以及超出在途窗口的重复文本
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class SegmentDeduplicatorTest {
+    private final List<String> embeddedTexts = new ArrayList<>();
+
+    private List<Embedding> embed(List<TextSegment> batch) {
+        List<Embedding> embeddings = new ArrayList<>(batch.size());
+        for (TextSegment segment : batch) {
+            embeddedTexts.add(segment.text());
+            embeddings.add(Embedding.from(new float[] {segment.text().hashCode()}));
+        }
+        return embeddings;
+    }
+
+    private static List<TextSegment> batch(String... texts) {
+        List<TextSegment> batch = new ArrayList<>(texts.length);
+        for (String text : texts) {
+            batch.add(TextSegment.from(text));
+        }
+        return batch;
+    }
+
+    private static void registerAll(SegmentDeduplicator deduplicator, List<TextSegment> batch) {
+        for (TextSegment segment : batch) {
+            deduplicator.register(segment);
+        }
+    }
+
+    @Test
+    void duplicateIsFilledAfterOutOfOrderCompletion() {
+        SegmentDeduplicator deduplicator = new SegmentDeduplicator(100);
+        BatchEmbedder embedder = deduplicator.wrap(this::embed);
+        List<TextSegment> first = batch("a", "b");
+        List<TextSegment> second = batch("a", "c");
+        registerAll(deduplicator, first);
+        registerAll(deduplicator, second);
+
+        // 第二批先完成，重复段不送去向量化
+        List<Embedding> secondEmbeddings = embedder.embedAll(second);
+        List<Embedding> firstEmbeddings = embedder.embedAll(first);
+        assertNull(secondEmbeddings.get(0));
+        assertEquals(List.of("c", "a", "b"), embeddedTexts);
+
+        // 写出仍按提交顺序
+        List<Embedding> firstResolved = deduplicator.resolve(firstEmbeddings, first);
+        List<Embedding> secondResolved = deduplicator.resolve(secondEmbeddings, second);
+        assertSame(firstResolved.get(0), secondResolved.get(0));
+        assertSame(secondEmbeddings.get(1), secondResolved.get(1));
+        assertEquals(3, deduplicator.getUniqueCount());
+        assertEquals(0, deduplicator.getLateDuplicateCount());
+    }
+
+    @Test
+    void duplicateInSameBatchIsFilled() {
+        SegmentDeduplicator deduplicator = new SegmentDeduplicator(100);
+        List<TextSegment> batch = batch("a", "a", "b", "a");
+        registerAll(deduplicator, batch);
+
+        List<Embedding> resolved = deduplicator.resolve(deduplicator.wrap(this::embed).embedAll(batch), batch);
+        assertEquals(List.of("a", "b"), embeddedTexts);
+        assertSame(resolved.get(0), resolved.get(1));
+        assertSame(resolved.get(0), resolved.get(3));
+        assertEquals(2, deduplicator.getUniqueCount());
+    }
+
+    @Test
+    void repeatAfterCommitIsEmbeddedAgainAndCounted() {
+        SegmentDeduplicator deduplicator = new SegmentDeduplicator(100);
+        BatchEmbedder embedder = deduplicator.wrap(this::embed);
+        List<TextSegment> first = batch("a");
+        registerAll(deduplicator, first);
+        deduplicator.resolve(embedder.embedAll(first), first);
+
+        // 首次出现的文本段已写出且没有待填充的重复段，向量已释放
+        List<TextSegment> second = batch("a");
+        assertFalse(deduplicator.register(second.get(0)));
+        deduplicator.resolve(embedder.embedAll(second), second);
+        assertEquals(List.of("a", "a"), embeddedTexts);
+        assertEquals(1, deduplicator.getUniqueCount());
+        assertEquals(1, deduplicator.getLateDuplicateCount());
+    }
+
+    @Test
+    void evictionKeepsPendingEntriesAndUniqueCount() {
+        SegmentDeduplicator deduplicator = new SegmentDeduplicator(1);
+        BatchEmbedder embedder = deduplicator.wrap(this::embed);
+        List<TextSegment> batch = batch("a", "b", "c", "a");
+        assertFalse(deduplicator.register(batch.get(0)));
+        assertFalse(deduplicator.register(batch.get(1)));
+        assertFalse(deduplicator.register(batch.get(2)));
+        // a 的记录已被移除，这次出现交给下游
+        assertFalse(deduplicator.register(batch.get(3)));
+        assertEquals(3, deduplicator.getUniqueCount());
+        assertEquals(1, deduplicator.getLateDuplicateCount());
+
+        // 有待填充重复段的文本不会被移除
+        List<TextSegment> next = batch("d", "d", "e", "f");
+        registerAll(deduplicator, next);
+        List<Embedding> resolved = deduplicator.resolve(embedder.embedAll(next), next);
+        assertSame(resolved.get(0), resolved.get(1));
+        assertTrue(embeddedTexts.containsAll(List.of("d", "e", "f")));
+        assertEquals(6, deduplicator.getUniqueCount());
+    }
+}
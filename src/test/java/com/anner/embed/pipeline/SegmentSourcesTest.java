@@ -0,0 +1,44 @@
+package com.anner.embed.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 已写出文本段数到所在文件及文件内位置的换算
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class SegmentSourcesTest {
+
+    @Test
+    void positionOfCommittedSegments() {
+        SegmentSources sources = new SegmentSources();
+        sources.addFile("a.md", 3);
+        // 没有文本段的文件不占位置
+        sources.addFile("empty.md", 0);
+        sources.addFile("b.md", 2);
+        sources.addFile("c.md", 4);
+
+        assertNull(sources.positionOf(0));
+        assertEquals(new SegmentSources.Position("a.md", 1), sources.positionOf(1));
+        assertEquals(new SegmentSources.Position("a.md", 3), sources.positionOf(3));
+        assertEquals(new SegmentSources.Position("b.md", 1), sources.positionOf(4));
+        assertEquals(new SegmentSources.Position("c.md", 4), sources.positionOf(9));
+    }
+
+    @Test
+    void repeatedCheckpointAtSamePosition() {
+        SegmentSources sources = new SegmentSources();
+        sources.addFile("a.md", 2);
+        sources.addFile("b.md", 2);
+
+        // 两次检查点之间没有新的批次写出
+        assertEquals(new SegmentSources.Position("a.md", 2), sources.positionOf(2));
+        assertEquals(new SegmentSources.Position("a.md", 2), sources.positionOf(2));
+        assertEquals(new SegmentSources.Position("b.md", 2), sources.positionOf(4));
+    }
+}
@@ -0,0 +1,78 @@
+package com.anner.embed.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.anner.embed.model.SearchMatch;
+
+/**
+ * HNSW 近似检索与同一份数据上精确检索的召回率对比
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class HnswVectorIndexTest {
+    private static final int COUNT = 3000;
+    private static final int QUERIES = 100;
+    private static final int TOP_K = 10;
+
+    @TempDir
+    Path directory;
+
+    private float[][] vectors;
+    private Path vectorPath;
+    private Path indexPath;
+    private float[][] queries;
+
+    @BeforeEach
+    void setUp() {
+        vectors = TestVectors.clustered(COUNT + QUERIES, 48, 30, 7);
+        vectorPath = directory.resolve("vectors.bin");
+        indexPath = directory.resolve("vectors.hnsw");
+        TestVectors.write(vectorPath, Arrays.copyOf(vectors, COUNT));
+        queries = Arrays.copyOfRange(vectors, COUNT, COUNT + QUERIES);
+        assertEquals(COUNT, new HnswIndexBuilder(16, 100).build(vectorPath, indexPath));
+    }
+
+    @Test
+    void recallAgainstExactSearch() throws IOException {
+        try (MappedVectorIndex exact = MappedVectorIndex.open(vectorPath);
+                HnswVectorIndex hnsw = HnswVectorIndex.open(vectorPath, indexPath, 64)) {
+            double recall = TestVectors.recall(exact, hnsw, queries, TOP_K);
+            assertTrue(recall >= 0.9, "recall@10 = " + recall);
+        }
+    }
+
+    @Test
+    void largerEfSearchDoesNotLowerRecall() throws IOException {
+        try (MappedVectorIndex exact = MappedVectorIndex.open(vectorPath);
+                HnswVectorIndex narrow = HnswVectorIndex.open(vectorPath, indexPath, TOP_K);
+                HnswVectorIndex wide = HnswVectorIndex.open(vectorPath, indexPath, 200)) {
+            double narrowRecall = TestVectors.recall(exact, narrow, queries, TOP_K);
+            double wideRecall = TestVectors.recall(exact, wide, queries, TOP_K);
+            assertTrue(wideRecall >= narrowRecall, narrowRecall + " > " + wideRecall);
+            assertTrue(wideRecall >= 0.98, "recall@10 = " + wideRecall);
+        }
+    }
+
+    @Test
+    void storedVectorFindsItself() throws IOException {
+        try (HnswVectorIndex hnsw = HnswVectorIndex.open(vectorPath, indexPath, 64)) {
+            for (int row = 0; row < COUNT; row += 97) {
+                List<SearchMatch> matches = hnsw.search(vectors[row], 1);
+                assertEquals(String.valueOf(row), matches.get(0).getId());
+                assertEquals(1.0, matches.get(0).getScore(), 1e-4);
+            }
+        }
+    }
+}
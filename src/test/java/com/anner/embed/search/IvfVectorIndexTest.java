@@ -0,0 +1,87 @@
+package com.anner.embed.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * IVF 倒排索引与同一份数据上精确检索的召回率对比
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class IvfVectorIndexTest {
+    // 超过单个分配子任务的行数，并行构建时会拆分
+    private static final int COUNT = 5000;
+    private static final int QUERIES = 100;
+    private static final int TOP_K = 10;
+
+    @TempDir
+    Path directory;
+
+    private Path vectorPath;
+    private Path indexPath;
+    private float[][] queries;
+    private int lists;
+
+    @BeforeEach
+    void setUp() {
+        float[][] vectors = TestVectors.clustered(COUNT + QUERIES, 32, 40, 5);
+        vectorPath = directory.resolve("vectors.bin");
+        indexPath = directory.resolve("vectors.ivf");
+        TestVectors.write(vectorPath, Arrays.copyOf(vectors, COUNT));
+        queries = Arrays.copyOfRange(vectors, COUNT, COUNT + QUERIES);
+        lists = new IvfIndexBuilder(0, COUNT, 10, null).build(vectorPath, indexPath);
+    }
+
+    @Test
+    void defaultListCountIsSquareRoot() {
+        assertEquals(Math.round(Math.sqrt(COUNT)), lists);
+    }
+
+    @Test
+    void probingAllListsMatchesExactSearch() throws IOException {
+        try (MappedVectorIndex exact = MappedVectorIndex.open(vectorPath);
+                IvfVectorIndex ivf = IvfVectorIndex.open(vectorPath, indexPath, lists)) {
+            assertEquals(1.0, TestVectors.recall(exact, ivf, queries, TOP_K));
+        }
+    }
+
+    @Test
+    void recallGrowsWithNprobe() throws IOException {
+        try (MappedVectorIndex exact = MappedVectorIndex.open(vectorPath)) {
+            double previous = 0;
+            for (int nprobe : new int[] {1, 4, 16}) {
+                try (IvfVectorIndex ivf = IvfVectorIndex.open(vectorPath, indexPath, nprobe)) {
+                    double recall = TestVectors.recall(exact, ivf, queries, TOP_K);
+                    assertTrue(recall >= previous, "nprobe=" + nprobe + " recall@10 = " + recall);
+                    previous = recall;
+                }
+            }
+            assertTrue(previous >= 0.95, "recall@10 = " + previous);
+        }
+    }
+
+    @Test
+    void parallelBuildMatchesSequentialBuild() throws IOException {
+        Path parallelPath = directory.resolve("parallel.ivf");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(lists, new IvfIndexBuilder(0, COUNT, 10, pool).build(vectorPath, parallelPath));
+        } finally {
+            pool.shutdown();
+        }
+        assertArrayEquals(Files.readAllBytes(indexPath), Files.readAllBytes(parallelPath));
+    }
+}
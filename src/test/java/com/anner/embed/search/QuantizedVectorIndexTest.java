@@ -0,0 +1,137 @@
+package com.anner.embed.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.anner.embed.model.QuantizationReport;
+import com.anner.embed.model.QuantizationType;
+import com.anner.embed.vector.BinaryVectorFile;
+
+/**
+ * SQ8 / PQ 编码的往返：打分接近原始内积，参数和编码经量化向量文件保存后还原一致，召回率与精确检索对比
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class QuantizedVectorIndexTest {
+    private static final int COUNT = 2000;
+    private static final int QUERIES = 50;
+    private static final int DIMENSION = 32;
+    private static final int SUBVECTOR_DIMENSION = 4;
+
+    @TempDir
+    Path directory;
+
+    private float[][] vectors;
+    private float[][] queries;
+
+    @BeforeEach
+    void setUp() {
+        float[][] all = TestVectors.clustered(COUNT + QUERIES, DIMENSION, 20, 13);
+        vectors = Arrays.copyOf(all, COUNT);
+        queries = Arrays.copyOfRange(all, COUNT, COUNT + QUERIES);
+    }
+
+    private VectorQuantizer train(QuantizationType type) {
+        return VectorQuantizer.train(type, vectors, SUBVECTOR_DIMENSION, 10, new SplittableRandom(1));
+    }
+
+    private static float score(VectorQuantizer quantizer, float[] query, float[] vector) {
+        byte[] code = new byte[quantizer.codeBytes()];
+        quantizer.encode(vector, code);
+        return quantizer.scorer(query).score(ByteBuffer.wrap(code), 0);
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            sum += a[d] * b[d];
+        }
+        return sum;
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "SQ8, 0.01, 0.002", "PQ, 0.25, 0.05" })
+    void scoreApproximatesDotProduct(QuantizationType type, double maxAllowed, double meanAllowed) {
+        VectorQuantizer quantizer = train(type);
+        double maxError = 0;
+        double totalError = 0;
+        for (float[] query : queries) {
+            for (int row = 0; row < COUNT; row += 7) {
+                double error = Math.abs(score(quantizer, query, vectors[row]) - dot(query, vectors[row]));
+                maxError = Math.max(maxError, error);
+                totalError += error;
+            }
+        }
+        double meanError = totalError / (QUERIES * ((COUNT + 6) / 7));
+        assertTrue(maxError < maxAllowed, "max error = " + maxError);
+        assertTrue(meanError < meanAllowed, "mean error = " + meanError);
+    }
+
+    @ParameterizedTest
+    @EnumSource(QuantizationType.class)
+    void parametersRoundTrip(QuantizationType type) {
+        VectorQuantizer trained = train(type);
+        VectorQuantizer restored = VectorQuantizer.of(type, DIMENSION, trained.codeBytes(), trained.parameters());
+        assertEquals(type, restored.type());
+        assertArrayEquals(trained.parameters(), restored.parameters());
+
+        byte[] expected = new byte[trained.codeBytes()];
+        byte[] actual = new byte[restored.codeBytes()];
+        for (int row = 0; row < COUNT; row += 13) {
+            trained.encode(vectors[row], expected);
+            restored.encode(vectors[row], actual);
+            assertArrayEquals(expected, actual);
+            assertEquals(trained.scorer(queries[0]).score(ByteBuffer.wrap(expected), 0),
+                    restored.scorer(queries[0]).score(ByteBuffer.wrap(actual), 0));
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "SQ8, 0.95", "PQ, 0.45" })
+    void quantizedFileRoundTrip(QuantizationType type, double minRecall) throws IOException {
+        Path vectorPath = directory.resolve("vectors.bin");
+        Path quantizedPath = directory.resolve("vectors." + type.suffix());
+        TestVectors.write(vectorPath, vectors);
+        QuantizationReport report = new QuantizedIndexBuilder(COUNT, SUBVECTOR_DIMENSION, 10, 50)
+                .build(type, vectorPath, quantizedPath);
+        assertEquals(DIMENSION * Float.BYTES / (double) report.getBytesPerVector(), report.getCompressionRatio());
+
+        // 文件中保存的编码与用文件中还原的参数重新编码的结果一致
+        try (BinaryVectorFile file = BinaryVectorFile.open(vectorPath);
+                QuantizedVectorFile codes = QuantizedVectorFile.open(quantizedPath)) {
+            assertEquals(COUNT, codes.size());
+            VectorRows rows = new VectorRows(file, MappedVectorIndex.inverseNorms(file));
+            VectorQuantizer quantizer = codes.quantizer();
+            VectorQuantizer.CodeScorer scorer = quantizer.scorer(queries[0]);
+            float[] unit = new float[DIMENSION];
+            byte[] code = new byte[quantizer.codeBytes()];
+            for (int row = 0; row < COUNT; row += 13) {
+                quantizer.encode(rows.unitVector(row, unit), code);
+                assertEquals(scorer.score(ByteBuffer.wrap(code), 0), codes.score(scorer, row));
+            }
+        }
+
+        try (MappedVectorIndex exact = MappedVectorIndex.open(vectorPath);
+                QuantizedVectorIndex quantized = QuantizedVectorIndex.open(vectorPath, quantizedPath, null)) {
+            assertEquals(type, quantized.type());
+            double recall = TestVectors.recall(exact, quantized, queries, 10);
+            assertTrue(recall >= minRecall, "recall@10 = " + recall);
+            assertTrue(report.getRecallAt10() >= minRecall, "reported recall@10 = " + report.getRecallAt10());
+        }
+    }
+}
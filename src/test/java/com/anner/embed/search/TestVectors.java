@@ -0,0 +1,85 @@
+package com.anner.embed.search;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.anner.embed.model.SearchMatch;
+import com.anner.embed.vector.BinaryVectorWriter;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 检索测试使用的确定性数据：聚类分布的单位向量写入二进制向量文件，以及与精确检索对比的召回率
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+final class TestVectors {
+
+    private TestVectors() {
+    }
+
+    /**
+     * 随机生成 clusters 个中心，每个向量为随机中心加高斯噪声后归一化
+     */
+    static float[][] clustered(int count, int dimension, int clusters, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[clusters][dimension];
+        for (float[] center : centers) {
+            for (int d = 0; d < dimension; d++) {
+                center[d] = (float) random.nextGaussian();
+            }
+        }
+        float[][] vectors = new float[count][dimension];
+        for (float[] vector : vectors) {
+            float[] center = centers[random.nextInt(clusters)];
+            double norm = 0;
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = center[d] + (float) (random.nextGaussian() * 0.6);
+                norm += vector[d] * vector[d];
+            }
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int d = 0; d < dimension; d++) {
+                vector[d] *= scale;
+            }
+        }
+        return vectors;
+    }
+
+    static void write(Path path, float[][] vectors) {
+        BinaryVectorWriter writer = new BinaryVectorWriter(path);
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        List<TextSegment> segments = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(Embedding.from(vectors[i]));
+            segments.add(TextSegment.from("segment " + i));
+        }
+        writer.append(embeddings, segments);
+        writer.commit();
+    }
+
+    /**
+     * 近似检索的 topK 中属于精确检索 topK 的比例
+     */
+    static double recall(VectorIndex exact, VectorIndex approximate, float[][] queries, int topK) {
+        long hits = 0;
+        for (float[] query : queries) {
+            Set<String> expected = new HashSet<>();
+            for (SearchMatch match : exact.search(query, topK)) {
+                expected.add(match.getId());
+            }
+            for (SearchMatch match : approximate.search(query, topK)) {
+                if (expected.contains(match.getId())) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / ((long) queries.length * topK);
+    }
+}
@@ -0,0 +1,104 @@
+package com.anner.embed.vector;
+
+import static com.anner.embed.vector.StreamingJsonVectorWriterTest.embeddings;
+import static com.anner.embed.vector.StreamingJsonVectorWriterTest.segments;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.anner.embed.exception.RagException;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 二进制向量输出按检查点截断三个临时文件后继续追加，提交结果与一次写完相同
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class BinaryVectorWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private static void append(VectorOutput output, List<TextSegment> segments) {
+        output.append(embeddings(segments), segments);
+    }
+
+    private static void assertRows(Path file, List<TextSegment> expected) throws IOException {
+        try (BinaryVectorFile vectors = BinaryVectorFile.open(file)) {
+            assertEquals(expected.size(), vectors.count());
+            List<float[]> expectedVectors = embeddings(expected).stream().map(Embedding::vector).toList();
+            for (int row = 0; row < expected.size(); row++) {
+                TextSegment segment = vectors.segment(row);
+                assertEquals(expected.get(row).text(), segment.text());
+                assertEquals(expected.get(row).metadata().toMap(), segment.metadata().toMap());
+                assertArrayEquals(expectedVectors.get(row), vectors.vector(row));
+            }
+        }
+    }
+
+    @Test
+    void resumeDropsRowsAfterCheckpoint() throws IOException {
+        Path target = directory.resolve("task.bin");
+        BinaryVectorWriter writer = new BinaryVectorWriter(target);
+        List<TextSegment> first = segments("a", "bb");
+        append(writer, first);
+        OutputCheckpoint checkpoint = writer.checkpoint();
+        assertEquals(2, checkpoint.entries());
+        assertEquals(3, checkpoint.dimension());
+        // 检查点之后写入、但没有记录进度的批次
+        append(writer, segments("lost", "lost again"));
+        writer.close();
+
+        BinaryVectorWriter resumed = new BinaryVectorWriter(target, checkpoint);
+        List<TextSegment> second = segments("ccc");
+        append(resumed, second);
+        resumed.commit();
+
+        assertRows(target, List.of(first.get(0), first.get(1), second.get(0)));
+        assertFalse(Files.exists(directory.resolve("task.bin.tmp")));
+        assertFalse(Files.exists(directory.resolve("task.bin.offsets.tmp")));
+        assertFalse(Files.exists(directory.resolve("task.bin.text.tmp")));
+    }
+
+    @Test
+    void resumeFromEmptyCheckpoint() throws IOException {
+        Path target = directory.resolve("task.bin");
+        BinaryVectorWriter writer = new BinaryVectorWriter(target);
+        OutputCheckpoint checkpoint = writer.checkpoint();
+        assertEquals(-1, checkpoint.dimension());
+        append(writer, segments("lost"));
+        writer.close();
+
+        BinaryVectorWriter resumed = new BinaryVectorWriter(target, checkpoint);
+        List<TextSegment> segments = segments("a", "b");
+        append(resumed, segments);
+        resumed.commit();
+
+        assertRows(target, segments);
+    }
+
+    @Test
+    void resumeWithTruncatedTempFileFails() throws IOException {
+        Path target = directory.resolve("task.bin");
+        BinaryVectorWriter writer = new BinaryVectorWriter(target);
+        append(writer, segments("a", "b"));
+        OutputCheckpoint checkpoint = writer.checkpoint();
+        writer.close();
+        Files.write(directory.resolve("task.bin.text.tmp"), new byte[0]);
+
+        assertThrows(RagException.class, () -> new BinaryVectorWriter(target, checkpoint));
+    }
+}
@@ -0,0 +1,123 @@
+package com.anner.embed.vector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.anner.embed.exception.RagException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * JSON 向量输出按检查点截断后继续追加，结果仍能被 InMemoryEmbeddingStore 读取
+ *
+ * @author Anner
+ * @since 12.0
+ * Created on 2025/4/15
+ */
+class StreamingJsonVectorWriterTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    static List<TextSegment> segments(String... texts) {
+        List<TextSegment> segments = new ArrayList<>(texts.length);
+        for (int i = 0; i < texts.length; i++) {
+            segments.add(TextSegment.from(texts[i], Metadata.from(Map.of("file_name", "doc.md", "index", i))));
+        }
+        return segments;
+    }
+
+    static List<Embedding> embeddings(List<TextSegment> segments) {
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            String text = segment.text();
+            embeddings.add(Embedding.from(new float[] {text.length(), text.hashCode() % 1000, 0.25f}));
+        }
+        return embeddings;
+    }
+
+    private static void append(VectorOutput output, List<TextSegment> segments) {
+        output.append(embeddings(segments), segments);
+    }
+
+    private static List<String> texts(Path file) throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (JsonNode entry : OBJECT_MAPPER.readTree(file.toFile()).path("entries")) {
+            texts.add(entry.path("embedded").path("text").asText());
+        }
+        return texts;
+    }
+
+    @Test
+    void resumeDropsEntriesAfterCheckpoint() throws IOException {
+        Path target = directory.resolve("task.json");
+        StreamingJsonVectorWriter writer = new StreamingJsonVectorWriter(target);
+        append(writer, segments("a", "b"));
+        OutputCheckpoint checkpoint = writer.checkpoint();
+        assertEquals(2, checkpoint.entries());
+        // 检查点之后写入、但没有记录进度的批次
+        append(writer, segments("lost"));
+        writer.close();
+
+        StreamingJsonVectorWriter resumed = new StreamingJsonVectorWriter(target, checkpoint);
+        append(resumed, segments("c"));
+        resumed.commit();
+
+        assertEquals(List.of("a", "b", "c"), texts(target));
+        assertFalse(Files.exists(directory.resolve("task.json.tmp")));
+        InMemoryEmbeddingStore<TextSegment> store = InMemoryEmbeddingStore.fromFile(target);
+        String json = store.serializeToJson();
+        JsonNode entries = OBJECT_MAPPER.readTree(json).path("entries");
+        assertEquals(3, entries.size());
+        float[] expected = embeddings(segments("c")).get(0).vector();
+        float[] actual = new float[expected.length];
+        for (int i = 0; i < expected.length; i++) {
+            actual[i] = entries.get(2).path("embedding").path("vector").get(i).floatValue();
+        }
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void resumeFromEmptyCheckpoint() throws IOException {
+        Path target = directory.resolve("task.json");
+        StreamingJsonVectorWriter writer = new StreamingJsonVectorWriter(target);
+        OutputCheckpoint checkpoint = writer.checkpoint();
+        append(writer, segments("lost"));
+        writer.close();
+
+        StreamingJsonVectorWriter resumed = new StreamingJsonVectorWriter(target, checkpoint);
+        append(resumed, segments("a"));
+        resumed.commit();
+
+        assertEquals(List.of("a"), texts(target));
+    }
+
+    @Test
+    void resumeWithoutTempFileFails() {
+        Path target = directory.resolve("task.json");
+        StreamingJsonVectorWriter writer = new StreamingJsonVectorWriter(target);
+        append(writer, segments("a"));
+        OutputCheckpoint checkpoint = writer.checkpoint();
+        writer.abort();
+
+        assertThrows(RagException.class, () -> new StreamingJsonVectorWriter(target, checkpoint));
+    }
+}